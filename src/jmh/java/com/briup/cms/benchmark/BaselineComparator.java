@@ -0,0 +1,119 @@
+package com.briup.cms.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 比较本次基准测试结果与基准结果
+ *
+ * 按“基准方法+参数”对应两次结果，比较主指标和每次操作分配的内存（gc.alloc.rate.norm）：
+ * 吞吐量模式下数值越大越好，其他模式下数值越小越好，变差超过阈值时记为退化。
+ * 基准结果不存在时只提示如何生成，不做比较。
+ *
+ * 参数：本次结果文件 基准结果文件 [阈值，默认0.10] [出现退化时是否失败，默认false]
+ * 更新基准结果：把本次的target/jmh-result.json复制为src/jmh/baseline.json
+ * （应在固定的参考机器上生成，不同机器之间的结果没有可比性）
+ * @author YuYan
+ * @date 2024-01-25 13:52:40
+ */
+public class BaselineComparator {
+
+    private static final String ALLOC_METRIC = "·gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("用法：BaselineComparator <本次结果> <基准结果> [阈值] [出现退化时是否失败]");
+            System.exit(2);
+        }
+        File current = new File(args[0]);
+        File baseline = new File(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        boolean failOnRegression = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        if (!current.isFile()) {
+            System.err.println("没有找到本次的基准测试结果：" + current);
+            System.exit(2);
+        }
+        if (!baseline.isFile()) {
+            System.out.println("没有找到基准结果：" + baseline);
+            System.out.println("在参考机器上运行后，把 " + current + " 复制为 " + baseline + " 即可作为之后比较的基准");
+            return;
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> before = index(mapper.readTree(baseline));
+        Map<String, JsonNode> after = index(mapper.readTree(current));
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s %12s %12s%n",
+                "基准", "基准结果", "本次结果", "变化", "基准分配B/op", "本次分配B/op");
+        for (Map.Entry<String, JsonNode> entry : after.entrySet()) {
+            JsonNode now = entry.getValue();
+            JsonNode old = before.get(entry.getKey());
+            double score = now.path("primaryMetric").path("score").asDouble();
+            String unit = now.path("primaryMetric").path("scoreUnit").asText();
+            double alloc = allocation(now);
+            if (old == null) {
+                System.out.printf("%-70s %14s %14.3f %9s %12s %12.1f  （新增）%n",
+                        entry.getKey(), "-", score, "-", "-", alloc);
+                continue;
+            }
+            double oldScore = old.path("primaryMetric").path("score").asDouble();
+            double oldAlloc = allocation(old);
+            boolean higherIsBetter = "thrpt".equals(now.path("mode").asText());
+            /* 正数表示变差的比例 */
+            double change = oldScore == 0 ? 0
+                    : (higherIsBetter ? oldScore - score : score - oldScore) / oldScore;
+            boolean allocRegressed = oldAlloc >= 0 && alloc > oldAlloc * (1 + threshold) + 1;
+            boolean regressed = change > threshold || allocRegressed;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%% %12.1f %12.1f %s%s%n",
+                    entry.getKey(), oldScore, score, change * 100, oldAlloc, alloc, unit,
+                    regressed ? "  <-- 退化" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.println("共有" + regressions + "项基准超过阈值" + (threshold * 100) + "%");
+            if (failOnRegression) {
+                System.exit(1);
+            }
+        } else {
+            System.out.println("没有超过阈值" + (threshold * 100) + "%的退化");
+        }
+    }
+
+    /**
+     * 基准方法+参数 -> 结果
+     */
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> indexed = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            JsonNode params = result.path("params");
+            Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                key.append(':').append(field.getKey()).append('=').append(field.getValue().asText());
+            }
+            indexed.put(key.toString(), result);
+        }
+        return indexed;
+    }
+
+    /**
+     * 每次操作分配的字节数，没有使用-prof gc时返回-1
+     */
+    private static double allocation(JsonNode result) {
+        JsonNode metric = result.path("secondaryMetrics").path(ALLOC_METRIC);
+        return metric.isMissingNode() ? -1 : metric.path("score").asDouble();
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.briup.cms.benchmark;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.briup.cms.common.model.entity.Comment;
+import com.briup.cms.common.model.entity.SubComment;
+import com.briup.cms.common.model.entity.User;
+import com.briup.cms.common.model.ext.CommentExt;
+import com.briup.cms.common.model.ext.SubCommentExt;
+import com.briup.cms.common.model.ext.UserExt;
+import com.briup.cms.common.model.vo.CommentVO;
+import com.briup.cms.common.util.BeanUtil;
+import com.briup.cms.common.util.PageUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 对象转换的基准测试（一页100条评论）
+ *
+ * 1）Entity -> Ext：BeanUtil.copyProperties与直接使用Spring BeanUtils（反射）的对比
+ * 2）分页对象转换：PageUtil.convert与整体BeanUtils复制分页对象的对比
+ * 3）Ext -> VO：带作者和子评论的评论树转换
+ * @author YuYan
+ * @date 2024-01-25 10:06:51
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final int SUB_COMMENTS = 3;
+
+    private IPage<Comment> page;
+    private List<CommentExt> commentExts;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<Comment> comments = new ArrayList<>(PAGE_SIZE);
+        commentExts = new ArrayList<>(PAGE_SIZE);
+        for (long i = 1; i <= PAGE_SIZE; i++) {
+            Comment comment = Comment.builder()
+                    .id(i)
+                    .content("评论内容" + i)
+                    .publishTime(new Date())
+                    .userId(i % 10 + 1)
+                    .articleId(i % 5 + 1)
+                    .deleted(0)
+                    .build();
+            comments.add(comment);
+
+            CommentExt commentExt = CommentExt.toExt(comment);
+            commentExt.setUserExt(user(comment.getUserId()));
+            List<SubCommentExt> subCommentExts = new ArrayList<>(SUB_COMMENTS);
+            for (long j = 1; j <= SUB_COMMENTS; j++) {
+                SubCommentExt subCommentExt = SubCommentExt.toExt(SubComment.builder()
+                        .id(i * 10 + j)
+                        .content("回复内容" + j)
+                        .publishTime(new Date())
+                        .userId(j)
+                        .parentId(i)
+                        .replyId(j == 1 ? null : i * 10 + j - 1)
+                        .deleted(0)
+                        .build());
+                subCommentExt.setUserExt(user(j));
+                subCommentExts.add(subCommentExt);
+            }
+            commentExt.setSubCommentExts(subCommentExts);
+            commentExts.add(commentExt);
+        }
+
+        page = new Page<>(1, PAGE_SIZE, 10000);
+        page.setRecords(comments);
+    }
+
+    @Benchmark
+    public List<CommentExt> copyProperties() {
+        List<CommentExt> list = new ArrayList<>(PAGE_SIZE);
+        for (Comment comment : page.getRecords()) {
+            list.add(BeanUtil.copyProperties(comment, CommentExt.class));
+        }
+        return list;
+    }
+
+    @Benchmark
+    public List<CommentExt> copyPropertiesReflection() {
+        List<CommentExt> list = new ArrayList<>(PAGE_SIZE);
+        for (Comment comment : page.getRecords()) {
+            CommentExt commentExt = BeanUtils.instantiateClass(CommentExt.class);
+            BeanUtils.copyProperties(comment, commentExt);
+            list.add(commentExt);
+        }
+        return list;
+    }
+
+    @Benchmark
+    public IPage<CommentExt> pageConvert() {
+        return PageUtil.convert(page, CommentExt::toExt);
+    }
+
+    @Benchmark
+    public IPage<CommentExt> pageConvertReflection() {
+        IPage<CommentExt> target = new Page<>();
+        BeanUtils.copyProperties(page, target);
+        target.setRecords(page.getRecords()
+                .stream()
+                .map(comment -> {
+                    CommentExt commentExt = BeanUtils.instantiateClass(CommentExt.class);
+                    BeanUtils.copyProperties(comment, commentExt);
+                    return commentExt;
+                })
+                .collect(Collectors.toList()));
+        return target;
+    }
+
+    @Benchmark
+    public List<CommentVO> commentTreeToVO() {
+        return CommentVO.toVO(commentExts);
+    }
+
+    private static UserExt user(long id) {
+        return UserExt.toExt(User.builder()
+                .id(id)
+                .username("user" + id)
+                .avatar("https://cms.briup.com/avatar/" + id + ".png")
+                .gender("男")
+                .email("user" + id + "@briup.com")
+                .phone("1380000" + String.format("%04d", id))
+                .registerTime(new Date())
+                .status("启用")
+                .roleId(3)
+                .vip(0)
+                .deleted(0)
+                .build());
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.briup.cms.benchmark;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.briup.cms.common.model.entity.Article;
+import com.briup.cms.common.model.entity.Comment;
+import com.briup.cms.common.model.entity.User;
+import com.briup.cms.common.model.ext.ArticleExt;
+import com.briup.cms.common.model.ext.CommentExt;
+import com.briup.cms.common.model.ext.UserExt;
+import com.briup.cms.common.model.vo.CommentVO;
+import com.briup.cms.common.util.JsonUtil;
+import com.briup.cms.common.util.PageUtil;
+import com.briup.cms.common.util.RedisUtil;
+import com.briup.cms.common.util.Result;
+import com.briup.cms.service.impl.ArticleServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 序列化相关的基准测试
+ *
+ * 1）JsonUtil.stringify：序列化一页评论的统一响应结构（与接口返回的内容相同）
+ * 2）RedisUtil.generateKey：生成文章分页查询的缓存键（每次查询都会执行）
+ * @author YuYan
+ * @date 2024-01-25 10:38:02
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private JsonUtil jsonUtil;
+    private RedisUtil redisUtil;
+
+    private Result result;
+    private Object[] keyArgs;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        /* 与SpringBoot自动配置的ObjectMapper使用相同的构建方式 */
+        jsonUtil = new JsonUtil(Jackson2ObjectMapperBuilder.json().build());
+        /* 生成缓存键不访问Redis */
+        redisUtil = new RedisUtil(null, null, jsonUtil);
+
+        List<Comment> comments = new ArrayList<>(PAGE_SIZE);
+        for (long i = 1; i <= PAGE_SIZE; i++) {
+            comments.add(Comment.builder()
+                    .id(i)
+                    .content("评论内容" + i)
+                    .publishTime(new Date())
+                    .userId(i)
+                    .articleId(1L)
+                    .deleted(0)
+                    .build());
+        }
+        IPage<Comment> page = new Page<>(1, PAGE_SIZE, 1000);
+        page.setRecords(comments);
+        result = Result.ok(PageUtil.convert(page, comment -> {
+            CommentExt commentExt = CommentExt.toExt(comment);
+            commentExt.setUserExt(UserExt.toExt(User.builder()
+                    .id(comment.getUserId())
+                    .username("user" + comment.getUserId())
+                    .status("启用")
+                    .roleId(3)
+                    .build()));
+            return CommentVO.toVO(commentExt);
+        }));
+
+        ArticleExt articleExt = ArticleExt.toExt(Article.builder()
+                .title("基准测试")
+                .status("审核通过")
+                .categoryId(1)
+                .build());
+        keyArgs = new Object[]{1L, 10L, articleExt};
+    }
+
+    @Benchmark
+    public String stringifyResult() {
+        return jsonUtil.stringify(result);
+    }
+
+    @Benchmark
+    public String generateKey() {
+        return redisUtil.generateKey(ArticleServiceImpl.class, "pageQueryByClause",
+                Page.class.getSimpleName(), keyArgs);
+    }
+
+}
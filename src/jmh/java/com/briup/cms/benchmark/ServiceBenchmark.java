@@ -0,0 +1,118 @@
+package com.briup.cms.benchmark;
+
+import com.briup.cms.common.model.entity.Role;
+import com.briup.cms.common.model.ext.RoleExt;
+import com.briup.cms.common.util.StringToDateConverter;
+import com.briup.cms.common.verify.ParamVerifyAspect;
+import com.briup.cms.dao.RoleMapper;
+import com.briup.cms.service.RoleService;
+import com.briup.cms.service.impl.RoleServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.lang.reflect.Proxy;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 请求处理过程中的固定开销的基准测试
+ *
+ * 1）ParamVerifyAspect：经过参数验证的方法、未被匹配的方法与不经过代理直接调用的对比
+ *   （Dao层使用返回固定数据的桩对象，只测量切面本身的开销）
+ * 2）StringToDateConverter：请求参数中的日期字符串转换，默认格式（直接解析数字）、其他格式（DateTimeFormatter）、
+ *   毫秒时间戳与原先使用的SimpleDateFormat（每个线程一个实例）的对比
+ * @author YuYan
+ * @date 2024-01-25 11:15:27
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+
+    private RoleService target;
+    private RoleService proxy;
+    private StringToDateConverter converter;
+    private final ThreadLocal<SimpleDateFormat> simpleDateFormat =
+            ThreadLocal.withInitial(() -> new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"));
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Role role = Role.builder().id(1).name("超级管理员").description("拥有全部权限").build();
+        List<Role> roles = Collections.singletonList(role);
+        RoleMapper roleMapper = (RoleMapper) Proxy.newProxyInstance(
+                RoleMapper.class.getClassLoader(),
+                new Class<?>[]{RoleMapper.class},
+                (stub, method, args) -> {
+                    switch (method.getName()) {
+                        case "selectById":
+                            return role;
+                        case "selectList":
+                            return roles;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        target = new RoleServiceImpl(roleMapper);
+
+        /* 与容器中的代理方式相同：基于类的代理，切面作为Advisor */
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(new ParamVerifyAspect());
+        proxy = (RoleService) proxyFactory.getProxy();
+
+        converter = new StringToDateConverter("yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd");
+    }
+
+    @Benchmark
+    public RoleExt verifiedCall() {
+        return proxy.getById(1);
+    }
+
+    @Benchmark
+    public List<RoleExt> unmatchedCall() {
+        return proxy.list();
+    }
+
+    @Benchmark
+    public RoleExt directCall() {
+        return target.getById(1);
+    }
+
+    @Benchmark
+    public Date convertDate() {
+        return converter.convert("2024-01-25 11:15:27");
+    }
+
+    @Benchmark
+    public Date convertDatePattern() {
+        return converter.convert("2024-01-25T11:15:27");
+    }
+
+    @Benchmark
+    public Date convertEpochMillis() {
+        return converter.convert("1706152527000");
+    }
+
+    @Benchmark
+    public Date simpleDateFormat() throws ParseException {
+        return simpleDateFormat.get().parse("2024-01-25 11:15:27");
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.briup.cms.benchmark;
+
+import com.briup.cms.common.config.ConfigProperties;
+import com.briup.cms.common.util.JwtUtil;
+import com.briup.cms.common.util.SecurityUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 令牌解析与密码校验的基准测试
+ *
+ * 1）getClaims：带载荷缓存与不带缓存（每次验签、解码）两种情况
+ * 2）bcryptMatches：使用按目标耗时校准后的强度，反映登录接口的真实开销
+ * @author YuYan
+ * @date 2024-01-25 09:42:18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBenchmark {
+
+    private JwtUtil cachedJwtUtil;
+    private JwtUtil uncachedJwtUtil;
+    private String token;
+
+    private SecurityUtil securityUtil;
+    private String password;
+    private String secureText;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cachedJwtUtil = new JwtUtil(new ConfigProperties());
+        ConfigProperties noCache = new ConfigProperties();
+        noCache.setJwtClaimsCacheSize(0);
+        uncachedJwtUtil = new JwtUtil(noCache);
+
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("userId", 1L);
+        claims.put("username", "admin");
+        claims.put("roleId", 1);
+        claims.put("status", "启用");
+        claims.put("vip", 0);
+        token = cachedJwtUtil.generate(claims);
+        /* 预先放入缓存 */
+        cachedJwtUtil.getClaims(token);
+
+        securityUtil = new SecurityUtil(new ConfigProperties());
+        securityUtil.init();
+        password = "123456";
+        secureText = securityUtil.bcryptEncode(password);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        securityUtil.shutdown();
+    }
+
+    @Benchmark
+    public Map<String, Object> getClaimsCached() {
+        return cachedJwtUtil.getClaims(token);
+    }
+
+    @Benchmark
+    public Map<String, Object> getClaimsUncached() {
+        return uncachedJwtUtil.getClaims(token);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5, time = 2)
+    public boolean bcryptMatches() {
+        return securityUtil.bcryptMatches(password, secureText);
+    }
+
+}
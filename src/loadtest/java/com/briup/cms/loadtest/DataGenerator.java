@@ -0,0 +1,281 @@
+package com.briup.cms.loadtest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测数据生成器
+ *
+ * 按配置的数量生成用户、栏目、资讯、评论、二级评论和审计日志，数据的分布有明显倾斜：
+ * 1）资讯的作者、评论的用户按Zipf分布集中在少数活跃用户上
+ * 2）资讯按Zipf分布集中在少数热门栏目中，评论集中在少数热门资讯下，二级评论集中在少数热门评论下
+ * 3）阅读量、点赞量与资讯的热度相关，审核状态、付费、会员等按固定比例随机
+ * 使用相同的随机数种子时生成的数据完全相同。
+ * @author YuYan
+ * @date 2024-01-26 09:45:27
+ */
+public class DataGenerator {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String[] WORDS = {
+            "资讯", "发布", "平台", "技术", "分享", "经验", "开发", "系统", "设计", "架构",
+            "数据", "性能", "优化", "缓存", "数据库", "接口", "服务", "用户", "体验", "安全",
+            "教程", "入门", "实践", "总结", "问题", "方案", "分析", "测试", "部署", "运维",
+            "Java", "Spring", "MySQL", "Redis", "前端", "后端", "框架", "工具", "学习", "笔记"
+    };
+    private static final String[] BUSINESS_NAMES = {
+            "新增或修改资讯信息", "审核资讯", "删除资讯", "发表一级评论", "发表二级评论",
+            "新增或修改用户信息", "删除用户", "新增栏目", "修改栏目", "导入栏目"
+    };
+    private static final String[] STATUSES = {"审核通过", "未审核", "审核未通过"};
+
+    private final LoadTestOptions options;
+    private final Random random;
+    private final long now = System.currentTimeMillis();
+
+    public DataGenerator(LoadTestOptions options) {
+        this.options = options;
+        this.random = new Random(options.seed);
+    }
+
+    /**
+     * 生成全部数据
+     * @param connection 数据库连接
+     * @param passwordHash 所有用户共用的密码密文
+     */
+    public void generate(Connection connection, String passwordHash) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            users(connection, passwordHash);
+            int childCount = categories(connection);
+            articles(connection, childCount);
+            comments(connection);
+            subcomments(connection);
+            logs(connection);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * 第1个用户是超级管理员，第2~5个用户是管理员，其余是普通用户
+     */
+    private void users(Connection connection, String passwordHash) throws SQLException {
+        String sql = "insert into cms_user (id, username, password, avatar, gender, email, phone, "
+                + "register_time, status, birthday, role_id, is_vip, expires_time, deleted) "
+                + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 1; i <= options.users; i++) {
+                boolean vip = random.nextInt(10) == 0;
+                ps.setLong(1, i);
+                ps.setString(2, username(i));
+                ps.setString(3, passwordHash);
+                ps.setString(4, "https://cms.briup.com/avatar/" + (i % 100) + ".png");
+                ps.setString(5, random.nextBoolean() ? "男" : "女");
+                ps.setString(6, username(i) + "@briup.com");
+                ps.setString(7, String.format("138%08d", i));
+                ps.setTimestamp(8, pastTime(730));
+                ps.setString(9, "启用");
+                ps.setTimestamp(10, pastTime(365 * 40));
+                ps.setInt(11, i == 1 ? 1 : i <= 5 ? 2 : 3);
+                ps.setInt(12, vip ? 1 : 0);
+                ps.setTimestamp(13, vip ? new Timestamp(now + TimeUnit.DAYS.toMillis(random.nextInt(365))) : null);
+                addBatch(connection, ps, i);
+            }
+            flush(connection, ps);
+        }
+    }
+
+    /**
+     * @return 二级栏目的数量（资讯只属于二级栏目）
+     */
+    private int categories(Connection connection) throws SQLException {
+        String sql = "insert into cms_category (id, name, description, order_num, parent_id, deleted) "
+                + "values (?, ?, ?, ?, ?, 0)";
+        int id = 0;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int p = 1; p <= options.categories; p++) {
+                int parentId = ++id;
+                ps.setInt(1, parentId);
+                ps.setString(2, "栏目" + p);
+                ps.setString(3, sentence(4));
+                ps.setInt(4, p);
+                ps.setObject(5, null);
+                ps.addBatch();
+                for (int c = 1; c <= options.childCategories; c++) {
+                    ps.setInt(1, ++id);
+                    ps.setString(2, "栏目" + p + "-" + c);
+                    ps.setString(3, sentence(4));
+                    ps.setInt(4, c);
+                    ps.setInt(5, parentId);
+                    ps.addBatch();
+                }
+            }
+            flush(connection, ps);
+        }
+        return options.categories * options.childCategories;
+    }
+
+    private void articles(Connection connection, int childCount) throws SQLException {
+        String sql = "insert into cms_article (id, title, content, status, read_num, like_num, dislike_num, "
+                + "user_id, category_id, charged, publish_time, deleted) "
+                + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+        Zipf authors = new Zipf(options.users, options.skew);
+        Zipf categories = new Zipf(Math.max(1, childCount), options.skew);
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 1; i <= options.articles; i++) {
+                /* 越靠前的资讯越热门，阅读量按排名衰减 */
+                int reads = (int) (100000 / Math.pow(i, 0.8)) + random.nextInt(50);
+                int status = random.nextInt(10);
+                ps.setLong(1, i);
+                ps.setString(2, sentence(3 + random.nextInt(6)));
+                ps.setString(3, paragraph(200 + skewedLength(1800)));
+                ps.setString(4, STATUSES[status < 8 ? 0 : status == 8 ? 1 : 2]);
+                ps.setInt(5, reads);
+                ps.setInt(6, reads / (10 + random.nextInt(20)));
+                ps.setInt(7, reads / (100 + random.nextInt(200)));
+                ps.setLong(8, authors.next(random) + 1);
+                ps.setInt(9, childCategoryId(categories.next(random), options.childCategories));
+                ps.setInt(10, random.nextInt(5) == 0 ? 1 : 0);
+                ps.setTimestamp(11, pastTime(365));
+                addBatch(connection, ps, i);
+            }
+            flush(connection, ps);
+        }
+    }
+
+    private void comments(Connection connection) throws SQLException {
+        String sql = "insert into cms_comment (id, content, publish_time, user_id, article_id, deleted) "
+                + "values (?, ?, ?, ?, ?, 0)";
+        Zipf users = new Zipf(options.users, options.skew);
+        Zipf articles = new Zipf(options.articles, options.skew);
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 1; i <= options.comments; i++) {
+                ps.setLong(1, i);
+                ps.setString(2, sentence(2 + skewedLength(30)));
+                ps.setTimestamp(3, pastTime(365));
+                ps.setLong(4, users.next(random) + 1);
+                ps.setLong(5, articles.next(random) + 1);
+                addBatch(connection, ps, i);
+            }
+            flush(connection, ps);
+        }
+    }
+
+    private void subcomments(Connection connection) throws SQLException {
+        if (options.comments <= 0) {
+            return;
+        }
+        String sql = "insert into cms_subcomment (id, content, publish_time, user_id, parent_id, reply_id, deleted) "
+                + "values (?, ?, ?, ?, ?, ?, 0)";
+        Zipf users = new Zipf(options.users, options.skew);
+        Zipf parents = new Zipf(options.comments, options.skew);
+        /* 每条一级评论下最近的一条二级评论（用来生成“回复某条二级评论”） */
+        long[] lastReply = new long[options.comments + 1];
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 1; i <= options.subcomments; i++) {
+                int parentId = parents.next(random) + 1;
+                long replyId = lastReply[parentId] != 0 && random.nextBoolean() ? lastReply[parentId] : 0;
+                ps.setLong(1, i);
+                ps.setString(2, sentence(2 + skewedLength(20)));
+                ps.setTimestamp(3, pastTime(365));
+                ps.setLong(4, users.next(random) + 1);
+                ps.setLong(5, parentId);
+                ps.setObject(6, replyId == 0 ? null : replyId);
+                lastReply[parentId] = i;
+                addBatch(connection, ps, i);
+            }
+            flush(connection, ps);
+        }
+    }
+
+    private void logs(Connection connection) throws SQLException {
+        String sql = "insert into cms_log (username, business_name, request_url, request_method, ip, source, "
+                + "params_json, result_json, spend_time, create_time) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        Zipf users = new Zipf(Math.min(options.users, 5), options.skew);
+        Zipf businesses = new Zipf(BUSINESS_NAMES.length, options.skew);
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            for (int i = 1; i <= options.logs; i++) {
+                ps.setString(1, username(users.next(random) + 1));
+                ps.setString(2, BUSINESS_NAMES[businesses.next(random)]);
+                ps.setString(3, "/auth/article");
+                ps.setString(4, random.nextBoolean() ? "POST" : "PUT");
+                ps.setString(5, "10.0." + random.nextInt(256) + "." + random.nextInt(256));
+                ps.setString(6, "本地");
+                ps.setString(7, "{\"id\":" + (random.nextInt(Math.max(1, options.articles)) + 1) + "}");
+                ps.setString(8, "{\"code\":200,\"message\":\"操作成功\"}");
+                /* 大部分请求很快，少数请求很慢 */
+                ps.setLong(9, (long) (5 / Math.pow(1 - random.nextDouble() * 0.999, 0.7)));
+                ps.setTimestamp(10, pastTime(90));
+                addBatch(connection, ps, i);
+            }
+            flush(connection, ps);
+        }
+    }
+
+    /**
+     * 测试用户的账号
+     * @param id 用户ID
+     * @return
+     */
+    static String username(long id) {
+        return "user" + id;
+    }
+
+    /**
+     * 第index个二级栏目（从0开始）的ID
+     * 第p个一级栏目的ID为(p-1)*(c+1)+1，其下的二级栏目紧随其后编号
+     * @param index 二级栏目的序号
+     * @param childCategories 每个一级栏目下的二级栏目数c
+     * @return
+     */
+    static int childCategoryId(int index, int childCategories) {
+        return index / childCategories * (childCategories + 1) + index % childCategories + 2;
+    }
+
+    /**
+     * 长度按幂律分布：大多数较短，少数很长
+     */
+    private int skewedLength(int max) {
+        return (int) (max * Math.pow(random.nextDouble(), 3));
+    }
+
+    private Timestamp pastTime(int days) {
+        return new Timestamp(now - (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(days)));
+    }
+
+    private String sentence(int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+
+    private String paragraph(int length) {
+        StringBuilder builder = new StringBuilder(length + 16);
+        while (builder.length() < length) {
+            builder.append(sentence(4 + random.nextInt(8))).append(random.nextInt(4) == 0 ? "。" : "，");
+        }
+        return builder.toString();
+    }
+
+    private static void addBatch(Connection connection, PreparedStatement ps, int count) throws SQLException {
+        ps.addBatch();
+        if (count % BATCH_SIZE == 0) {
+            flush(connection, ps);
+        }
+    }
+
+    private static void flush(Connection connection, PreparedStatement ps) throws SQLException {
+        ps.executeBatch();
+        connection.commit();
+    }
+
+}
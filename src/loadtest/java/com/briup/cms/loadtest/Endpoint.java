@@ -0,0 +1,47 @@
+package com.briup.cms.loadtest;
+
+/**
+ * 压测的接口
+ * @author YuYan
+ * @date 2024-01-26 11:02:35
+ */
+public enum Endpoint {
+
+    /**
+     * 分页查询资讯
+     */
+    ARTICLE("article", "GET", "/auth/article"),
+    /**
+     * 分页查询评论
+     */
+    COMMENT("comment", "GET", "/auth/comment"),
+    /**
+     * 查询栏目
+     */
+    CATEGORY("category", "GET", "/auth/category"),
+    /**
+     * 登录
+     */
+    LOGIN("login", "POST", "/login");
+
+    /* 在请求比例配置中使用的名称 */
+    final String label;
+    final String method;
+    final String path;
+
+    Endpoint(String label, String method, String path) {
+        this.label = label;
+        this.method = method;
+        this.path = path;
+    }
+
+    static Endpoint of(String label) {
+        for (Endpoint endpoint : values()) {
+            if (endpoint.label.equalsIgnoreCase(label)) {
+                return endpoint;
+            }
+        }
+        throw new IllegalArgumentException("未知的压测接口：" + label);
+    }
+
+}
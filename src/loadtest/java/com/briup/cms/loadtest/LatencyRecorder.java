@@ -0,0 +1,109 @@
+package com.briup.cms.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * 单个接口的延迟记录（每个压测线程各自持有，结束后合并，记录时不需要同步）
+ *
+ * 保存每次请求的原始耗时，合并后排序计算精确的分位数。
+ * @author YuYan
+ * @date 2024-01-26 10:47:06
+ */
+public class LatencyRecorder {
+
+    /* 每次请求的耗时（单位：纳秒） */
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+    /* 服务端返回了SQL语句数量的请求数，以及语句总数 */
+    private long sqlSamples;
+    private long sqlStatements;
+
+    /**
+     * 记录一次请求
+     * @param nanos 耗时（单位：纳秒）
+     * @param success 是否成功
+     * @param sqlCount 服务端执行的SQL语句数量（未知时为负数）
+     */
+    public void record(long nanos, boolean success, int sqlCount) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+        if (!success) {
+            errors++;
+        }
+        if (sqlCount >= 0) {
+            sqlSamples++;
+            sqlStatements += sqlCount;
+        }
+    }
+
+    public void reset() {
+        count = 0;
+        errors = 0;
+        sqlSamples = 0;
+        sqlStatements = 0;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long errors() {
+        return errors;
+    }
+
+    /**
+     * 平均每次请求执行的SQL语句数量
+     * @return 服务端没有返回语句数量时为-1
+     */
+    public double sqlPerRequest() {
+        return sqlSamples == 0 ? -1 : (double) sqlStatements / sqlSamples;
+    }
+
+    /**
+     * 合并多个线程的记录
+     * @param recorders
+     * @return 合并后的记录（已排序）
+     */
+    public static LatencyRecorder merge(Iterable<LatencyRecorder> recorders) {
+        LatencyRecorder merged = new LatencyRecorder();
+        int total = 0;
+        for (LatencyRecorder recorder : recorders) {
+            total += recorder.count;
+        }
+        merged.latencies = new long[Math.max(1, total)];
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.latencies, 0, merged.latencies, merged.count, recorder.count);
+            merged.count += recorder.count;
+            merged.errors += recorder.errors;
+            merged.sqlSamples += recorder.sqlSamples;
+            merged.sqlStatements += recorder.sqlStatements;
+        }
+        Arrays.sort(merged.latencies, 0, merged.count);
+        return merged;
+    }
+
+    /**
+     * 分位数（只能在合并后的记录上调用）
+     * @param quantile 0~1之间，例如0.99
+     * @return 单位：毫秒
+     */
+    public double percentile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * count) - 1;
+        return latencies[Math.max(0, Math.min(index, count - 1))] / 1_000_000.0;
+    }
+
+    /**
+     * 最大耗时（只能在合并后的记录上调用）
+     * @return 单位：毫秒
+     */
+    public double max() {
+        return count == 0 ? 0 : latencies[count - 1] / 1_000_000.0;
+    }
+
+}
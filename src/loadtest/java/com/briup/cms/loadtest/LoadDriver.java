@@ -0,0 +1,286 @@
+package com.briup.cms.loadtest;
+
+import com.briup.cms.common.util.GlobalConstants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 压测驱动
+ *
+ * 固定数量的线程按配置的比例随机选择接口并发送请求（闭环模型：收到响应后立即发送下一个请求），
+ * 请求参数同样按Zipf分布倾斜（大部分请求访问前几页、热门资讯的评论、活跃用户的登录）。
+ * 每个线程使用固定种子的随机数，相同的配置产生相同的请求序列。
+ * @author YuYan
+ * @date 2024-01-26 11:10:48
+ */
+public class LoadDriver {
+
+    /* 业务成功的响应状态码 */
+    private static final String SUCCESS_CODE = "\"code\":200";
+    /* 分页参数中页码的上限（Zipf采样的范围） */
+    private static final int MAX_PAGES = 1000;
+
+    private final LoadTestOptions options;
+    private final String baseUrl;
+
+    /* 按比例展开的接口表，随机取一个下标即可按比例选择接口 */
+    private final Endpoint[] schedule;
+    private final Zipf users;
+    private final Zipf articles;
+    private final Zipf articlePages;
+    private final Zipf commentPages;
+    private final Zipf categories;
+
+    /* 每次清空统计时加一，各线程发现变化后清空自己的记录 */
+    private final AtomicInteger generation = new AtomicInteger();
+    private volatile boolean running;
+
+    public LoadDriver(LoadTestOptions options, int port) {
+        this.options = options;
+        this.baseUrl = "http://127.0.0.1:" + port;
+        List<Endpoint> expanded = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : options.mix.entrySet()) {
+            Endpoint endpoint = Endpoint.of(entry.getKey());
+            for (int i = 0; i < entry.getValue(); i++) {
+                expanded.add(endpoint);
+            }
+        }
+        if (expanded.isEmpty()) {
+            throw new IllegalArgumentException("请求比例配置为空");
+        }
+        this.schedule = expanded.toArray(new Endpoint[0]);
+        this.users = new Zipf(options.users, options.skew);
+        this.articles = new Zipf(Math.max(1, options.articles), options.skew);
+        this.articlePages = new Zipf(pages(options.articles), options.skew);
+        this.commentPages = new Zipf(pages(options.comments), options.skew);
+        this.categories = new Zipf(options.categories * options.childCategories, options.skew);
+    }
+
+    /**
+     * 运行压测：预热结束后清空统计，再压测指定时长
+     * @return 接口 -> 合并后的延迟记录，以及实际压测的时长
+     */
+    public Measurement run() throws InterruptedException {
+        running = true;
+        List<Worker> workers = new ArrayList<>();
+        CountDownLatch ready = new CountDownLatch(options.threads);
+        for (int i = 0; i < options.threads; i++) {
+            Worker worker = new Worker(i, ready);
+            workers.add(worker);
+            worker.start();
+        }
+        /* 等待所有线程登录完成后再开始计时 */
+        ready.await();
+
+        TimeUnit.SECONDS.sleep(options.warmup);
+        generation.incrementAndGet();
+        long start = System.nanoTime();
+        TimeUnit.SECONDS.sleep(options.duration);
+        running = false;
+        for (Worker worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        Map<Endpoint, LatencyRecorder> merged = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            List<LatencyRecorder> recorders = new ArrayList<>();
+            for (Worker worker : workers) {
+                recorders.add(worker.recorders.get(endpoint));
+            }
+            merged.put(endpoint, LatencyRecorder.merge(recorders));
+        }
+        return new Measurement(merged, seconds);
+    }
+
+    /**
+     * 压测结果
+     */
+    public static class Measurement {
+        final Map<Endpoint, LatencyRecorder> latencies;
+        final double seconds;
+
+        Measurement(Map<Endpoint, LatencyRecorder> latencies, double seconds) {
+            this.latencies = latencies;
+            this.seconds = seconds;
+        }
+    }
+
+    /**
+     * 压测线程
+     */
+    private class Worker extends Thread {
+
+        private final Random random;
+        private final CountDownLatch ready;
+        private final Map<Endpoint, LatencyRecorder> recorders = new EnumMap<>(Endpoint.class);
+        private String token;
+        /* 最近一次响应头部中的SQL语句数量（没有该头部时为-1） */
+        private int sqlCount;
+
+        Worker(int index, CountDownLatch ready) {
+            super("cms-loadtest-" + index);
+            this.random = new Random(options.seed + index);
+            this.ready = ready;
+            for (Endpoint endpoint : Endpoint.values()) {
+                recorders.put(endpoint, new LatencyRecorder());
+            }
+        }
+
+        @Override
+        public void run() {
+            int localGeneration = generation.get();
+            try {
+                /* 每个线程以一个普通用户的身份访问需要登录的接口 */
+                token = login(DataGenerator.username(Math.min(options.users, 6 + random.nextInt(options.users))));
+            } catch (IOException e) {
+                e.printStackTrace();
+            } finally {
+                ready.countDown();
+            }
+            while (running) {
+                if (generation.get() != localGeneration) {
+                    localGeneration = generation.get();
+                    for (LatencyRecorder recorder : recorders.values()) {
+                        recorder.reset();
+                    }
+                }
+                Endpoint endpoint = schedule[random.nextInt(schedule.length)];
+                sqlCount = -1;
+                long start = System.nanoTime();
+                boolean success;
+                try {
+                    success = send(endpoint);
+                } catch (IOException e) {
+                    success = false;
+                }
+                recorders.get(endpoint).record(System.nanoTime() - start, success, sqlCount);
+            }
+        }
+
+        private boolean send(Endpoint endpoint) throws IOException {
+            switch (endpoint) {
+                case ARTICLE:
+                    return get(endpoint, articleQuery());
+                case COMMENT:
+                    return get(endpoint, commentQuery());
+                case CATEGORY:
+                    return get(endpoint, "cascadeChildren=" + random.nextBoolean());
+                case LOGIN:
+                    return login(DataGenerator.username(users.next(random) + 1)) != null;
+                default:
+                    throw new IllegalStateException(endpoint.name());
+            }
+        }
+
+        private String articleQuery() throws UnsupportedEncodingException {
+            StringBuilder query = new StringBuilder("page=true&pageSize=").append(options.pageSize)
+                    .append("&pageNum=").append(articlePages.next(random) + 1);
+            if (random.nextInt(10) < 3) {
+                query.append("&categoryId=").append(
+                        DataGenerator.childCategoryId(categories.next(random), options.childCategories));
+            }
+            if (random.nextBoolean()) {
+                query.append("&status=").append(URLEncoder.encode("审核通过", "UTF-8"));
+            }
+            return query.toString();
+        }
+
+        private String commentQuery() {
+            StringBuilder query = new StringBuilder("page=true&pageSize=").append(options.pageSize);
+            if (random.nextInt(10) < 7) {
+                /* 查看某篇热门资讯下的评论，大多只看第一页 */
+                query.append("&pageNum=").append(random.nextInt(10) < 8 ? 1 : 2 + random.nextInt(4))
+                        .append("&articleId=").append(articles.next(random) + 1);
+            } else {
+                query.append("&pageNum=").append(commentPages.next(random) + 1);
+            }
+            return query.toString();
+        }
+
+        private boolean get(Endpoint endpoint, String query) throws IOException {
+            HttpURLConnection connection = open(endpoint.path + "?" + query, endpoint.method);
+            return isSuccess(connection, read(connection));
+        }
+
+        private String login(String username) throws IOException {
+            HttpURLConnection connection = open(Endpoint.LOGIN.path, Endpoint.LOGIN.method);
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+            byte[] body = ("{\"username\":\"" + username + "\",\"password\":\"" + options.password + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            String response = read(connection);
+            if (!isSuccess(connection, response)) {
+                return null;
+            }
+            int start = response.indexOf("\"token\":\"");
+            if (start < 0) {
+                return null;
+            }
+            start += "\"token\":\"".length();
+            return response.substring(start, response.indexOf('"', start));
+        }
+
+        private HttpURLConnection open(String uri, String method) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + uri).openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(5000);
+            connection.setReadTimeout(30000);
+            if (token != null) {
+                connection.setRequestProperty(GlobalConstants.TOKEN_HEADER_NAME, token);
+            }
+            return connection;
+        }
+
+        /**
+         * 读完响应体（读完后连接才能被复用）
+         */
+        private String read(HttpURLConnection connection) throws IOException {
+            int status = connection.getResponseCode();
+            sqlCount = connection.getHeaderFieldInt(GlobalConstants.SQL_COUNT_HEADER_NAME, -1);
+            InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            if (in == null) {
+                return "";
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            try {
+                for (int n; (n = in.read(buffer)) != -1; ) {
+                    out.write(buffer, 0, n);
+                }
+            } finally {
+                in.close();
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        private boolean isSuccess(HttpURLConnection connection, String body) throws IOException {
+            return connection.getResponseCode() == 200 && body.contains(SUCCESS_CODE);
+        }
+
+    }
+
+    private int pages(int rows) {
+        return Math.max(1, Math.min(MAX_PAGES, rows / Math.max(1, options.pageSize)));
+    }
+
+}
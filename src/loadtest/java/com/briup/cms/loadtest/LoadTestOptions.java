@@ -0,0 +1,80 @@
+package com.briup.cms.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测参数（从系统属性loadtest.xxx读取，未设置时使用默认值）
+ * @author YuYan
+ * @date 2024-01-26 09:18:40
+ */
+public class LoadTestOptions {
+
+    /* 用户数 */
+    final int users = intValue("users", 2000);
+    /* 一级栏目数 */
+    final int categories = intValue("categories", 8);
+    /* 每个一级栏目下的二级栏目数 */
+    final int childCategories = Math.max(1, intValue("childCategories", 4));
+    /* 资讯数 */
+    final int articles = intValue("articles", 20000);
+    /* 一级评论数 */
+    final int comments = intValue("comments", 100000);
+    /* 二级评论数 */
+    final int subcomments = intValue("subcomments", 200000);
+    /* 审计日志数 */
+    final int logs = intValue("logs", 50000);
+    /* Zipf分布的指数 */
+    final double skew = doubleValue("skew", 1.1);
+    /* 并发线程数 */
+    final int threads = intValue("threads", 32);
+    /* 预热时长（秒） */
+    final int warmup = intValue("warmup", 30);
+    /* 压测时长（秒） */
+    final int duration = intValue("duration", 120);
+    /* 每页大小 */
+    final int pageSize = intValue("pageSize", 10);
+    /* 所有测试用户的密码 */
+    final String password = stringValue("password", "123456");
+    /* 密码的加密强度（固定强度，保证每次压测登录接口的开销相同） */
+    final int bcryptStrength = intValue("bcryptStrength", 10);
+    /* 随机数种子 */
+    final long seed = Long.parseLong(stringValue("seed", "20240126"));
+    /* 压测报告路径 */
+    final String report = stringValue("report", "target/loadtest-report.json");
+    /* 接口名称 -> 请求比例 */
+    final Map<String, Integer> mix = parseMix(stringValue("mix", "article:40,comment:30,category:20,login:10"));
+
+    private static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String item : value.split(",")) {
+            String[] pair = item.trim().split(":");
+            if (pair.length == 2 && Integer.parseInt(pair[1].trim()) > 0) {
+                mix.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+            }
+        }
+        return mix;
+    }
+
+    private static String stringValue(String name, String defaultValue) {
+        String value = System.getProperty("loadtest." + name);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    private static int intValue(String name, int defaultValue) {
+        return Integer.parseInt(stringValue(name, String.valueOf(defaultValue)));
+    }
+
+    private static double doubleValue(String name, double defaultValue) {
+        return Double.parseDouble(stringValue(name, String.valueOf(defaultValue)));
+    }
+
+    @Override
+    public String toString() {
+        return "users=" + users + ", categories=" + categories + "x" + childCategories
+                + ", articles=" + articles + ", comments=" + comments + ", subcomments=" + subcomments
+                + ", logs=" + logs + ", skew=" + skew + ", threads=" + threads
+                + ", warmup=" + warmup + "s, duration=" + duration + "s, mix=" + mix;
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.briup.cms.loadtest;
+
+import com.briup.cms.BriupCmsApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.fppt.jedismock.RedisServer;
+import org.h2.tools.RunScript;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 端到端压测入口
+ *
+ * 1）启动内存Redis（jedis-mock）和内存数据库（H2，MySQL兼容模式），创建表结构并生成测试数据
+ * 2）以随机端口启动应用，连接上面的数据库和Redis
+ * 3）按配置的比例并发请求各接口，预热后开始统计
+ * 4）输出每个接口的吞吐量、p50/p99/p999延迟和平均每次请求执行的SQL语句数量（取自响应头部X-Sql-Count），
+ *   并写入JSON报告
+ *
+ * 所有用户的密码相同，使用固定的加密强度加密（不在启动时校准），保证每次压测登录接口的开销一致。
+ * @author YuYan
+ * @date 2024-01-26 13:05:32
+ */
+public class LoadTestRunner {
+
+    private static final String JDBC_URL = "jdbc:h2:mem:briup_cms;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1";
+    private static final String SCHEMA = "loadtest/schema.sql";
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = new LoadTestOptions();
+        System.out.println("压测参数：" + options);
+
+        RedisServer redis = RedisServer.newRedisServer();
+        redis.start();
+        /* 持有一个连接，保证内存数据库在压测期间一直存在 */
+        try (Connection keeper = DriverManager.getConnection(JDBC_URL, "sa", "")) {
+            try (Reader schema = new InputStreamReader(
+                    LoadTestRunner.class.getClassLoader().getResourceAsStream(SCHEMA), StandardCharsets.UTF_8)) {
+                RunScript.execute(keeper, schema);
+            }
+            long start = System.currentTimeMillis();
+            new DataGenerator(options).generate(keeper,
+                    new BCryptPasswordEncoder(options.bcryptStrength).encode(options.password));
+            System.out.println("生成测试数据耗时：" + (System.currentTimeMillis() - start) + "ms");
+
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(BriupCmsApplication.class)
+                    .properties(properties(options, redis))
+                    .run(args);
+            try {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                System.out.println("应用已启动，端口：" + port + "，开始压测");
+                LoadDriver.Measurement measurement = new LoadDriver(options, port).run();
+                report(options, measurement);
+            } finally {
+                context.close();
+            }
+        } finally {
+            redis.stop();
+        }
+    }
+
+    private static Map<String, Object> properties(LoadTestOptions options, RedisServer redis) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.datasource.url", JDBC_URL);
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.redis.host", redis.getHost());
+        properties.put("spring.redis.port", redis.getBindPort());
+        properties.put("logging.level.root", "warn");
+        properties.put("briup.config.security-target-hash-millis", 0);
+        properties.put("briup.config.security-strength", options.bcryptStrength);
+        properties.put("briup.config.counter-journal-path", "target/loadtest/article-counter.journal");
+        /* 每次压测使用新生成的数据，全文索引只保存在内存中，启动时重建 */
+        properties.put("briup.config.search-index-path", "");
+        return properties;
+    }
+
+    private static void report(LoadTestOptions options, LoadDriver.Measurement measurement) throws Exception {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        long totalRequests = 0;
+        System.out.printf("%n%-10s %10s %8s %10s %10s %10s %10s %10s %8s%n",
+                "接口", "请求数", "错误数", "吞吐量/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "SQL/请求");
+        for (Map.Entry<Endpoint, LatencyRecorder> entry : measurement.latencies.entrySet()) {
+            Endpoint endpoint = entry.getKey();
+            LatencyRecorder latency = entry.getValue();
+            if (latency.count() == 0) {
+                continue;
+            }
+            totalRequests += latency.count();
+            double throughput = latency.count() / measurement.seconds;
+            double sql = latency.sqlPerRequest();
+            System.out.printf("%-10s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f %8.2f%n",
+                    endpoint.label, latency.count(), latency.errors(), throughput,
+                    latency.percentile(0.50), latency.percentile(0.99), latency.percentile(0.999),
+                    latency.max(), sql);
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requests", latency.count());
+            stats.put("errors", latency.errors());
+            stats.put("throughput", throughput);
+            stats.put("p50", latency.percentile(0.50));
+            stats.put("p99", latency.percentile(0.99));
+            stats.put("p999", latency.percentile(0.999));
+            stats.put("max", latency.max());
+            stats.put("sqlPerRequest", sql);
+            endpoints.put(endpoint.label, stats);
+        }
+        System.out.printf("总吞吐量：%.1f/s（%d个请求，%.1f秒）%n",
+                totalRequests / measurement.seconds, totalRequests, measurement.seconds);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.toString());
+        report.put("seconds", measurement.seconds);
+        report.put("throughput", totalRequests / measurement.seconds);
+        report.put("endpoints", endpoints);
+        File file = new File(options.report);
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, report);
+        System.out.println("压测报告：" + file.getAbsolutePath());
+    }
+
+}
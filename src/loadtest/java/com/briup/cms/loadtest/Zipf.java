@@ -0,0 +1,45 @@
+package com.briup.cms.loadtest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Zipf分布采样器
+ *
+ * 第k个元素（从0开始）被选中的概率与1/(k+1)^s成正比，
+ * 用来模拟“少数用户发布大部分资讯、少数热门资讯拥有大部分评论”的数据倾斜。
+ * 预先计算累积分布，采样时二分查找。
+ * @author YuYan
+ * @date 2024-01-26 09:31:12
+ */
+public class Zipf {
+
+    private final double[] cdf;
+
+    public Zipf(int size, double exponent) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        cdf = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cdf[i] /= sum;
+        }
+    }
+
+    /**
+     * 采样一个下标
+     * @param random 随机数生成器
+     * @return [0, size)
+     */
+    public int next(Random random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        index = index < 0 ? -index - 1 : index;
+        return Math.min(index, cdf.length - 1);
+    }
+
+}
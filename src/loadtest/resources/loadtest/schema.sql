@@ -0,0 +1,104 @@
+-- 压测使用的表结构（H2数据库，MySQL兼容模式）
+
+create table if not exists cms_role (
+    id          int auto_increment primary key,
+    name        varchar(32)  not null,
+    description varchar(255)
+);
+
+create table if not exists cms_user (
+    id            bigint primary key,
+    username      varchar(64)  not null,
+    password      varchar(128) not null,
+    avatar        varchar(255),
+    gender        varchar(8),
+    email         varchar(128),
+    phone         varchar(32),
+    register_time datetime,
+    status        varchar(16),
+    birthday      datetime,
+    role_id       int,
+    is_vip        int default 0,
+    expires_time  datetime,
+    deleted       int default 0
+);
+create unique index if not exists uk_user_username on cms_user (username);
+
+create table if not exists cms_category (
+    id          int auto_increment primary key,
+    name        varchar(64) not null,
+    description varchar(255),
+    order_num   int,
+    parent_id   int,
+    deleted     int default 0
+);
+create index if not exists idx_category_parent on cms_category (parent_id);
+
+create table if not exists cms_article (
+    id          bigint primary key,
+    title       varchar(255) not null,
+    content     text,
+    status      varchar(16),
+    read_num    int default 0,
+    like_num    int default 0,
+    dislike_num int default 0,
+    user_id     bigint,
+    category_id int,
+    charged     int default 0,
+    publish_time datetime,
+    deleted     int default 0
+);
+create index if not exists idx_article_publish on cms_article (publish_time, id);
+create index if not exists idx_article_category on cms_article (category_id);
+create index if not exists idx_article_user on cms_article (user_id);
+
+create table if not exists cms_comment (
+    id           bigint primary key,
+    content      varchar(1024),
+    publish_time datetime,
+    user_id      bigint,
+    article_id   bigint,
+    deleted      int default 0
+);
+create index if not exists idx_comment_article on cms_comment (article_id, publish_time);
+create index if not exists idx_comment_publish on cms_comment (publish_time, id);
+
+create table if not exists cms_subcomment (
+    id           bigint primary key,
+    content      varchar(1024),
+    publish_time datetime,
+    user_id      bigint,
+    parent_id    bigint,
+    reply_id     bigint,
+    deleted      int default 0
+);
+create index if not exists idx_subcomment_parent on cms_subcomment (parent_id, publish_time);
+
+create table if not exists cms_log (
+    id             bigint auto_increment primary key,
+    username       varchar(64),
+    business_name  varchar(128),
+    request_url    varchar(255),
+    request_method varchar(16),
+    ip             varchar(64),
+    source         varchar(128),
+    params_json    text,
+    result_json    text,
+    spend_time     bigint,
+    create_time    datetime
+);
+create index if not exists idx_log_create on cms_log (create_time);
+
+create table if not exists cms_slideshow (
+    id          int auto_increment primary key,
+    description varchar(255),
+    url         varchar(255),
+    status      varchar(16),
+    deleted     int default 0,
+    upload_time datetime
+);
+
+insert into cms_role (id, name, description) values
+    (1, '超级管理员', '拥有全部权限'),
+    (2, '管理员', '管理用户和资讯'),
+    (3, '普通用户', '发布资讯和评论');
@@ -0,0 +1,137 @@
+package com.briup.cms.common.cache;
+
+import com.briup.cms.common.config.ConfigProperties;
+import com.briup.cms.common.util.JsonUtil;
+import com.briup.cms.common.util.RedisUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存注册中心
+ *
+ * 负责创建并管理所有的两级缓存，
+ * 通过Redis Pub/Sub在节点之间广播失效通知，汇总各个缓存的统计指标。
+ * @author YuYan
+ * @date 2024-01-18 10:42:13
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheRegistry {
+
+    /**
+     * 消息字段分隔符
+     */
+    private static final String SEPARATOR = "|";
+
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
+    /**
+     * Redis工具
+     */
+    private final RedisUtil redisUtil;
+    /**
+     * JSON工具
+     */
+    private final JsonUtil jsonUtil;
+
+    /**
+     * 当前节点的唯一标识，用于忽略自己发出的失效通知
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * 所有已创建的缓存
+     */
+    private final Map<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+    /**
+     * 自行管理数据的缓存（例如整表快照）注册的变更监听器
+     */
+    private final Map<String, List<Runnable>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * 创建（或获取已存在的）两级缓存
+     * @param name 缓存名称
+     * @param maxSize 进程内缓存最大数量
+     * @param ttlSeconds 缓存存活时间（单位：秒）
+     * @return
+     */
+    public TwoTierCache create(String name, int maxSize, long ttlSeconds) {
+        return caches.computeIfAbsent(name, n -> new TwoTierCache(n, maxSize,
+                TimeUnit.SECONDS.toMillis(ttlSeconds),
+                TimeUnit.SECONDS.toMillis(ttlSeconds),
+                configProperties.isCacheRedisEnabled() ? redisUtil : null,
+                jsonUtil,
+                this::publish));
+    }
+
+    /**
+     * 注册变更监听器，其他节点调用notifyChanged通知同名数据发生变化时执行
+     * @param name 数据名称
+     * @param listener 监听器（一般是重新加载数据）
+     */
+    public void addListener(String name, Runnable listener) {
+        listeners.computeIfAbsent(name, n -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * 通知其他节点某项数据已经发生变化
+     * @param name 数据名称
+     */
+    public void notifyChanged(String name) {
+        publish(name, null);
+    }
+
+    /**
+     * 所有缓存的统计指标
+     * @return
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        caches.forEach((name, cache) -> stats.put(name, cache.stats()));
+        return stats;
+    }
+
+    /**
+     * 处理其他节点发来的失效通知
+     * 消息格式：节点ID|缓存名称|缓存键（缓存键为空表示整体失效）
+     * @param message
+     */
+    public void onMessage(String message) {
+        String[] parts = message.split("\\" + SEPARATOR, 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TwoTierCache cache = caches.get(parts[1]);
+        if (cache != null) {
+            cache.onRemoteInvalidation(parts[2].isEmpty() ? null : parts[2]);
+        }
+        List<Runnable> changeListeners = listeners.get(parts[1]);
+        if (changeListeners != null) {
+            changeListeners.forEach(Runnable::run);
+        }
+    }
+
+    private void publish(String cacheName, String key) {
+        if (!configProperties.isCacheRedisEnabled()) {
+            return;
+        }
+        try {
+            redisUtil.publish(configProperties.getCacheInvalidationChannel(),
+                    nodeId + SEPARATOR + cacheName + SEPARATOR + (key == null ? "" : key));
+        } catch (Exception e) {
+            /* 通知发送失败时，其他节点的进程内缓存最多在存活时间到期后失效 */
+            e.printStackTrace();
+        }
+    }
+
+}
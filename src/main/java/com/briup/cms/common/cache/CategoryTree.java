@@ -0,0 +1,158 @@
+package com.briup.cms.common.cache;
+
+import com.briup.cms.common.model.entity.Category;
+import com.briup.cms.common.model.ext.CategoryExt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 栏目树快照（不可变）
+ *
+ * 一次性持有整张栏目表，按ID和名称建立索引，一级栏目下挂载各自的二级栏目。
+ * 快照创建后不再修改，栏目数据变化时整体重建新的快照再替换引用（写时复制），
+ * 所以读取时无需加锁。对外返回的都是新创建的对象，调用者修改它们不会影响快照。
+ * @author YuYan
+ * @date 2024-01-20 10:12:36
+ */
+public final class CategoryTree {
+
+    public static final CategoryTree EMPTY = of(Collections.emptyList());
+
+    /**
+     * ID -> 栏目（按数据库返回的顺序）
+     */
+    private final Map<Integer, Category> byId;
+    /**
+     * 名称 -> 栏目
+     */
+    private final Map<String, Category> byName;
+    /**
+     * 一级栏目ID -> 该栏目下的所有二级栏目
+     */
+    private final Map<Integer, List<Category>> children;
+
+    private CategoryTree(Map<Integer, Category> byId,
+                         Map<String, Category> byName,
+                         Map<Integer, List<Category>> children) {
+        this.byId = byId;
+        this.byName = byName;
+        this.children = children;
+    }
+
+    /**
+     * 根据栏目表的全部数据构建快照
+     * @param categories 所有未删除的栏目
+     * @return
+     */
+    public static CategoryTree of(List<Category> categories) {
+        Map<Integer, Category> byId = new LinkedHashMap<>();
+        Map<String, Category> byName = new HashMap<>();
+        Map<Integer, List<Category>> children = new HashMap<>();
+        for (Category source : categories) {
+            /* 复制一份，避免外部持有的对象被修改后影响快照 */
+            Category category = copy(source);
+            byId.put(category.getId(), category);
+            if (category.getName() != null) {
+                byName.put(category.getName(), category);
+            }
+            if (category.getParentId() != null) {
+                children.computeIfAbsent(category.getParentId(), id -> new ArrayList<>())
+                        .add(category);
+            }
+        }
+        return new CategoryTree(Collections.unmodifiableMap(byId),
+                Collections.unmodifiableMap(byName),
+                Collections.unmodifiableMap(children));
+    }
+
+    /**
+     * 根据ID查询栏目
+     * @param id 栏目ID
+     * @param cascadeChildren 是否要包含二级栏目
+     * @return 不存在时返回null
+     */
+    public CategoryExt get(Integer id, boolean cascadeChildren) {
+        Category category = byId.get(id);
+        return category == null ? null : toExt(category, cascadeChildren);
+    }
+
+    /**
+     * 根据名称查询栏目ID
+     * @param name 栏目名称
+     * @return 不存在时返回null
+     */
+    public Integer findIdByName(String name) {
+        Category category = name == null ? null : byName.get(name);
+        return category == null ? null : category.getId();
+    }
+
+    /**
+     * 根据特定的模式查询栏目信息
+     * @param type 查询类型
+     *             "parent"-查询一级栏目
+     *             "child"-查询二级栏目
+     *             其他-查询全部栏目
+     * @param cascadeChildren 是否要包含二级栏目
+     * @return
+     */
+    public List<CategoryExt> list(String type, boolean cascadeChildren) {
+        boolean parentOnly = "parent".equals(type);
+        boolean childOnly = "child".equals(type);
+        List<CategoryExt> categoryExts = new ArrayList<>(byId.size());
+        for (Category category : byId.values()) {
+            boolean isParent = category.getParentId() == null;
+            if ((parentOnly && !isParent) || (childOnly && isParent)) {
+                continue;
+            }
+            categoryExts.add(toExt(category, cascadeChildren));
+        }
+        return categoryExts;
+    }
+
+    /**
+     * 栏目总数
+     * @return
+     */
+    public int size() {
+        return byId.size();
+    }
+
+    private CategoryExt toExt(Category category, boolean cascadeChildren) {
+        CategoryExt categoryExt = CategoryExt.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .description(category.getDescription())
+                .orderNum(category.getOrderNum())
+                .parentId(category.getParentId())
+                .deleted(category.getDeleted())
+                .build();
+        /* 只有一级栏目包含二级栏目 */
+        if (cascadeChildren && category.getParentId() == null) {
+            List<Category> subCategories = children.getOrDefault(
+                    category.getId(), Collections.emptyList());
+            List<CategoryExt> subCategoryExts = new ArrayList<>(subCategories.size());
+            for (Category subCategory : subCategories) {
+                subCategoryExts.add(toExt(subCategory, false));
+            }
+            categoryExt.setChildren(subCategoryExts);
+        }
+        return categoryExt;
+    }
+
+    private static Category copy(Category category) {
+        return Category.builder()
+                .id(category.getId())
+                .name(category.getName())
+                .description(category.getDescription())
+                .orderNum(category.getOrderNum())
+                .parentId(category.getParentId())
+                .deleted(category.getDeleted())
+                .build();
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.briup.cms.common.cache;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.briup.cms.common.util.CursorPage;
+import com.briup.cms.common.util.PageUtil;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 分页查询结果快照（用于缓存分页查询结果）
+ *
+ * 只保存数据清单、总数和游标分页的下一页游标，
+ * 命中缓存时再结合本次请求的分页参数还原出分页对象。
+ * @author YuYan
+ * @date 2024-01-18 14:26:50
+ */
+@Data
+@NoArgsConstructor
+public class PageSnapshot<T> {
+
+    private List<T> records;
+    private long total;
+    private String next;
+
+    public static <T> PageSnapshot<T> of(IPage<T> page) {
+        PageSnapshot<T> snapshot = new PageSnapshot<>();
+        snapshot.setRecords(page.getRecords());
+        snapshot.setTotal(page.getTotal());
+        if (page instanceof CursorPage) {
+            snapshot.setNext(((CursorPage<T>) page).getNext());
+        }
+        return snapshot;
+    }
+
+    /**
+     * 结合本次请求的分页参数还原分页对象
+     * @param page 本次请求的分页对象
+     * @return
+     */
+    public IPage<T> restore(IPage<?> page) {
+        IPage<T> target = page instanceof CursorPage
+                ? new CursorPage<>() : new Page<>();
+        PageUtil.copyMeta(page, target);
+        target.setRecords(records);
+        target.setTotal(total);
+        if (target instanceof CursorPage) {
+            ((CursorPage<T>) target).setNext(next);
+        }
+        return target;
+    }
+
+}
@@ -0,0 +1,374 @@
+package com.briup.cms.common.cache;
+
+import com.briup.cms.common.util.JsonUtil;
+import com.briup.cms.common.util.RedisUtil;
+import com.fasterxml.jackson.core.type.TypeReference;
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 两级读穿透缓存
+ *
+ * 第一级：进程内缓存，按访问顺序淘汰（LRU），同时受最大数量和存活时间限制；
+ * 第二级：Redis缓存，数据以JSON字符串形式保存，多个节点共享。
+ * 读取顺序为 进程内 -> Redis -> 数据库（loader），读到后逐级回填。
+ *
+ * 整体失效（例如列表缓存）通过"代数"实现：Redis中的键都带有当前代数，
+ * 整体失效时代数加一，旧的键不再被访问，等待过期即可，不需要扫描删除。
+ *
+ * 单个键失效时会留下一个短期的"墓碑"（失效时间），开始时间早于墓碑的加载结果不会回填，
+ * 避免加载期间数据被修改、失效之后旧值又被写回缓存；加载耗时超过墓碑保留时间的结果也不回填。
+ *
+ * 注意：进程内缓存直接保存对象引用，调用方拿到的对象只能读取，不能修改。
+ * @author YuYan
+ * @date 2024-01-18 10:05:47
+ */
+public class TwoTierCache {
+
+    /**
+     * 墓碑保留时间（单位：纳秒）
+     */
+    private static final long TOMBSTONE_TTL = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * 缓存名称
+     */
+    @Getter
+    private final String name;
+    /**
+     * 进程内缓存最大数量
+     */
+    private final int maxSize;
+    /**
+     * 进程内缓存存活时间（单位：毫秒）
+     */
+    private final long localTtl;
+    /**
+     * Redis缓存存活时间（单位：毫秒）
+     */
+    private final long redisTtl;
+    /**
+     * Redis工具（为空表示只使用进程内缓存）
+     */
+    private final RedisUtil redisUtil;
+    /**
+     * JSON工具
+     */
+    private final JsonUtil jsonUtil;
+    /**
+     * 发送失效通知的回调（参数为缓存名称、键，键为空表示整体失效）
+     */
+    private final InvalidationPublisher publisher;
+
+    /**
+     * 进程内缓存，accessOrder=true时LinkedHashMap按访问顺序排列，超出数量时淘汰最久未访问的数据
+     */
+    private final Map<String, Entry> local;
+    /**
+     * 单个键的失效时间（System.nanoTime），按失效顺序排列，与local使用同一把锁
+     */
+    private final LinkedHashMap<String, Long> tombstones = new LinkedHashMap<>();
+
+    /**
+     * 当前代数
+     */
+    private volatile long generation;
+
+    /* 统计指标 */
+    private final AtomicLong localHits = new AtomicLong();
+    private final AtomicLong redisHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * 失效通知发布者
+     */
+    public interface InvalidationPublisher {
+        void publish(String cacheName, String key);
+    }
+
+    TwoTierCache(String name, int maxSize, long localTtl, long redisTtl,
+                 RedisUtil redisUtil, JsonUtil jsonUtil,
+                 InvalidationPublisher publisher) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.localTtl = localTtl;
+        this.redisTtl = redisTtl;
+        this.redisUtil = redisUtil;
+        this.jsonUtil = jsonUtil;
+        this.publisher = publisher;
+        this.local = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                boolean evict = size() > TwoTierCache.this.maxSize;
+                if (evict) {
+                    evictions.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+        this.generation = readGeneration();
+    }
+
+    /**
+     * 读取缓存，缓存中不存在时调用loader加载并回填
+     * @param key 缓存键
+     * @param type 数据类型（用于从Redis中的JSON还原对象）
+     * @param loader 加载数据的方法
+     * @param <T> 数据类型
+     * @return 加载结果为null时不会缓存
+     */
+    public <T> T get(String key, TypeReference<T> type, Supplier<T> loader) {
+        long gen = generation;
+        long start = System.nanoTime();
+        /* 第一级：进程内缓存 */
+        T value = getLocal(key);
+        if (value != null) {
+            localHits.incrementAndGet();
+            return value;
+        }
+        /* 第二级：Redis缓存 */
+        String redisKey = redisKey(gen, key);
+        String json = redisGet(redisKey);
+        if (json != null) {
+            value = jsonUtil.parse(json, type);
+            if (value != null) {
+                redisHits.incrementAndGet();
+                putLocal(gen, key, value, start);
+                return value;
+            }
+        }
+        /* 都没有命中，从数据源加载 */
+        misses.incrementAndGet();
+        value = loader.get();
+        if (value != null && putLocal(gen, key, value, start)) {
+            redisSet(redisKey, jsonUtil.stringify(value));
+            /* 写入Redis与并发的失效操作之间没有锁，写入后再检查一次，期间失效过则删除刚写入的旧值 */
+            if (invalidatedSince(key, start)) {
+                evictLocal(key);
+                redisDelete(redisKey);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 使某个键失效（本节点 + Redis + 通知其他节点）
+     * @param key
+     */
+    public void invalidate(String key) {
+        invalidations.incrementAndGet();
+        evictLocal(key);
+        redisDelete(redisKey(generation, key));
+        publisher.publish(name, key);
+    }
+
+    /**
+     * 使整个缓存失效（本节点 + Redis代数加一 + 通知其他节点）
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        if (redisUtil != null) {
+            try {
+                Long gen = redisUtil.increment(generationKey());
+                if (gen != null) {
+                    generation = gen;
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        } else {
+            /* 只使用进程内缓存时在本地增加代数，正在加载的旧数据按旧代数回填，读取时会被丢弃 */
+            synchronized (local) {
+                generation++;
+            }
+        }
+        clearLocal();
+        publisher.publish(name, null);
+    }
+
+    /**
+     * 收到其他节点的失效通知时，只清除本节点的进程内缓存
+     * @param key 为空表示整体失效
+     */
+    void onRemoteInvalidation(String key) {
+        if (key == null) {
+            generation = readGeneration();
+            clearLocal();
+        } else {
+            evictLocal(key);
+        }
+    }
+
+    /**
+     * 统计指标
+     * @return
+     */
+    public Map<String, Object> stats() {
+        long localHit = localHits.get();
+        long redisHit = redisHits.get();
+        long miss = misses.get();
+        long total = localHit + redisHit + miss;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", localSize());
+        stats.put("maxSize", maxSize);
+        stats.put("generation", generation);
+        stats.put("localHits", localHit);
+        stats.put("redisHits", redisHit);
+        stats.put("misses", miss);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) (localHit + redisHit) / total);
+        stats.put("evictions", evictions.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T getLocal(String key) {
+        synchronized (local) {
+            Entry entry = local.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.generation != generation || entry.expireAt < System.currentTimeMillis()) {
+                local.remove(key);
+                return null;
+            }
+            return (T) entry.value;
+        }
+    }
+
+    /**
+     * 回填进程内缓存
+     * @param start 开始读取的时间（System.nanoTime），之后该键失效过或者加载太久时不回填
+     * @return 是否回填
+     */
+    private boolean putLocal(long gen, String key, Object value, long start) {
+        synchronized (local) {
+            if (invalidatedSince(key, start)) {
+                return false;
+            }
+            local.put(key, new Entry(value, gen, System.currentTimeMillis() + localTtl));
+            return true;
+        }
+    }
+
+    private boolean invalidatedSince(String key, long start) {
+        synchronized (local) {
+            long now = System.nanoTime();
+            if (now - start >= TOMBSTONE_TTL) {
+                return true;
+            }
+            Long invalidatedAt = tombstones.get(key);
+            return invalidatedAt != null && invalidatedAt - start >= 0;
+        }
+    }
+
+    /**
+     * 清除某个键并留下墓碑（本节点失效和收到其他节点的失效通知时都会调用）
+     * @param key
+     */
+    private void evictLocal(String key) {
+        synchronized (local) {
+            local.remove(key);
+            long now = System.nanoTime();
+            /* 先删除再放入，保持按失效时间排列，从头部清理过期的墓碑 */
+            tombstones.remove(key);
+            tombstones.put(key, now);
+            Iterator<Long> iterator = tombstones.values().iterator();
+            while (iterator.hasNext() && now - iterator.next() >= TOMBSTONE_TTL) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void clearLocal() {
+        synchronized (local) {
+            local.clear();
+        }
+    }
+
+    private int localSize() {
+        synchronized (local) {
+            return local.size();
+        }
+    }
+
+    private String redisGet(String redisKey) {
+        if (redisUtil == null) {
+            return null;
+        }
+        try {
+            Object value = redisUtil.get(redisKey);
+            return value instanceof String ? (String) value : null;
+        } catch (Exception e) {
+            /* Redis不可用时降级为只使用进程内缓存 */
+            return null;
+        }
+    }
+
+    private void redisDelete(String redisKey) {
+        if (redisUtil == null) {
+            return;
+        }
+        try {
+            redisUtil.delete(redisKey);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void redisSet(String redisKey, String json) {
+        if (redisUtil == null || json == null) {
+            return;
+        }
+        try {
+            redisUtil.set(redisKey, json, redisTtl, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            /* Redis不可用时降级为只使用进程内缓存 */
+        }
+    }
+
+    private long readGeneration() {
+        if (redisUtil == null) {
+            return generation;
+        }
+        try {
+            /* INCRBY 0 直接返回计数器的当前值，不需要经过值序列化器 */
+            Long value = redisUtil.increment(generationKey(), 0);
+            return value == null ? 0 : value;
+        } catch (Exception e) {
+            return generation;
+        }
+    }
+
+    private String generationKey() {
+        return "cms:cache:" + name + ":generation";
+    }
+
+    private String redisKey(long gen, String key) {
+        return "cms:cache:" + name + ":" + gen + ":" + key;
+    }
+
+    /**
+     * 进程内缓存条目
+     */
+    private static class Entry {
+        private final Object value;
+        private final long generation;
+        private final long expireAt;
+
+        private Entry(Object value, long generation, long expireAt) {
+            this.value = value;
+            this.generation = generation;
+            this.expireAt = expireAt;
+        }
+    }
+
+}
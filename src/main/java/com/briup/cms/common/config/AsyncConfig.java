@@ -0,0 +1,28 @@
+package com.briup.cms.common.config;
+
+import com.briup.cms.common.util.RequestInfoHolder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * 异步任务配置类
+ *
+ * SpringBoot自动配置的任务线程池（@Async方法默认使用）会使用容器中的TaskDecorator包装每个任务，
+ * 任务执行期间可以读到提交任务的请求线程的上下文（当前用户、请求URL等），执行完后自动恢复，不会残留在线程池的线程中。
+ * @author YuYan
+ * @date 2024-01-23 16:40:52
+ */
+@Configuration
+public class AsyncConfig {
+
+    /**
+     * 传递请求上下文的任务装饰器Bean
+     * @return
+     */
+    @Bean
+    public TaskDecorator requestInfoTaskDecorator() {
+        return RequestInfoHolder::wrap;
+    }
+
+}
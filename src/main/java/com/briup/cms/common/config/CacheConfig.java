@@ -0,0 +1,49 @@
+package com.briup.cms.common.config;
+
+import com.briup.cms.common.cache.CacheRegistry;
+import com.briup.cms.common.util.RedisUtil;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 缓存配置类
+ *
+ * 订阅缓存失效通知频道，把其他节点发来的失效通知转交给缓存注册中心处理
+ * @author YuYan
+ * @date 2024-01-18 11:03:26
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "briup.config", name = "cache-redis-enabled",
+        havingValue = "true", matchIfMissing = true)
+public class CacheConfig {
+
+    /**
+     * Redis消息监听容器Bean
+     * @param connectionFactory Redis连接工厂
+     * @param cacheRegistry 缓存注册中心
+     * @param redisUtil Redis工具
+     * @param configProperties 自定义配置对象
+     * @return
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            CacheRegistry cacheRegistry,
+            RedisUtil redisUtil,
+            ConfigProperties configProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            Object body = redisUtil.deserialize(message.getBody());
+            if (body instanceof String) {
+                cacheRegistry.onMessage((String) body);
+            }
+        }, new ChannelTopic(configProperties.getCacheInvalidationChannel()));
+        return container;
+    }
+
+}
@@ -6,6 +6,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.http.HttpMethod;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -31,10 +33,20 @@ public class ConfigProperties {
     private String ossDefaultFileName = "noname.jpg";
 
     /* 加密相关配置 */
-    /* 加密强度 */
+    /* 加密强度（所有节点共享的下限：校准结果不会低于它，密文强度低于它时在登录成功后重新加密） */
     private int securityStrength = 6;
     /* 干扰因子（使用随机UUID生成） */
     private String securitySecret = UUID.randomUUID().toString();
+    /* 启动时校准加密强度的目标耗时（单位：毫秒，小于等于0表示不校准，直接使用加密强度配置） */
+    private long securityTargetHashMillis = 100;
+    /* 校准时允许的最大加密强度 */
+    private int securityMaxStrength = 14;
+    /* 执行加密计算的线程数（小于等于0表示使用CPU核数） */
+    private int securityHashThreads = 0;
+    /* 等待执行的加密计算的最大数量（队列已满时直接拒绝） */
+    private int securityHashQueueCapacity = 64;
+    /* 等待加密计算结果的最长时间（单位：毫秒） */
+    private long securityHashTimeout = 3000;
 
     /* 跨域配置 */
     /* 允许跨域访问的资源 */
@@ -63,11 +75,14 @@ public class ConfigProperties {
     private String[] authExcludePathPatterns = {
             "/login",
             "/logout",
+            "/refresh",
             "/upload",
             "/auth/category/**",
             "/auth/log/**",
             "/slideshow/**"
     };
+    /* 各角色拥有的权限（键为角色名称或角色ID，值为权限名称，“*”表示全部权限；未配置的角色没有任何权限） */
+    private Map<String, String[]> permissionGrants = new LinkedHashMap<>();
 
     /* 导出、下载相关配置 */
     /* 导出Excel使用的编码格式 */
@@ -78,12 +93,134 @@ public class ConfigProperties {
     private String excelExportContentType = "application/octet-stream;charset=UTF-8";
     /* 导出Excel时使用的Content-Disposition头部字段值 */
     private String excelExportContentDisposition = "attachment;filename=%s";
+    /* 导出Excel时每批写入工作表的行数 */
+    private int excelExportChunkSize = 1000;
+    /* 导出Excel时每个工作表最多写入的数据行数（XLSX单个工作表最多1048576行，含表头） */
+    private int excelExportMaxRowsPerSheet = 1048575;
+    /* 导入Excel时每个JDBC批次包含的插入语句数量 */
+    private int excelImportBatchSize = 500;
+    /* 导入Excel时每个事务包含的行数 */
+    private int excelImportChunkSize = 5000;
+    /* 导入Excel时最多记录的错误行数 */
+    private int excelImportMaxErrors = 1000;
+
+    /* 审计日志异步写入配置 */
+    /* 日志缓冲队列容量（条） */
+    private int logBufferCapacity = 8192;
+    /* 每批写入数据库的最大日志条数 */
+    private int logBatchSize = 200;
+    /* 定时刷写间隔（单位：毫秒），未攒满一批时最多等待这么久也会写入 */
+    private long logFlushInterval = 1000;
+    /* 缓冲队列已满时的处理策略：DROP_NEWEST-丢弃新日志、DROP_OLDEST-丢弃最旧日志、BLOCK-限时等待 */
+    private String logOverflowPolicy = "DROP_NEWEST";
+    /* BLOCK策略下请求线程最多等待的时长（单位：毫秒） */
+    private long logOfferTimeout = 50;
+    /* 应用关闭时等待缓冲日志写完的最长时间（单位：毫秒） */
+    private long logShutdownTimeout = 10000;
+
+    /* 缓存配置 */
+    /* 是否启用Redis二级缓存及跨节点失效通知（关闭后只使用进程内缓存） */
+    private boolean cacheRedisEnabled = true;
+    /* 缓存失效通知使用的Redis频道 */
+    private String cacheInvalidationChannel = "cms:cache:invalidation";
+    /* 资讯详情缓存的最大数量 */
+    private int articleDetailCacheSize = 1000;
+    /* 资讯详情缓存的存活时间（单位：秒） */
+    private long articleDetailCacheTtl = 600;
+    /* 资讯列表缓存的最大数量 */
+    private int articleListCacheSize = 200;
+    /* 资讯列表缓存的存活时间（单位：秒） */
+    private long articleListCacheTtl = 60;
+
+    /* 资讯计数（阅读量、点赞量、点踩量）配置 */
+    /* 计数增量批量写入数据库的间隔（单位：毫秒） */
+    private long counterFlushInterval = 5000;
+    /* 计数增量日志文件路径（用于应用崩溃后恢复未写入数据库的增量，实际文件名后加段号，为空表示不记录） */
+    private String counterJournalPath = "data/article-counter.journal";
+    /* 计数增量合并写入日志文件的间隔（单位：毫秒，进程崩溃时最多丢失这段时间内的计数，小于等于0表示只在刷写时记录） */
+    private long counterJournalInterval = 200;
+
+    /* 全文检索配置 */
+    /* 是否使用全文索引检索资讯和评论（关闭或索引尚未就绪时使用数据库模糊查询） */
+    private boolean searchEnabled = true;
+    /* 索引段文件所在目录（为空表示只保存在内存中，每次启动都从数据库重建） */
+    private String searchIndexPath = "data/search";
+    /* 变更记录达到多少条时合并为新的快照 */
+    private int searchCompactThreshold = 10000;
+    /* 从数据库重建索引时每批读取的记录数 */
+    private int searchRebuildBatchSize = 1000;
+
+    /* 登录限流配置 */
+    /* 是否开启登录限流 */
+    private boolean loginThrottleEnabled = true;
+    /* 是否把失败计数保存在Redis中（多个节点共用计数） */
+    private boolean loginThrottleRedisEnabled = false;
+    /* 统计失败次数的滑动窗口长度（单位：秒） */
+    private long loginThrottleWindow = 900;
+    /* 同一账号在窗口内失败多少次后开始锁定 */
+    private int loginThrottleUsernameThreshold = 5;
+    /* 同一IP在窗口内失败多少次后开始锁定 */
+    private int loginThrottleIpThreshold = 20;
+    /* 基础锁定时长，之后每多失败一次翻一倍（单位：秒） */
+    private long loginThrottleBaseLockout = 30;
+    /* 最大锁定时长（单位：秒） */
+    private long loginThrottleMaxLockout = 900;
+    /* 本地计数的最大数量（达到上限时清除已经滑出窗口的计数，仍然是满的则淘汰最后一次失败最早的计数） */
+    private int loginThrottleMaxEntries = 100000;
+
+    /* Token配置 */
+    /* 访问令牌的有效时长（单位：秒） */
+    private long jwtAccessTokenExpire = 900;
+    /* 刷新令牌的有效时长（单位：秒，从登录开始计算，刷新不会延长） */
+    private long jwtRefreshTokenExpire = 604800;
+    /* 已校验Token载荷的最大缓存数量（小于等于0表示不缓存） */
+    private int jwtClaimsCacheSize = 10000;
+    /* Token吊销通知使用的Redis频道 */
+    private String tokenRevocationChannel = "cms:token:revocation";
+    /* Token吊销名单本地布隆过滤器的预计容量（有效期内的登出次数） */
+    private int tokenRevocationExpectedInsertions = 100000;
+    /* Token吊销名单本地布隆过滤器的误判率 */
+    private double tokenRevocationFalsePositiveRate = 0.001;
+    /* 从Redis重建Token吊销名单本地过滤器的间隔（单位：毫秒） */
+    private long tokenRevocationSyncInterval = 30000;
+
+    /* SQL统计配置 */
+    /* 单次请求最多执行的SQL语句数量（超过时按sqlLimitAction处理，小于等于0表示不限制） */
+    private int sqlStatementLimit = 50;
+    /* 超过语句数量上限时的处理方式：LOG-记录警告日志、FAIL-拒绝执行后续语句，请求失败（用于测试环境） */
+    private String sqlLimitAction = "LOG";
+    /* 同一请求中相同的语句重复执行多少次视为N+1查询（小于等于0表示不检测） */
+    private int sqlRepeatThreshold = 5;
+    /* 慢SQL阈值，执行时间超过该值的语句连同参数记录到警告日志（单位：毫秒，小于等于0表示不记录） */
+    private long sqlSlowThreshold = 200;
+    /* 记录慢SQL时每个参数值最多保留的字符数 */
+    private int sqlSlowParamMaxLength = 200;
 
     /* 其他配置 */
     /* 默认时间格式（解析请求参数时使用） */
     private String defaultDatePattern = "yyyy-MM-dd HH:mm:ss";
+    /* 解析请求参数时还允许的其他时间格式（默认格式无法解析时按顺序尝试，全部是数字的参数按毫秒时间戳解析） */
+    private String[] alternativeDatePatterns = {
+            "yyyy-MM-dd'T'HH:mm:ss",
+            "yyyy-MM-dd HH:mm",
+            "yyyy-MM-dd",
+            "yyyy/MM/dd HH:mm:ss",
+            "yyyy/MM/dd"
+    };
     /* IP查询服务地址 */
     private String ipQueryServerHost = "http://whois.pconline.com.cn/ipJson.jsp";
 
+    /* IP归属地解析配置 */
+    /* 本地IP数据库文件路径（每行格式：起始IP,结束IP,归属地） */
+    private String ipDatabasePath = "data/ip-range.csv";
+    /* 检查数据文件是否修改并重新加载的间隔（单位：秒，小于等于0表示不自动重新加载） */
+    private long ipDatabaseReloadInterval = 60;
+    /* 本地数据库查不到时，是否异步调用远程IP查询服务兜底 */
+    private boolean ipRemoteFallbackEnabled = false;
+    /* 远程IP查询的连接、读取超时时间（单位：毫秒） */
+    private int ipRemoteTimeout = 2000;
+    /* 远程IP查询结果的最大缓存数量 */
+    private int ipRemoteCacheSize = 10000;
+
 
 }
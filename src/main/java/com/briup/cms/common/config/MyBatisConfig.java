@@ -3,6 +3,8 @@ package com.briup.cms.common.config;
 import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.briup.cms.common.sql.SlowQueryInterceptor;
+import com.briup.cms.common.sql.SqlStatistics;
 import com.briup.cms.common.util.GlobalConstants;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.context.annotation.Bean;
@@ -32,5 +34,24 @@ public class MyBatisConfig {
         return interceptor;
     }
 
+    /**
+     * 添加SQL语句统计拦截器，按请求统计语句数量、数据库耗时，检测N+1查询
+     * @param configProperties 自定义配置对象
+     * @return
+     */
+    @Bean
+    public SqlStatistics sqlStatistics(ConfigProperties configProperties) {
+        return new SqlStatistics(configProperties);
+    }
+
+    /**
+     * 添加慢SQL拦截器，按语句记录耗时直方图，记录超过阈值的语句及其参数
+     * @param configProperties 自定义配置对象
+     * @return
+     */
+    @Bean
+    public SlowQueryInterceptor slowQueryInterceptor(ConfigProperties configProperties) {
+        return new SlowQueryInterceptor(configProperties);
+    }
 
 }
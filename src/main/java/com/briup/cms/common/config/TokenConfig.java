@@ -0,0 +1,46 @@
+package com.briup.cms.common.config;
+
+import com.briup.cms.common.token.TokenRevocation;
+import com.briup.cms.common.util.RedisUtil;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Token配置类
+ *
+ * 订阅Token吊销通知频道，把其他节点吊销的Token加入本地的吊销名单过滤器
+ * @author YuYan
+ * @date 2024-01-22 15:48:05
+ */
+@Configuration
+public class TokenConfig {
+
+    /**
+     * Redis消息监听容器Bean
+     * @param connectionFactory Redis连接工厂
+     * @param tokenRevocation Token吊销名单
+     * @param redisUtil Redis工具
+     * @param configProperties 自定义配置对象
+     * @return
+     */
+    @Bean
+    public RedisMessageListenerContainer tokenRevocationListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            TokenRevocation tokenRevocation,
+            RedisUtil redisUtil,
+            ConfigProperties configProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            Object body = redisUtil.deserialize(message.getBody());
+            if (body instanceof String) {
+                tokenRevocation.onMessage((String) body);
+            }
+        }, new ChannelTopic(configProperties.getTokenRevocationChannel()));
+        return container;
+    }
+
+}
@@ -1,22 +1,25 @@
 package com.briup.cms.common.config;
 
-import com.briup.cms.common.util.IpUtil;
+import com.briup.cms.common.permission.PermissionRegistry;
+import com.briup.cms.common.token.TokenRevocation;
 import com.briup.cms.common.util.JsonUtil;
 import com.briup.cms.common.util.JwtUtil;
 import com.briup.cms.common.util.StringToDateConverter;
+import com.briup.cms.web.interceptor.RequestInfoInterceptor;
+import com.briup.cms.web.interceptor.SqlStatisticsInterceptor;
 import com.briup.cms.web.interceptor.TokenInterceptor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.format.FormatterRegistry;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
@@ -36,9 +39,21 @@ public class WebConfig implements WebMvcConfigurer {
      */
     private final JwtUtil jwtUtil;
     /**
-     * Ip工具
+     * 请求上下文拦截器
      */
-    private final IpUtil ipUtil;
+    private final RequestInfoInterceptor requestInfoInterceptor;
+    /**
+     * SQL统计拦截器
+     */
+    private final SqlStatisticsInterceptor sqlStatisticsInterceptor;
+    /**
+     * Token吊销名单
+     */
+    private final TokenRevocation tokenRevocation;
+    /**
+     * 权限注册中心
+     */
+    private final PermissionRegistry permissionRegistry;
     /**
      * 自定义配置对象
      */
@@ -72,9 +87,17 @@ public class WebConfig implements WebMvcConfigurer {
      */
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        /* 请求上下文拦截器拦截所有请求，排在Token拦截器之前 */
+        registry.addInterceptor(requestInfoInterceptor)
+                .addPathPatterns("/**")
+                .order(Ordered.HIGHEST_PRECEDENCE);
+        /* SQL统计拦截器拦截所有请求，紧随请求上下文拦截器之后 */
+        registry.addInterceptor(sqlStatisticsInterceptor)
+                .addPathPatterns("/**")
+                .order(Ordered.HIGHEST_PRECEDENCE + 1);
         registry
                 /* 添加拦截器 */
-                .addInterceptor(tokenInterceptor(jwtUtil, ipUtil))
+                .addInterceptor(tokenInterceptor(jwtUtil, tokenRevocation, permissionRegistry))
                 /* 设置需要拦截的路径 */
                 .addPathPatterns(configProperties.getAuthIncludePathPatterns())
                 /* 设置需要排除的路径 */
@@ -93,23 +116,28 @@ public class WebConfig implements WebMvcConfigurer {
     /**
      * 拦截器Bean
      * @param jwtUtil jwt工具
-     * @param jsonUtil json工具
+     * @param tokenRevocation Token吊销名单
+     * @param permissionRegistry 权限注册中心
      * @return
      */
     @Bean
     public TokenInterceptor tokenInterceptor(JwtUtil jwtUtil,
-                                             IpUtil jsonUtil) {
-        return new TokenInterceptor(jwtUtil, jsonUtil);
+                                             TokenRevocation tokenRevocation,
+                                             PermissionRegistry permissionRegistry) {
+        return new TokenInterceptor(jwtUtil, tokenRevocation, permissionRegistry);
     }
 
     /**
-     * 日期格式转换器Bean
+     * 日期格式转换器Bean（线程安全，所有请求共享同一个实例）
      * @return
      */
     @Bean
     public Converter<String, Date> defaultConvertor() {
-        return new StringToDateConverter(
-                new SimpleDateFormat(configProperties.getDefaultDatePattern()));
+        String[] alternatives = configProperties.getAlternativeDatePatterns();
+        String[] patterns = new String[alternatives.length + 1];
+        patterns[0] = configProperties.getDefaultDatePattern();
+        System.arraycopy(alternatives, 0, patterns, 1, alternatives.length);
+        return new StringToDateConverter(patterns);
     }
 
 }
@@ -0,0 +1,542 @@
+package com.briup.cms.common.counter;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.briup.cms.common.config.ConfigProperties;
+import com.briup.cms.common.model.entity.Article;
+import com.briup.cms.common.util.ObjectUtil;
+import com.briup.cms.dao.ArticleMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 资讯计数器（阅读量、点赞量、点踩量）
+ *
+ * 计数先累加到内存中按资讯ID划分的LongAdder里（无锁、多线程分段累加），
+ * 后台线程定期把累计的增量用一条UPDATE语句批量写入数据库，
+ * 避免热门资讯每次访问都更新同一行数据造成行锁竞争。
+ * 请求线程只做LongAdder累加，不加锁、不写文件。
+ *
+ * 崩溃保护（组提交）：后台线程每隔一个较短的周期，把各篇资讯自上次记录以来的增量合并成一批，
+ * 一次追加到当前的日志段文件（只写入操作系统，不做fsync）；进程崩溃时最多丢失一个记录周期内的计数。
+ * 刷写时先记录一次日志，再切换到新的日志段，数据库写入成功后删除旧日志段。
+ * 应用启动时把残留的所有日志段重新加入内存，在下一次刷写时写入数据库（至少写入一次）。
+ * 只有后台线程（以及启动、关闭时）读写日志文件。
+ *
+ * 累加器按刷写周期整体替换：刷写时换上新的累加器表，旧表再保留一个周期，
+ * 接收取得旧表之后才完成的累加（下一次刷写时一并写入），之后整体丢弃，不会随资讯数量无限增长。
+ *
+ * 读取：缓存中的资讯对象只代表缓存加载时数据库中的计数，读取时与
+ * 本节点最近一次刷写后查到的数据库计数取较大值（计数只增不减），再加上正在写入和尚未写入的增量，
+ * 因此刷写后不需要清除资讯缓存。
+ * @author YuYan
+ * @date 2024-01-19 09:48:27
+ */
+@Component
+@RequiredArgsConstructor
+public class ArticleCounter {
+
+    /**
+     * 计数类型
+     */
+    public enum Type {
+        READ, LIKE, DISLIKE
+    }
+
+    /**
+     * 资讯模块Dao层对象
+     */
+    private final ArticleMapper articleMapper;
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
+
+    /**
+     * 当前刷写周期的累加器
+     */
+    private volatile Map<Long, Adders> pending = new ConcurrentHashMap<>();
+    /**
+     * 上一个刷写周期的累加器（已取出增量，只接收迟到的累加）
+     */
+    private volatile Map<Long, Adders> previous = new ConcurrentHashMap<>();
+    /**
+     * 正在写入数据库的计数增量（本次刷写取出的增量，写入并查询到最新计数之前仍然计入读取结果）
+     */
+    private volatile Map<Long, CounterDelta> flushing = Collections.emptyMap();
+    /**
+     * 本节点刷写后从数据库查询到的最新计数
+     */
+    private final Map<Long, Flushed> flushed = new ConcurrentHashMap<>();
+
+    /* 以下日志相关字段只在持有本对象的锁时访问（后台线程、启动和关闭） */
+    /**
+     * 当前日志段（为空表示不记录日志）
+     */
+    private FileChannel journal;
+    /**
+     * 当前日志段文件
+     */
+    private Path journalSegment;
+    /**
+     * 当前日志段序号
+     */
+    private long journalSequence;
+
+    private ScheduledExecutorService flushExecutor;
+
+    @PostConstruct
+    public void start() {
+        try {
+            recoverJournal();
+        } catch (IOException e) {
+            /* 日志目录不可用时不记录日志，计数仍然正常累加和刷写 */
+            e.printStackTrace();
+        }
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cms-article-counter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = configProperties.getCounterFlushInterval();
+        flushExecutor.scheduleWithFixedDelay(this::flushQuietly,
+                interval, interval, TimeUnit.MILLISECONDS);
+        long journalInterval = configProperties.getCounterJournalInterval();
+        if (journalInterval > 0) {
+            flushExecutor.scheduleWithFixedDelay(this::writeJournal,
+                    journalInterval, journalInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        flushExecutor.shutdown();
+        flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        /* 应用关闭前把剩余的增量全部写入数据库 */
+        flushQuietly();
+        synchronized (this) {
+            /* 还有没写入数据库的增量时先记入日志，下次启动时恢复 */
+            writeJournal();
+            Path segment = closeJournal();
+            if (isEmpty(pending) && isEmpty(previous)) {
+                deleteSegment(segment);
+            }
+        }
+    }
+
+    /**
+     * 计数加一（只做LongAdder累加）
+     * @param articleId 资讯ID
+     * @param type 计数类型
+     */
+    public void increment(Long articleId, Type type) {
+        add(pending, articleId, type, 1);
+    }
+
+    /**
+     * 计算某篇资讯当前的计数
+     * 缓存中的计数与本节点最近刷写后查到的数据库计数取较大值，再加上正在写入和尚未写入的增量
+     * @param articleId 资讯ID
+     * @param read 缓存中的阅读量
+     * @param like 缓存中的点赞量
+     * @param dislike 缓存中的点踩量
+     * @return 依次为阅读量、点赞量、点踩量；与缓存中的计数相同时返回null
+     */
+    public long[] current(Long articleId, Integer read, Integer like, Integer dislike) {
+        long[] cached = {
+                read == null ? 0 : read,
+                like == null ? 0 : like,
+                dislike == null ? 0 : dislike};
+        long[] counts = cached.clone();
+        Flushed latest = flushed.get(articleId);
+        if (latest != null) {
+            counts[0] = Math.max(counts[0], latest.read);
+            counts[1] = Math.max(counts[1], latest.like);
+            counts[2] = Math.max(counts[2], latest.dislike);
+        }
+        CounterDelta inFlight = flushing.get(articleId);
+        if (inFlight != null) {
+            counts[0] += inFlight.getRead();
+            counts[1] += inFlight.getLike();
+            counts[2] += inFlight.getDislike();
+        }
+        addSums(counts, pending.get(articleId));
+        addSums(counts, previous.get(articleId));
+        if (counts[0] == cached[0] && counts[1] == cached[1] && counts[2] == cached[2]) {
+            return null;
+        }
+        return counts;
+    }
+
+    /**
+     * 把内存中累计的增量写入数据库
+     */
+    public synchronized void flush() {
+        /* 先把到目前为止的增量记入当前日志段 */
+        writeJournal();
+
+        Map<Long, CounterDelta> inFlight = new ConcurrentHashMap<>();
+        flushing = inFlight;
+        /* 上上个周期的累加器里迟到的累加，取出后整体丢弃 */
+        drainInto(previous, inFlight);
+        Map<Long, Adders> drained = pending;
+        previous = drained;
+        pending = new ConcurrentHashMap<>();
+        drainInto(drained, inFlight);
+
+        List<CounterDelta> deltas = new ArrayList<>();
+        for (CounterDelta delta : inFlight.values()) {
+            if (delta.getRead() != 0 || delta.getLike() != 0 || delta.getDislike() != 0) {
+                deltas.add(delta);
+            }
+        }
+        if (deltas.isEmpty()) {
+            flushing = Collections.emptyMap();
+            return;
+        }
+        Path drainedSegment = rotateJournal();
+
+        try {
+            articleMapper.incrementCounters(deltas);
+        } catch (RuntimeException e) {
+            /* 写入失败，把增量加回内存并记入新的日志段，等待下一次刷写 */
+            for (CounterDelta delta : deltas) {
+                restore(delta);
+            }
+            flushing = Collections.emptyMap();
+            writeJournal();
+            deleteSegment(drainedSegment);
+            throw e;
+        }
+        deleteSegment(drainedSegment);
+        try {
+            refreshFlushed(deltas);
+        } finally {
+            flushing = Collections.emptyMap();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 取出一张累加器表中的增量，按资讯ID合并到inFlight中
+     * 取出后该累加器中剩余的值都是之后才累加的，都还没有记入日志
+     * @param adders
+     * @param inFlight
+     */
+    private static void drainInto(Map<Long, Adders> adders, Map<Long, CounterDelta> inFlight) {
+        for (Map.Entry<Long, Adders> entry : adders.entrySet()) {
+            Adders value = entry.getValue();
+            long read = drain(value.read);
+            long like = drain(value.like);
+            long dislike = drain(value.dislike);
+            Arrays.fill(value.journaled, 0);
+            if (read == 0 && like == 0 && dislike == 0) {
+                continue;
+            }
+            inFlight.merge(entry.getKey(), new CounterDelta(entry.getKey(), read, like, dislike),
+                    (a, b) -> new CounterDelta(a.getId(),
+                            a.getRead() + b.getRead(),
+                            a.getLike() + b.getLike(),
+                            a.getDislike() + b.getDislike()));
+        }
+    }
+
+    private static void addSums(long[] counts, Adders adders) {
+        if (adders != null) {
+            counts[0] += adders.read.sum();
+            counts[1] += adders.like.sum();
+            counts[2] += adders.dislike.sum();
+        }
+    }
+
+    private static boolean isEmpty(Map<Long, Adders> adders) {
+        long[] counts = new long[3];
+        for (Adders value : adders.values()) {
+            addSums(counts, value);
+        }
+        return counts[0] == 0 && counts[1] == 0 && counts[2] == 0;
+    }
+
+    /**
+     * 查询刚写入的资讯的最新计数，并清理已经超过缓存存活时间的记录
+     * （在此之前加载的缓存都已过期，之后加载的缓存至少与记录一样新）
+     * @param deltas
+     */
+    private void refreshFlushed(List<CounterDelta> deltas) {
+        long now = System.currentTimeMillis();
+        long retention = TimeUnit.SECONDS.toMillis(Math.max(
+                configProperties.getArticleDetailCacheTtl(),
+                configProperties.getArticleListCacheTtl()));
+        flushed.values().removeIf(latest -> latest.time < now - retention);
+
+        List<Long> ids = new ArrayList<>(deltas.size());
+        for (CounterDelta delta : deltas) {
+            ids.add(delta.getId());
+        }
+        try {
+            List<Article> articles = articleMapper.selectList(new LambdaQueryWrapper<Article>()
+                    .select(Article::getId, Article::getReadNum, Article::getLikeNum, Article::getDislikeNum)
+                    .in(Article::getId, ids));
+            for (Article article : articles) {
+                flushed.put(article.getId(), new Flushed(
+                        article.getReadNum() == null ? 0 : article.getReadNum(),
+                        article.getLikeNum() == null ? 0 : article.getLikeNum(),
+                        article.getDislikeNum() == null ? 0 : article.getDislikeNum(),
+                        now));
+            }
+        } catch (RuntimeException e) {
+            /* 查询失败时，读取结果会暂时停留在缓存中的计数，直到缓存过期 */
+            e.printStackTrace();
+        }
+    }
+
+    private static void add(Map<Long, Adders> adders, Long articleId, Type type, long value) {
+        Adders counter = adders.get(articleId);
+        if (counter == null) {
+            counter = adders.computeIfAbsent(articleId, id -> new Adders());
+        }
+        switch (type) {
+            case READ:
+                counter.read.add(value);
+                break;
+            case LIKE:
+                counter.like.add(value);
+                break;
+            case DISLIKE:
+                counter.dislike.add(value);
+                break;
+            default:
+        }
+    }
+
+    private void restore(CounterDelta delta) {
+        Map<Long, Adders> adders = pending;
+        add(adders, delta.getId(), Type.READ, delta.getRead());
+        add(adders, delta.getId(), Type.LIKE, delta.getLike());
+        add(adders, delta.getId(), Type.DISLIKE, delta.getDislike());
+    }
+
+    private static long drain(LongAdder adder) {
+        long value = adder.sum();
+        if (value != 0) {
+            adder.add(-value);
+        }
+        return value;
+    }
+
+    /**
+     * 把各篇资讯自上次记录以来的增量合并成一批，一次追加到当前日志段（组提交）
+     * 写入成功后才推进每个累加器的已记录值，写入失败时下一次重试
+     */
+    private synchronized void writeJournal() {
+        if (journal == null) {
+            return;
+        }
+        StringBuilder records = new StringBuilder();
+        List<Adders> recorded = new ArrayList<>();
+        List<long[]> sums = new ArrayList<>();
+        for (Map<Long, Adders> adders : Arrays.asList(previous, pending)) {
+            for (Map.Entry<Long, Adders> entry : adders.entrySet()) {
+                Adders value = entry.getValue();
+                long[] sum = {value.read.sum(), value.like.sum(), value.dislike.sum()};
+                long read = sum[0] - value.journaled[0];
+                long like = sum[1] - value.journaled[1];
+                long dislike = sum[2] - value.journaled[2];
+                if (read == 0 && like == 0 && dislike == 0) {
+                    continue;
+                }
+                records.append(entry.getKey()).append(',')
+                        .append(read).append(',')
+                        .append(like).append(',')
+                        .append(dislike).append('\n');
+                recorded.add(value);
+                sums.add(sum);
+            }
+        }
+        if (records.length() == 0) {
+            return;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        for (int i = 0; i < recorded.size(); i++) {
+            System.arraycopy(sums.get(i), 0, recorded.get(i).journaled, 0, 3);
+        }
+    }
+
+    /**
+     * 启动时恢复上次没有确认写入数据库的增量（包括旧版本留下的单个日志文件），
+     * 合并后写入新的日志段并fsync，再删除旧的日志段
+     */
+    private synchronized void recoverJournal() throws IOException {
+        Path base = journalPath();
+        if (base == null) {
+            return;
+        }
+        if (base.getParent() != null) {
+            Files.createDirectories(base.getParent());
+        }
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        if (Files.isRegularFile(base)) {
+            segments.put(-1L, base);
+        }
+        String prefix = base.getFileName() + ".";
+        Path directory = base.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path segment : stream) {
+                String suffix = segment.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+                    segments.put(Long.parseLong(suffix), segment);
+                }
+            }
+        }
+        for (Path segment : segments.values()) {
+            for (String line : Files.readAllLines(segment, StandardCharsets.UTF_8)) {
+                String[] parts = line.trim().split(",");
+                if (parts.length != 4) {
+                    continue;
+                }
+                try {
+                    restore(new CounterDelta(Long.parseLong(parts[0]),
+                            Long.parseLong(parts[1]),
+                            Long.parseLong(parts[2]),
+                            Long.parseLong(parts[3])));
+                } catch (NumberFormatException e) {
+                    /* 崩溃时最后一行可能没有写完整，跳过 */
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        journalSequence = segments.isEmpty() ? 0 : Math.max(0, segments.lastKey());
+        openJournal();
+        writeJournal();
+        journal.force(true);
+        for (Path segment : segments.values()) {
+            deleteSegment(segment);
+        }
+    }
+
+    /**
+     * 切换到新的日志段
+     * @return 旧的日志段文件，不记录日志时为空
+     */
+    private Path rotateJournal() {
+        if (journal == null) {
+            return null;
+        }
+        Path drained = closeJournal();
+        try {
+            openJournal();
+        } catch (IOException e) {
+            /* 无法创建新的日志段时不再记录日志，已取出的增量仍然正常写入数据库 */
+            e.printStackTrace();
+        }
+        return drained;
+    }
+
+    private void openJournal() throws IOException {
+        Path base = journalPath();
+        journalSequence++;
+        journalSegment = base.resolveSibling(base.getFileName() + "." + journalSequence);
+        journal = FileChannel.open(journalSegment,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private Path closeJournal() {
+        Path segment = journalSegment;
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        journal = null;
+        journalSegment = null;
+        return segment;
+    }
+
+    private void deleteSegment(Path segment) {
+        if (segment == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Path journalPath() {
+        String location = configProperties.getCounterJournalPath();
+        return ObjectUtil.notHasText(location) ? null : Paths.get(location);
+    }
+
+    /**
+     * 一篇资讯的三个计数累加器
+     */
+    private static class Adders {
+        private final LongAdder read = new LongAdder();
+        private final LongAdder like = new LongAdder();
+        private final LongAdder dislike = new LongAdder();
+        /* 已经记入当前日志段的值（依次为阅读量、点赞量、点踩量），只由后台线程访问 */
+        private final long[] journaled = new long[3];
+    }
+
+    /**
+     * 刷写后查询到的数据库计数
+     */
+    private static class Flushed {
+        private final long read;
+        private final long like;
+        private final long dislike;
+        /* 查询时间 */
+        private final long time;
+
+        private Flushed(long read, long like, long dislike, long time) {
+            this.read = read;
+            this.like = like;
+            this.dislike = dislike;
+            this.time = time;
+        }
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.briup.cms.common.counter;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 某篇资讯在一个刷写周期内累计的计数增量
+ * @author YuYan
+ * @date 2024-01-19 09:36:02
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CounterDelta {
+
+    /* 资讯ID */
+    private Long id;
+    /* 阅读量增量 */
+    private long read;
+    /* 点赞量增量 */
+    private long like;
+    /* 点踩量增量 */
+    private long dislike;
+
+}
@@ -0,0 +1,320 @@
+package com.briup.cms.common.excel;
+
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.exception.ExcelDataConvertException;
+import com.alibaba.excel.read.listener.ReadListener;
+import com.briup.cms.common.model.entity.Category;
+import com.briup.cms.common.model.excel.ExcelCategory;
+import com.briup.cms.common.model.vo.ExcelImportReportVO;
+import com.briup.cms.common.util.ObjectUtil;
+import com.briup.cms.dao.CategoryMapper;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 栏目Excel导入监听器（流式导入）
+ *
+ * EasyExcel每解析出一行数据就回调一次invoke()，不会把整张表格读入内存：
+ * 1）父栏目名称在导入开始前一次性加载的“名称->栏目”映射中查找，不再逐行查询数据库；
+ * 本次导入中新增的栏目也会加入映射，后面的行可以引用前面行定义的一级栏目
+ * 2）插入语句使用BATCH执行器，每batchSize条作为一个JDBC批次发送，
+ * 每chunkSize条作为一个Spring事务提交（批量会话绑定在事务上，连接关闭自动提交）
+ * 3）某个事务写入失败时整体回滚，然后把该事务中的行逐行重新插入，
+ * 只有真正写入失败的行（以及引用了失败行作为父栏目的行）记为失败
+ * 4）格式错误、名称重复、父栏目不存在等问题只记录到导入结果中，继续处理后面的行
+ *
+ * 监听器有状态，每次导入创建一个新的对象，用完后必须调用close()
+ * @author YuYan
+ * @date 2024-01-21 10:32:19
+ */
+public class CategoryImportListener implements ReadListener<ExcelCategory>, AutoCloseable {
+
+    private static final String NAME_IS_BLANK = "栏目名称不能为空";
+    private static final String NAME_HAS_EXISTED = "栏目名已存在";
+    private static final String PARENT_IS_INVALID = "父栏目不存在或不是一级栏目";
+    private static final String DELETED_IS_INVALID = "栏目删除状态只能是“未删除”或“已删除”";
+    private static final String FORMAT_IS_INVALID = "第%d列数据格式错误";
+    private static final String WRITE_FAILED = "写入数据库失败";
+
+    /**
+     * 批量模式的会话（在事务中使用时绑定到事务上，随事务提交或回滚）
+     */
+    private final SqlSessionTemplate batchSession;
+    /**
+     * 绑定在批量模式会话上的栏目Dao层对象
+     */
+    private final CategoryMapper batchMapper;
+    /**
+     * 普通的栏目Dao层对象（加载已有栏目、逐行重新插入）
+     */
+    private final CategoryMapper categoryMapper;
+    /**
+     * 事务管理器
+     */
+    private final PlatformTransactionManager transactionManager;
+    /**
+     * 每个JDBC批次包含的插入语句数量
+     */
+    private final int batchSize;
+    /**
+     * 每个事务包含的行数
+     */
+    private final int chunkSize;
+    /**
+     * 导入结果
+     */
+    private final ExcelImportReportVO report;
+
+    /**
+     * 栏目名称 -> 栏目（数据库中已有的未删除栏目 + 本次导入成功的栏目）
+     */
+    private final Map<String, Category> categories = new HashMap<>();
+    /**
+     * 当前事务中已经插入、尚未提交的行
+     */
+    private final List<PendingRow> chunk = new ArrayList<>();
+    /**
+     * 当前事务（没有尚未提交的行时为null）
+     */
+    private TransactionStatus transaction;
+    /**
+     * 当前JDBC批次中尚未发送的插入语句数量
+     */
+    private int unflushed;
+    /**
+     * 没有填写栏目序号时使用的序号（在当前最大序号的基础上递增）
+     */
+    private int nextOrderNum;
+
+    public CategoryImportListener(SqlSessionFactory sqlSessionFactory,
+                                  CategoryMapper categoryMapper,
+                                  PlatformTransactionManager transactionManager,
+                                  int batchSize,
+                                  int chunkSize,
+                                  int maxErrors) {
+        this.batchSession = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        this.batchMapper = batchSession.getMapper(CategoryMapper.class);
+        this.categoryMapper = categoryMapper;
+        this.transactionManager = transactionManager;
+        this.batchSize = Math.max(1, batchSize);
+        this.chunkSize = Math.max(this.batchSize, chunkSize);
+        this.report = new ExcelImportReportVO(maxErrors);
+
+        /* 一次性加载已有栏目的名称和当前最大序号 */
+        for (Category category : categoryMapper.selectList(null)) {
+            categories.put(category.getName(), category);
+        }
+        Integer maxOrderNum = categoryMapper.selectMaxOrderNum();
+        this.nextOrderNum = maxOrderNum == null ? 1 : maxOrderNum + 1;
+    }
+
+    @Override
+    public void invoke(ExcelCategory data, AnalysisContext context) {
+        int row = context.readRowHolder().getRowIndex() + 1;
+
+        /* 校验栏目名称 */
+        String name = data.getName() == null ? null : data.getName().trim();
+        if (ObjectUtil.notHasText(name)) {
+            report.fail(row, NAME_IS_BLANK);
+            return;
+        }
+        if (categories.containsKey(name)) {
+            report.fail(row, NAME_HAS_EXISTED);
+            return;
+        }
+
+        /* 校验删除状态 */
+        Integer deleted;
+        if (ObjectUtil.notHasText(data.getDeleted()) || ObjectUtil.equals(data.getDeleted(), "未删除")) {
+            deleted = 0;
+        } else if (ObjectUtil.equals(data.getDeleted(), "已删除")) {
+            deleted = 1;
+        } else {
+            report.fail(row, DELETED_IS_INVALID);
+            return;
+        }
+
+        /* 根据父栏目名称找到父栏目ID，父栏目必须是一级栏目 */
+        Integer parentId = null;
+        Category parent = null;
+        if (ObjectUtil.hasText(data.getParentName())) {
+            parent = categories.get(data.getParentName().trim());
+            if (parent == null || parent.getParentId() != null) {
+                report.fail(row, PARENT_IS_INVALID);
+                return;
+            }
+            if (parent.getId() == null) {
+                /* 父栏目是本批次中刚插入的，先发送批次拿到自增ID
+                 * （发送失败时已经逐行重新插入，父栏目插入成功的话同样有了ID） */
+                flushStatements();
+                if (parent.getId() == null) {
+                    report.fail(row, PARENT_IS_INVALID);
+                    return;
+                }
+            }
+            parentId = parent.getId();
+        }
+
+        /* 封装Entity对象并加入批次 */
+        Category category = new Category();
+        category.setName(name);
+        category.setDescription(data.getDescription());
+        category.setOrderNum(data.getOrderNum() != null ? data.getOrderNum() : nextOrderNum++);
+        category.setParentId(parentId);
+        category.setDeleted(deleted);
+        if (transaction == null) {
+            transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        }
+        batchMapper.insert(category);
+        chunk.add(new PendingRow(row, category, parent));
+        /* 已删除的栏目不占用名称 */
+        if (deleted == 0) {
+            categories.put(name, category);
+        }
+
+        if (++unflushed >= batchSize) {
+            flushStatements();
+        }
+        if (chunk.size() >= chunkSize) {
+            commit();
+        }
+    }
+
+    @Override
+    public void onException(Exception exception, AnalysisContext context) throws Exception {
+        /* 单元格数据类型转换失败（例如栏目序号不是数字），记录错误后继续解析后面的行 */
+        if (exception instanceof ExcelDataConvertException) {
+            ExcelDataConvertException e = (ExcelDataConvertException) exception;
+            report.fail(e.getRowIndex() + 1,
+                    String.format(FORMAT_IS_INVALID, e.getColumnIndex() + 1));
+            return;
+        }
+        throw exception;
+    }
+
+    @Override
+    public void doAfterAllAnalysed(AnalysisContext context) {
+        commit();
+    }
+
+    /**
+     * 导入结果
+     * @return
+     */
+    public ExcelImportReportVO getReport() {
+        return report;
+    }
+
+    /**
+     * 解析中途出错时回滚尚未提交的事务（这些行不计入导入结果）
+     */
+    @Override
+    public void close() {
+        if (transaction != null && !transaction.isCompleted()) {
+            transactionManager.rollback(transaction);
+        }
+        transaction = null;
+    }
+
+    /**
+     * 发送当前JDBC批次
+     * @return 是否成功，失败时当前事务已回滚，其中的行已逐行重新插入
+     */
+    private boolean flushStatements() {
+        if (unflushed == 0) {
+            return true;
+        }
+        try {
+            batchSession.flushStatements();
+            unflushed = 0;
+            return true;
+        } catch (RuntimeException e) {
+            recover(e);
+            return false;
+        }
+    }
+
+    /**
+     * 提交当前事务
+     */
+    private void commit() {
+        if (chunk.isEmpty() || !flushStatements()) {
+            return;
+        }
+        try {
+            transactionManager.commit(transaction);
+        } catch (RuntimeException e) {
+            /* 提交失败时事务管理器已经回滚 */
+            recover(e);
+            return;
+        }
+        transaction = null;
+        report.success(chunk.size());
+        chunk.clear();
+    }
+
+    /**
+     * 回滚当前事务，然后把事务中的行逐行重新插入，找出真正写入失败的行
+     * @param e 导致失败的异常
+     */
+    private void recover(RuntimeException e) {
+        e.printStackTrace();
+        if (transaction != null && !transaction.isCompleted()) {
+            try {
+                transactionManager.rollback(transaction);
+            } catch (RuntimeException ignored) {
+                /* 回滚失败时连接已经被释放，同样按逐行重新插入处理 */
+            }
+        }
+        transaction = null;
+        unflushed = 0;
+        for (PendingRow pending : chunk) {
+            Category category = pending.category;
+            /* 回滚前已经发送的批次可能给这一行设置过自增ID */
+            category.setId(null);
+            if (pending.parent != null) {
+                if (pending.parent.getId() == null) {
+                    categories.remove(category.getName(), category);
+                    report.fail(pending.row, PARENT_IS_INVALID);
+                    continue;
+                }
+                category.setParentId(pending.parent.getId());
+            }
+            try {
+                categoryMapper.insert(category);
+                report.success(1);
+            } catch (RuntimeException ex) {
+                category.setId(null);
+                categories.remove(category.getName(), category);
+                report.fail(pending.row, WRITE_FAILED);
+            }
+        }
+        chunk.clear();
+    }
+
+    /**
+     * 已插入、尚未提交的行
+     */
+    private static class PendingRow {
+        private final int row;
+        private final Category category;
+        /* 父栏目（为null表示一级栏目） */
+        private final Category parent;
+
+        private PendingRow(int row, Category category, Category parent) {
+            this.row = row;
+            this.category = category;
+            this.parent = parent;
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.briup.cms.common.excel;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.write.metadata.WriteSheet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Excel流式写出器
+ *
+ * 数据逐行交给add()，每攒够chunkSize行就写入一次工作表，内存中最多只保留一个批次的数据；
+ * EasyExcel写XLSX时会把已写出的行暂存到磁盘临时文件中，所以导出行数再多堆内存占用也基本不变。
+ * 当前工作表写满maxRowsPerSheet行（XLSX单个工作表最多1048576行，含表头）后自动新建下一个工作表。
+ *
+ * 用完后必须调用close()，此时才会生成完整的文件写入输出流。
+ * @author YuYan
+ * @date 2024-01-21 15:42:10
+ */
+public class ExcelStreamWriter<Entity> implements AutoCloseable {
+
+    /**
+     * EasyExcel写出器
+     */
+    private final ExcelWriter writer;
+    /**
+     * 输出流
+     */
+    private final OutputStream os;
+    /**
+     * 工作表名称（第2个及以后的工作表在名称后追加序号）
+     */
+    private final String sheetName;
+    /**
+     * 每个批次的行数
+     */
+    private final int chunkSize;
+    /**
+     * 每个工作表最多写入的数据行数（不含表头）
+     */
+    private final int maxRowsPerSheet;
+
+    /**
+     * 尚未写入工作表的行
+     */
+    private final List<Entity> chunk;
+    /**
+     * 当前工作表
+     */
+    private WriteSheet sheet;
+    /**
+     * 当前工作表的序号（从0开始）
+     */
+    private int sheetNo = -1;
+    /**
+     * 当前工作表已写入的行数
+     */
+    private int sheetRows;
+    /**
+     * 总共写出的行数
+     */
+    private long total;
+
+    public ExcelStreamWriter(ExcelWriter writer, OutputStream os, String sheetName,
+                             int chunkSize, int maxRowsPerSheet) {
+        this.writer = writer;
+        this.os = os;
+        this.sheetName = sheetName;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxRowsPerSheet = Math.max(1, maxRowsPerSheet);
+        this.chunk = new ArrayList<>(this.chunkSize);
+        nextSheet();
+    }
+
+    /**
+     * 写出一行数据
+     * @param row
+     */
+    public void add(Entity row) {
+        chunk.add(row);
+        total++;
+        /* 攒够一个批次，或者当前工作表已经写满时写入 */
+        if (chunk.size() >= chunkSize || sheetRows + chunk.size() >= maxRowsPerSheet) {
+            flushChunk();
+        }
+    }
+
+    /**
+     * 总共写出的行数
+     * @return
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    @Override
+    public void close() {
+        flushChunk();
+        writer.finish();
+        try {
+            os.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flushChunk() {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        writer.write(chunk, sheet);
+        sheetRows += chunk.size();
+        chunk.clear();
+        if (sheetRows >= maxRowsPerSheet) {
+            nextSheet();
+        }
+    }
+
+    private void nextSheet() {
+        sheetNo++;
+        sheet = EasyExcel.writerSheet(sheetNo,
+                sheetNo == 0 ? sheetName : sheetName + (sheetNo + 1)).build();
+        sheetRows = 0;
+    }
+
+}
@@ -12,8 +12,11 @@ public class GlobalExceptionHandler {
     public Result handle(Exception e) {
         // 打印异常跟踪信息到控制台（开发测试阶段临时开启）
         e.printStackTrace();
-        if (e instanceof CmsException) {
-            return Result.error(((CmsException) e).getResultCode());
+        // 业务异常可能被其他框架包装（例如在MyBatis拦截器中抛出），沿着异常链查找
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof CmsException) {
+                return Result.error(((CmsException) cause).getResultCode());
+            }
         }
         return Result.error(ResultCode.SYSTEM_INNER_ERROR);
     }
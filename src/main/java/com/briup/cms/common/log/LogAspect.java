@@ -3,8 +3,8 @@ package com.briup.cms.common.log;
 import com.briup.cms.common.model.entity.Log;
 import com.briup.cms.common.util.JsonUtil;
 import com.briup.cms.common.util.ObjectUtil;
+import com.briup.cms.common.util.RequestInfo;
 import com.briup.cms.common.util.RequestInfoHolder;
-import com.briup.cms.service.LogService;
 import lombok.RequiredArgsConstructor;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -27,7 +27,10 @@ import java.util.Date;
 public class LogAspect {
 
 
-    private final LogService logService;
+    /**
+     * 审计日志异步写入组件
+     */
+    private final LogWriter logWriter;
 
     private final JsonUtil jsonUtil;
 
@@ -65,14 +68,18 @@ public class LogAspect {
             businessName = logAccess.value();
         }
 
-        /* 从ThreadLocal中取出其余的日志信息 */
+        /* 从请求上下文中取出其余的日志信息（在请求线程中取出，写入线程不需要上下文） */
+        RequestInfo info = RequestInfoHolder.get();
+        if (info == null) {
+            info = new RequestInfo();
+        }
         /* 将日志信息封装为一个日志实体对象 */
         Log log = Log.builder()
-                .username(RequestInfoHolder.getString("username"))
-                .requestMethod(RequestInfoHolder.getString("requestMethod"))
-                .requestUrl(RequestInfoHolder.getString("requestUrl"))
-                .requestIp(RequestInfoHolder.getString("requestIp"))
-                .requestSource(RequestInfoHolder.getString("requestSource"))
+                .username(info.getUsername())
+                .requestMethod(info.getRequestMethod())
+                .requestUrl(info.getRequestUrl())
+                .requestIp(info.getRequestIp())
+                .requestSource(info.getRequestSource())
                 .businessName(businessName)
                 .spendTime(endTime - startTime)
                 .requestParams(jsonUtil.stringify(args))
@@ -80,9 +87,8 @@ public class LogAspect {
                 .createTime(new Date())
                 .build();
 
-        /* 执行写入 */
-        System.out.println("LogAspect：" + Thread.currentThread().getName());
-        logService.save(log);
+        /* 放入缓冲队列，由后台线程批量写入数据库，不占用请求线程的响应时间 */
+        logWriter.publish(log);
 
 
         // /* 执行目标方法，获取到返回值 */
@@ -0,0 +1,210 @@
+package com.briup.cms.common.log;
+
+import com.briup.cms.common.config.ConfigProperties;
+import com.briup.cms.common.model.entity.Log;
+import com.briup.cms.dao.LogMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 审计日志异步批量写入组件
+ *
+ * 请求线程只负责把日志对象放入一个有界缓冲队列，立即返回；
+ * 后台写入线程从队列中取出日志，攒够一批（或者等待超过刷写间隔）之后
+ * 使用一条多行INSERT语句批量写入数据库。
+ * 应用正常关闭时，会把缓冲队列中剩余的日志全部写完再退出；
+ * 超过等待时长仍未写完的日志计入丢弃数（dropped），不会无声丢失。
+ * @author YuYan
+ * @date 2024-01-16 14:20:31
+ */
+@Component
+@RequiredArgsConstructor
+public class LogWriter {
+
+    /**
+     * 缓冲队列已满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /* 丢弃新产生的日志 */
+        DROP_NEWEST,
+        /* 丢弃队列中最旧的日志，为新日志腾出位置 */
+        DROP_OLDEST,
+        /* 请求线程限时等待，超时仍无空位则丢弃 */
+        BLOCK
+    }
+
+    /**
+     * 日志模块Dao层对象
+     */
+    private final LogMapper logMapper;
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
+
+    /* 统计指标 */
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    private BlockingQueue<Log> queue;
+    private OverflowPolicy overflowPolicy;
+    private int batchSize;
+    private long flushInterval;
+    private Thread worker;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(configProperties.getLogBufferCapacity());
+        overflowPolicy = OverflowPolicy.valueOf(configProperties.getLogOverflowPolicy());
+        batchSize = Math.max(1, configProperties.getLogBatchSize());
+        flushInterval = Math.max(1, configProperties.getLogFlushInterval());
+        running = true;
+        worker = new Thread(this::runLoop, "cms-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 发布一条日志到缓冲队列（不会阻塞请求线程，BLOCK策略下最多等待配置的时长）
+     * @param log 日志对象
+     * @return 是否成功放入队列
+     */
+    public boolean publish(Log log) {
+        if (!running) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        boolean accepted = queue.offer(log);
+        if (!accepted) {
+            accepted = handleOverflow(log);
+        }
+        if (accepted) {
+            published.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+        return accepted;
+    }
+
+    /**
+     * 当前的统计指标
+     * @return
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queueDepth", queue.size());
+        metrics.put("queueCapacity", queue.size() + queue.remainingCapacity());
+        metrics.put("overflowPolicy", overflowPolicy.name());
+        metrics.put("published", published.get());
+        metrics.put("dropped", dropped.get());
+        metrics.put("written", written.get());
+        metrics.put("failed", failed.get());
+        metrics.put("batches", batches.get());
+        return metrics;
+    }
+
+    /**
+     * 应用关闭时停止接收新日志，并等待后台线程把剩余日志全部写完
+     *
+     * 这里不中断后台线程：中断可能落在正在执行的批量INSERT上，导致整批写入失败；
+     * 后台线程每次最多等待一个刷写间隔就会看到关闭标记，随后自行写完剩余日志并退出。
+     * 超时后仍留在队列中的日志不再写入，计入丢弃数
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        worker.join(configProperties.getLogShutdownTimeout());
+        List<Log> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        dropped.addAndGet(abandoned.size());
+    }
+
+    private boolean handleOverflow(Log log) {
+        switch (overflowPolicy) {
+            case DROP_OLDEST:
+                /* 挤掉队头最旧的一条日志，再尝试放入 */
+                while (!queue.offer(log)) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                return true;
+            case BLOCK:
+                try {
+                    return queue.offer(log, configProperties.getLogOfferTimeout(),
+                            TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            case DROP_NEWEST:
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 后台写入线程的主循环：按数量或按时间触发刷写
+     */
+    private void runLoop() {
+        List<Log> batch = new ArrayList<>(batchSize);
+        long deadline = System.currentTimeMillis() + flushInterval;
+        while (true) {
+            boolean stopping = !running;
+            /* 关闭过程中不再等待，只把队列中剩余的日志取完 */
+            long wait = stopping ? 0 : Math.max(0, deadline - System.currentTimeMillis());
+            Log log = null;
+            try {
+                log = queue.poll(wait, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                /* 关闭不依赖中断，被意外中断时直接进入下一轮循环，由running标记决定是否退出 */
+            }
+            if (log != null) {
+                batch.add(log);
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            if (batch.size() >= batchSize
+                    || System.currentTimeMillis() >= deadline
+                    || stopping) {
+                flush(batch);
+                deadline = System.currentTimeMillis() + flushInterval;
+            }
+            if (stopping && batch.isEmpty() && queue.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    private void flush(List<Log> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            logMapper.insertBatch(batch);
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+        } catch (Exception e) {
+            /* 写入失败的日志不再重试，避免阻塞后续日志的写入 */
+            e.printStackTrace();
+            failed.addAndGet(batch.size());
+        } finally {
+            batch.clear();
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.briup.cms.common.model.vo;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 视图对象 - 栏目批量删除结果
+ *
+ * 记录本次请求中每个栏目ID的处理结果，以及实际删除的数量
+ * @author YuYan
+ * @date 2024-01-20 15:36:08
+ */
+@Data
+@NoArgsConstructor
+public class CategoryDeleteReportVO {
+
+    /**
+     * 单个栏目的删除结果
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public enum Outcome {
+        DELETED("删除成功"),
+        NOT_EXIST("栏目不存在"),
+        HAS_CHILDREN("栏目下存在二级栏目"),
+        HAS_ARTICLES("栏目下存在作者账号正常的资讯");
+
+        private final String message;
+    }
+
+    /* 实际删除的栏目数量 */
+    @JsonProperty(value = "deletedCount")
+    private int deletedCount;
+    /* 每个栏目ID的处理结果（按请求中的顺序） */
+    @JsonProperty(value = "outcomes")
+    private Map<Integer, Outcome> outcomes = new LinkedHashMap<>();
+
+    public void put(Integer id, Outcome outcome) {
+        outcomes.put(id, outcome);
+        if (outcome == Outcome.DELETED) {
+            deletedCount++;
+        }
+    }
+
+}
@@ -8,6 +8,7 @@ import com.briup.cms.common.model.ext.UserExt;
 import com.briup.cms.common.util.ObjectUtil;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
@@ -42,6 +43,9 @@ public class CategoryVO {
     private Integer orderNum;
     @JsonProperty(value = "parentId")
     private Integer parentId;
+    @JsonProperty(value = "children")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<CategoryVO> children;
 
     public static List<CategoryVO> toVO(List<CategoryExt> categoryExts) {
         return ObjectUtil.isNull(categoryExts) ? null :
@@ -58,6 +62,7 @@ public class CategoryVO {
                 .description(categoryExt.getDescription())
                 .orderNum(categoryExt.getOrderNum())
                 .parentId(categoryExt.getParentId())
+                .children(toVO(categoryExt.getChildren()))
                 .build();
     }
 
@@ -0,0 +1,87 @@
+package com.briup.cms.common.model.vo;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 视图对象 - Excel导入结果
+ *
+ * 统计导入的总行数、成功行数、失败行数，并逐行记录失败原因。
+ * 失败原因最多记录maxErrors条，超出部分只计数，避免错误清单占用过多内存。
+ * @author YuYan
+ * @date 2024-01-21 10:05:47
+ */
+@Data
+@NoArgsConstructor
+public class ExcelImportReportVO {
+
+    /**
+     * 某一行的导入错误
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        /* Excel中的行号（从1开始，包含表头行） */
+        @JsonProperty(value = "row")
+        private int row;
+        /* 失败原因 */
+        @JsonProperty(value = "message")
+        private String message;
+    }
+
+    /* 读取到的数据行数 */
+    @JsonProperty(value = "total")
+    private int total;
+    /* 成功导入的行数 */
+    @JsonProperty(value = "succeeded")
+    private int succeeded;
+    /* 导入失败的行数 */
+    @JsonProperty(value = "failed")
+    private int failed;
+    /* 失败原因清单 */
+    @JsonProperty(value = "errors")
+    private List<RowError> errors = new ArrayList<>();
+    /* 失败原因清单是否因为超出上限而被截断 */
+    @JsonProperty(value = "truncated")
+    private boolean truncated;
+
+    /* 最多记录的失败原因条数 */
+    @JsonIgnore
+    private int maxErrors = Integer.MAX_VALUE;
+
+    public ExcelImportReportVO(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * 记录导入成功的行（所在批次提交到数据库之后调用）
+     * @param count 行数
+     */
+    public void success(int count) {
+        total += count;
+        succeeded += count;
+    }
+
+    /**
+     * 记录一行导入失败
+     * @param row Excel中的行号
+     * @param message 失败原因
+     */
+    public void fail(int row, String message) {
+        total++;
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(row, message));
+        } else {
+            truncated = true;
+        }
+    }
+
+}
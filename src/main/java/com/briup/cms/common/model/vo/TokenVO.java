@@ -0,0 +1,33 @@
+package com.briup.cms.common.model.vo;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 视图对象 - 登录令牌
+ *
+ * 访问令牌只短时间有效，载荷中包含角色、状态、VIP等信息，鉴权时不需要查询数据库；
+ * 访问令牌过期后使用刷新令牌换取新的令牌对，刷新令牌每次使用后都会更换。
+ * @author YuYan
+ * @date 2024-01-23 10:05:12
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenVO {
+
+    /* 访问令牌 */
+    @JsonProperty("token")
+    private String token;
+    /* 访问令牌的有效时长（单位：秒） */
+    @JsonProperty("expiresIn")
+    private Long expiresIn;
+    /* 刷新令牌 */
+    @JsonProperty("refreshToken")
+    private String refreshToken;
+
+}
@@ -0,0 +1,50 @@
+package com.briup.cms.common.permission;
+
+/**
+ * 权限
+ *
+ * 每个权限对应权限位图中的一位（位序号即枚举的序号），所以权限的数量不能超过64个；
+ * 新增权限只能追加在末尾，已有权限的顺序不能调整。
+ * @author YuYan
+ * @date 2024-01-23 14:02:18
+ */
+public enum Permission {
+
+    /* 用户管理（新增、修改、删除、查询用户） */
+    USER_MANAGE("用户管理"),
+    /* 审核资讯 */
+    ARTICLE_REVIEW("审核资讯"),
+    /* 删除资讯 */
+    ARTICLE_DELETE("删除资讯"),
+    /* 强制用户下线 */
+    SESSION_KILL("强制用户下线"),
+    /* 查看系统运行指标（缓存、登录限流、Token吊销等） */
+    SYSTEM_MONITOR("查看系统运行指标"),
+    /* 重新加载权限 */
+    PERMISSION_MANAGE("重新加载权限");
+
+    private final String description;
+
+    Permission(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 该权限在权限位图中对应的位
+     * @return
+     */
+    public long mask() {
+        return 1L << ordinal();
+    }
+
+    static {
+        if (values().length > Long.SIZE) {
+            throw new IllegalStateException("权限数量不能超过" + Long.SIZE + "个");
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.briup.cms.common.permission;
+
+import com.briup.cms.common.cache.CacheRegistry;
+import com.briup.cms.common.config.ConfigProperties;
+import com.briup.cms.common.exception.CmsException;
+import com.briup.cms.common.util.ResultCode;
+import com.briup.cms.dao.RoleMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import javax.annotation.PostConstruct;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 权限注册中心
+ *
+ * 1）应用启动完成后扫描所有接口方法上的@RequirePermission注解，编译成“接口方法 -> 所需权限位图”的只读表
+ * 2）从角色表一次性加载所有角色，结合权限配置构建角色权限矩阵
+ * 3）鉴权时按接口方法查表得到所需权限，再在矩阵中做一次位运算，不查询数据库
+ *
+ * 角色数据变化后调用reload()重建矩阵，并通知其他节点同时重建，不需要重启应用。
+ * @author YuYan
+ * @date 2024-01-23 14:26:35
+ */
+@Component
+@RequiredArgsConstructor
+public class PermissionRegistry {
+
+    /* 权限矩阵变更通知使用的名称 */
+    private static final String CHANGE_NAME = "permission:matrix";
+
+    /**
+     * 角色模块Dao层对象
+     */
+    private final RoleMapper roleMapper;
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
+    /**
+     * 缓存注册中心（用于跨节点通知）
+     */
+    private final CacheRegistry cacheRegistry;
+
+    /**
+     * 接口方法 -> 所需权限位图（只包含声明了权限的方法）
+     */
+    private volatile Map<Method, Long> requirements = Collections.emptyMap();
+    /**
+     * 角色权限矩阵
+     */
+    private volatile PermissionMatrix matrix = PermissionMatrix.EMPTY;
+
+    @PostConstruct
+    public void init() {
+        reloadMatrix();
+        cacheRegistry.addListener(CHANGE_NAME, this::reloadMatrixQuietly);
+    }
+
+    /**
+     * 所有接口注册完成后编译接口权限表
+     * @param event
+     */
+    @EventListener
+    public void onContextRefreshed(ContextRefreshedEvent event) {
+        ApplicationContext context = event.getApplicationContext();
+        if (!context.containsBean("requestMappingHandlerMapping")) {
+            return;
+        }
+        RequestMappingHandlerMapping mapping = context.getBean(
+                "requestMappingHandlerMapping", RequestMappingHandlerMapping.class);
+        Map<Method, Long> compiled = new HashMap<>();
+        for (HandlerMethod handlerMethod : mapping.getHandlerMethods().values()) {
+            long required = required(handlerMethod);
+            if (required != 0) {
+                compiled.put(handlerMethod.getMethod(), required);
+            }
+        }
+        requirements = Collections.unmodifiableMap(compiled);
+    }
+
+    /**
+     * 检查角色是否有权访问某个接口，没有权限时抛出异常
+     * @param handlerMethod 接口方法
+     * @param roleId 角色ID
+     */
+    public void check(HandlerMethod handlerMethod, Integer roleId) {
+        Long required = requirements.get(handlerMethod.getMethod());
+        if (required != null && !matrix.allows(roleId, required)) {
+            throw new CmsException(ResultCode.USER_PERMISSION_DENIED);
+        }
+    }
+
+    /**
+     * 重新加载角色权限矩阵，并通知其他节点
+     */
+    public void reload() {
+        reloadMatrix();
+        cacheRegistry.notifyChanged(CHANGE_NAME);
+    }
+
+    /**
+     * 当前的权限配置（各角色拥有的权限、各接口需要的权限）
+     * @return
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("roles", matrix.getGrants());
+        description.put("handlers", requirements.size());
+        return description;
+    }
+
+    private synchronized void reloadMatrix() {
+        matrix = PermissionMatrix.of(roleMapper.selectList(null),
+                configProperties.getPermissionGrants());
+    }
+
+    private void reloadMatrixQuietly() {
+        try {
+            reloadMatrix();
+        } catch (Exception e) {
+            /* 重新加载失败时继续使用旧的矩阵 */
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 接口方法所需的权限（方法上的注解优先于类上的注解）
+     */
+    private static long required(HandlerMethod handlerMethod) {
+        RequirePermission annotation = AnnotatedElementUtils.findMergedAnnotation(
+                handlerMethod.getMethod(), RequirePermission.class);
+        if (annotation == null) {
+            annotation = AnnotatedElementUtils.findMergedAnnotation(
+                    handlerMethod.getBeanType(), RequirePermission.class);
+        }
+        return annotation == null ? 0 : PermissionMatrix.toMask(annotation.value());
+    }
+
+}
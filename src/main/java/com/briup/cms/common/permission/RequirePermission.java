@@ -0,0 +1,25 @@
+package com.briup.cms.common.permission;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 声明访问接口需要的权限
+ *
+ * 可以用在控制器类或方法上，方法上的注解优先；声明多个权限时需要同时拥有。
+ * 只对Token拦截器拦截的请求生效。
+ * @author YuYan
+ * @date 2024-01-23 14:05:46
+ */
+/* 当前注解可以用在类和方法上 */
+@Target({ElementType.TYPE, ElementType.METHOD})
+/* 注解的保留策略：RUNTIME */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RequirePermission {
+
+    /* 属性：需要的权限 */
+    Permission[] value();
+
+}
@@ -0,0 +1,94 @@
+package com.briup.cms.common.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 二元分词器（面向中文内容）
+ *
+ * 1）连续的中日韩文字按相邻两个字切分（“内容管理”切分为“内容”“容管”“管理”），只有一个字时单独成词
+ * 2）连续的字母、数字作为一个词，统一转为小写
+ * 3）HTML标签、标点符号和空白字符只作为分隔符，不产生词
+ * 索引和查询使用同一个分词器，查询词的每个二元组都出现在文档中时视为匹配，不依赖词典。
+ * 注意：单独成词的汉字只能匹配文档中同样单独出现的汉字，查询中含有这样的词时不能使用索引（见isSingleCjk）。
+ * @author YuYan
+ * @date 2024-01-29 14:03:18
+ */
+public final class BigramTokenizer {
+
+    private BigramTokenizer() {
+    }
+
+    /**
+     * 切分文本
+     * @param text 可以为null
+     * @return 按出现顺序排列的词（包含重复的词）
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '<' && isTagStart(text, i + 1)) {
+                /* 跳过HTML标签（没有闭合的“<”按普通字符处理） */
+                int end = text.indexOf('>', i);
+                if (end > 0) {
+                    i = end + 1;
+                    continue;
+                }
+            }
+            if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(text.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.add(String.valueOf(c));
+                } else {
+                    for (int j = start; j < i - 1; j++) {
+                        tokens.add(text.substring(j, j + 2));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < length && Character.isLetterOrDigit(text.charAt(i)) && !isCjk(text.charAt(i))) {
+                    i++;
+                }
+                tokens.add(text.substring(start, i).toLowerCase());
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * 是否为单独成词的中日韩文字（索引中没有为二元组内的每个字单独建词，这样的查询词会漏掉大部分文档）
+     * @param token 分词结果中的词
+     * @return
+     */
+    public static boolean isSingleCjk(String token) {
+        return token.length() == 1 && isCjk(token.charAt(0));
+    }
+
+    private static boolean isTagStart(String text, int index) {
+        if (index >= text.length()) {
+            return false;
+        }
+        char c = text.charAt(index);
+        return c == '/' || c == '!' || (c < 128 && Character.isLetter(c));
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+}
@@ -0,0 +1,428 @@
+package com.briup.cms.common.search;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.briup.cms.common.config.ConfigProperties;
+import com.briup.cms.common.model.entity.Article;
+import com.briup.cms.common.model.entity.Comment;
+import com.briup.cms.common.util.CursorPage;
+import com.briup.cms.common.util.ObjectUtil;
+import com.briup.cms.dao.ArticleMapper;
+import com.briup.cms.dao.CommentMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * 资讯、评论全文检索（替代数据库中前后都带通配符、无法使用索引的模糊查询）
+ *
+ * 1）启动时从本地段文件加载索引；没有段文件（首次启动或文件损坏）时在后台线程中从数据库分批重建
+ * 2）业务层在新增、修改、审核、删除数据后调用本类同步更新索引
+ * 3）索引尚未就绪（正在重建）或者关闭了全文检索时，检索方法返回null，由业务层使用原来的数据库查询
+ * 重建期间发生变化的数据会被记录下来，重建结束后再从数据库读取一次，避免被重建时读到的旧数据覆盖。
+ * @author YuYan
+ * @date 2024-01-29 16:08:31
+ */
+@Component
+@RequiredArgsConstructor
+public class ContentSearch {
+
+    /**
+     * 资讯模块Dao层对象
+     */
+    private final ArticleMapper articleMapper;
+    /**
+     * 一级评论模块Dao层对象
+     */
+    private final CommentMapper commentMapper;
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
+
+    private Target<Article> articles;
+    private Target<Comment> comments;
+    private ExecutorService rebuildExecutor;
+
+    @PostConstruct
+    public void start() {
+        if (!configProperties.isSearchEnabled()) {
+            return;
+        }
+        String location = configProperties.getSearchIndexPath();
+        Path directory = ObjectUtil.notHasText(location) ? null : Paths.get(location);
+        int threshold = configProperties.getSearchCompactThreshold();
+        articles = new Target<>(new SearchIndex("article", directory, threshold),
+                articleMapper, Article::getId, ContentSearch::put);
+        comments = new Target<>(new SearchIndex("comment", directory, threshold),
+                commentMapper, Comment::getId, ContentSearch::put);
+        rebuildExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "cms-search-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Target<?> target : new Target<?>[]{articles, comments}) {
+            if (target.index.load()) {
+                target.ready = true;
+            } else {
+                rebuildExecutor.execute(() -> rebuild(target));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (rebuildExecutor == null) {
+            return;
+        }
+        rebuildExecutor.shutdownNow();
+        rebuildExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        /* 重建没有完成的索引不写入快照，下次启动重新重建 */
+        for (Target<?> target : new Target<?>[]{articles, comments}) {
+            if (target.ready) {
+                target.index.close();
+            }
+        }
+    }
+
+    /**
+     * 新增或更新资讯的索引
+     * @param article 完整的资讯信息（为null时不处理）
+     */
+    public void indexArticle(Article article) {
+        if (articles != null && article != null) {
+            articles.apply(article.getId(), index -> put(index, article));
+        }
+    }
+
+    /**
+     * 更新资讯的审核状态
+     * @param id 资讯ID
+     * @param status 审核状态
+     */
+    public void updateArticleStatus(Long id, String status) {
+        if (articles != null) {
+            articles.apply(id, index -> index.update(id, document -> {
+                document.setStatus(status);
+                return document;
+            }));
+        }
+    }
+
+    /**
+     * 删除资讯的索引
+     * @param ids 资讯ID
+     */
+    public void deleteArticles(Collection<Long> ids) {
+        if (articles != null) {
+            articles.delete(ids);
+        }
+    }
+
+    /**
+     * 新增或更新评论的索引
+     * @param comment 完整的评论信息（为null时不处理）
+     */
+    public void indexComment(Comment comment) {
+        if (comments != null && comment != null) {
+            comments.apply(comment.getId(), index -> put(index, comment));
+        }
+    }
+
+    /**
+     * 删除评论的索引
+     * @param ids 评论ID
+     */
+    public void deleteComments(Collection<Long> ids) {
+        if (comments != null) {
+            comments.delete(ids);
+        }
+    }
+
+    /**
+     * 检索资讯（标题和正文）
+     * @param keyword 关键字
+     * @param filter 过滤条件（groupId为栏目ID）
+     * @return 按相关性排列的结果；索引不可用或无法用索引检索时返回null（由调用方使用数据库模糊查询）
+     */
+    public List<SearchHit> searchArticles(String keyword, Predicate<SearchDocument> filter) {
+        return search(articles, keyword, filter);
+    }
+
+    /**
+     * 检索评论内容
+     * @param keyword 关键字
+     * @param filter 过滤条件（groupId为资讯ID）
+     * @return 按相关性排列的结果；索引不可用或无法用索引检索时返回null（由调用方使用数据库模糊查询）
+     */
+    public List<SearchHit> searchComments(String keyword, Predicate<SearchDocument> filter) {
+        return search(comments, keyword, filter);
+    }
+
+    /**
+     * 在后台重新从数据库重建所有索引（重建期间检索使用数据库查询）
+     */
+    public void rebuild() {
+        if (rebuildExecutor == null) {
+            return;
+        }
+        for (Target<?> target : new Target<?>[]{articles, comments}) {
+            rebuildExecutor.execute(() -> rebuild(target));
+        }
+    }
+
+    /**
+     * 统计指标
+     * @return
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", configProperties.isSearchEnabled());
+        if (articles == null) {
+            return stats;
+        }
+        for (Target<?> target : new Target<?>[]{articles, comments}) {
+            Map<String, Object> indexStats = target.index.stats();
+            indexStats.put("ready", target.ready);
+            indexStats.put("rebuilding", target.rebuilding);
+            stats.put(target.index.getName(), indexStats);
+        }
+        return stats;
+    }
+
+    /**
+     * 按分页参数截取一页检索结果
+     * 1）普通分页：按相关性排列，根据页码截取，并设置总数
+     * 2）游标分页：游标按(发布时间, ID)定位，所以结果同样按发布时间从晚到早排列，截取游标之后的一页
+     * @param page 分页对象
+     * @param hits 全部检索结果
+     * @return 本页的文档ID（按顺序排列）
+     */
+    public static List<Long> slice(IPage<?> page, List<SearchHit> hits) {
+        List<SearchHit> ordered = hits;
+        long offset = 0;
+        if (page instanceof CursorPage) {
+            CursorPage<?> cursorPage = (CursorPage<?>) page;
+            boolean first = cursorPage.isFirst();
+            Long afterTime = cursorPage.getAfterTime() == null ? null : cursorPage.getAfterTime().getTime();
+            Long afterId = cursorPage.getAfterId();
+            ordered = hits.stream()
+                    .filter(hit -> first || before(hit.getDocument(), afterTime, afterId))
+                    .sorted(Comparator.comparing((SearchHit hit) -> hit.getDocument().getPublishTime(),
+                                    Comparator.nullsLast(Comparator.<Long>reverseOrder()))
+                            .thenComparing(hit -> hit.getDocument().getId(), Comparator.<Long>reverseOrder()))
+                    .collect(Collectors.toList());
+        } else {
+            page.setTotal(hits.size());
+            offset = page.offset();
+        }
+        return ordered.stream()
+                .skip(offset)
+                .limit(page.getSize())
+                .map(hit -> hit.getDocument().getId())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 按检索结果的顺序排列从数据库查出的记录（已经不存在的记录被跳过）
+     * @param ids 检索结果的文档ID
+     * @param rows 数据库查出的记录
+     * @param id 获取记录ID的方法
+     * @param <T> 实体类型
+     * @return
+     */
+    public static <T> List<T> order(List<Long> ids, Collection<T> rows, Function<T, Long> id) {
+        Map<Long, T> byId = new LinkedHashMap<>();
+        for (T row : rows) {
+            byId.put(id.apply(row), row);
+        }
+        List<T> ordered = new ArrayList<>(ids.size());
+        for (Long key : ids) {
+            T row = byId.get(key);
+            if (row != null) {
+                ordered.add(row);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * 发布时间是否在查询的时间范围内
+     * @param document 索引中的文档
+     * @param startTime 开始时间（为空表示不限）
+     * @param endTime 结束时间（为空表示不限）
+     * @return
+     */
+    public static boolean inTimeRange(SearchDocument document, Date startTime, Date endTime) {
+        if (startTime == null && endTime == null) {
+            return true;
+        }
+        Long time = document.getPublishTime();
+        return time != null
+                && (startTime == null || time >= startTime.getTime())
+                && (endTime == null || time <= endTime.getTime());
+    }
+
+    /**
+     * 文档是否排在游标之后（与PageUtil.seek的条件一致，发布时间为空的文档排在最后）
+     * @param afterTime 游标时间（为空表示游标已经进入发布时间为空的文档）
+     */
+    private static boolean before(SearchDocument document, Long afterTime, Long afterId) {
+        Long time = document.getPublishTime();
+        if (afterTime == null) {
+            return time == null && document.getId() < afterId;
+        }
+        if (time == null) {
+            return true;
+        }
+        return time < afterTime || (time.longValue() == afterTime && document.getId() < afterId);
+    }
+
+    private static List<SearchHit> search(Target<?> target, String keyword, Predicate<SearchDocument> filter) {
+        if (target == null || !target.ready) {
+            return null;
+        }
+        /* 单个汉字在文档中大多只存在于二元组里，索引查不全，交给数据库模糊查询 */
+        List<String> tokens = BigramTokenizer.tokenize(keyword);
+        if (tokens.isEmpty() || tokens.stream().anyMatch(BigramTokenizer::isSingleCjk)) {
+            return null;
+        }
+        return target.index.search(keyword, filter);
+    }
+
+    private static void put(SearchIndex index, Article article) {
+        index.put(SearchDocument.builder()
+                        .id(article.getId())
+                        .groupId(article.getCategoryId() == null ? null : article.getCategoryId().longValue())
+                        .userId(article.getUserId())
+                        .status(article.getStatus())
+                        .charged(article.getCharged())
+                        .publishTime(time(article.getPublishTime()))
+                        .build(),
+                article.getTitle(), article.getContent());
+    }
+
+    private static void put(SearchIndex index, Comment comment) {
+        index.put(SearchDocument.builder()
+                        .id(comment.getId())
+                        .groupId(comment.getArticleId())
+                        .userId(comment.getUserId())
+                        .publishTime(time(comment.getPublishTime()))
+                        .build(),
+                null, comment.getContent());
+    }
+
+    private static Long time(Date date) {
+        return date == null ? null : date.getTime();
+    }
+
+    /**
+     * 从数据库按ID顺序分批读取全部记录，重建索引
+     */
+    private <T> void rebuild(Target<T> target) {
+        target.ready = false;
+        target.rebuilding = true;
+        try {
+            target.index.beginRebuild();
+            int batchSize = Math.max(1, configProperties.getSearchRebuildBatchSize());
+            Long lastId = null;
+            while (!Thread.currentThread().isInterrupted()) {
+                LambdaQueryWrapper<T> lqw = new LambdaQueryWrapper<>();
+                lqw.gt(lastId != null, target.idColumn, lastId);
+                lqw.orderByAsc(target.idColumn);
+                List<T> rows = target.mapper.selectPage(new Page<>(1, batchSize, false), lqw).getRecords();
+                for (T row : rows) {
+                    target.indexer.accept(target.index, row);
+                }
+                if (rows.size() < batchSize) {
+                    break;
+                }
+                lastId = target.idColumn.apply(rows.get(rows.size() - 1));
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            target.rebuilding = false;
+            /* 重建期间发生变化的数据以数据库中的最新状态为准 */
+            for (Long id : new ArrayList<>(target.dirty)) {
+                target.dirty.remove(id);
+                T row = target.mapper.selectById(id);
+                if (row == null) {
+                    target.index.delete(Collections.singletonList(id));
+                } else {
+                    target.indexer.accept(target.index, row);
+                }
+            }
+            target.index.endRebuild();
+            target.ready = true;
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            target.rebuilding = false;
+        }
+    }
+
+    /**
+     * 一种数据的索引及其状态
+     */
+    private static final class Target<T> {
+        private final SearchIndex index;
+        private final BaseMapper<T> mapper;
+        private final SFunction<T, Long> idColumn;
+        private final BiConsumer<SearchIndex, T> indexer;
+        /* 索引是否已经就绪，可以用于检索 */
+        private volatile boolean ready;
+        /* 是否正在重建 */
+        private volatile boolean rebuilding;
+        /* 重建期间发生变化的ID */
+        private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+        private Target(SearchIndex index, BaseMapper<T> mapper,
+                       SFunction<T, Long> idColumn, BiConsumer<SearchIndex, T> indexer) {
+            this.index = index;
+            this.mapper = mapper;
+            this.idColumn = idColumn;
+            this.indexer = indexer;
+        }
+
+        private void apply(Long id, Consumer<SearchIndex> change) {
+            if (rebuilding) {
+                dirty.add(id);
+            }
+            change.accept(index);
+        }
+
+        private void delete(Collection<Long> ids) {
+            if (rebuilding) {
+                dirty.addAll(ids);
+            }
+            index.delete(ids);
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.briup.cms.common.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 索引中的一条文档（只保存过滤和排序需要的属性，文本内容只以词频的形式保存）
+ * @author YuYan
+ * @date 2024-01-29 14:21:40
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class SearchDocument {
+
+    /**
+     * 文档ID（资讯ID或评论ID）
+     */
+    private Long id;
+    /**
+     * 所属分组（资讯为栏目ID，评论为资讯ID）
+     */
+    private Long groupId;
+    /**
+     * 作者ID
+     */
+    private Long userId;
+    /**
+     * 状态（资讯的审核状态）
+     */
+    private String status;
+    /**
+     * 收费状态
+     */
+    private Integer charged;
+    /**
+     * 发布时间（毫秒时间戳）
+     */
+    private Long publishTime;
+
+}
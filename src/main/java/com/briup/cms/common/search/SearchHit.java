@@ -0,0 +1,24 @@
+package com.briup.cms.common.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 一条检索结果
+ * @author YuYan
+ * @date 2024-01-29 14:25:12
+ */
+@Getter
+@AllArgsConstructor
+public class SearchHit {
+
+    /**
+     * 命中的文档
+     */
+    private final SearchDocument document;
+    /**
+     * BM25相关性得分
+     */
+    private final double score;
+
+}
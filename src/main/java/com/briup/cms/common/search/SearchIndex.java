@@ -0,0 +1,582 @@
+package com.briup.cms.common.search;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * 内存倒排索引（BM25排序），使用本地段文件持久化
+ *
+ * 1）每个文档保存正排的词频表（用于更新和删除时移除旧的倒排项），倒排表为 词 -> (文档ID -> 词频)
+ * 2）查询时文档必须包含查询文本切分出的全部词，按BM25得分从高到低排列，得分相同时较新的文档在前
+ * 3）持久化分为两个文件：
+ *   [名称].seg 全量快照（写临时文件+fsync+原子替换）
+ *   [名称].log 快照之后的变更记录（追加写入），记录数达到阈值时合并为新的快照并清空
+ *   启动时加载快照并重放变更记录，不需要从数据库重建；变更记录末尾不完整的一条（写入时进程退出）会被丢弃
+ * 4）读写锁保护：查询之间互不阻塞，写入独占；合并快照时只持有读锁，不阻塞查询
+ * @author YuYan
+ * @date 2024-01-29 14:40:55
+ */
+public class SearchIndex {
+
+    /* BM25参数 */
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    /* 标题中的词按多少次计入词频 */
+    private static final int TITLE_WEIGHT = 2;
+
+    /* 段文件格式 */
+    private static final int MAGIC = 0x434D5349;
+    private static final int VERSION = 1;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+
+    /* 得分从高到低，得分相同时发布时间从晚到早、ID从大到小 */
+    private static final Comparator<SearchHit> RANKING = Comparator
+            .comparingDouble(SearchHit::getScore).reversed()
+            .thenComparing(hit -> hit.getDocument().getPublishTime(),
+                    Comparator.nullsLast(Comparator.<Long>reverseOrder()))
+            .thenComparing(hit -> hit.getDocument().getId(), Comparator.<Long>reverseOrder());
+
+    private final String name;
+    private final Path snapshotPath;
+    private final Path logPath;
+    private final int compactThreshold;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /**
+     * 文档ID -> 文档
+     */
+    private final Map<Long, Entry> entries = new HashMap<>();
+    /**
+     * 词 -> (文档ID -> 词频)
+     */
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    /* 所有文档的长度（词数）之和 */
+    private long totalLength;
+
+    /* 变更记录的输出流（只在持有写锁，或者持有读锁并且在合并快照时访问） */
+    private DataOutputStream log;
+    /* 快照之后写入的变更记录数量 */
+    private int logOperations;
+    /* 为false时不写变更记录（批量重建期间），结束后由合并快照一次性写入 */
+    private volatile boolean logging = true;
+
+    /**
+     * @param name 索引名称（同时作为段文件的名称）
+     * @param directory 段文件所在目录（为null时只在内存中保存）
+     * @param compactThreshold 变更记录达到多少条时合并为新的快照
+     */
+    public SearchIndex(String name, Path directory, int compactThreshold) {
+        this.name = name;
+        this.snapshotPath = directory == null ? null : directory.resolve(name + ".seg");
+        this.logPath = directory == null ? null : directory.resolve(name + ".log");
+        this.compactThreshold = compactThreshold;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 从段文件加载索引
+     * @return 是否存在可用的段文件（不存在或者文件损坏时返回false，需要从数据库重建）
+     */
+    public boolean load() {
+        if (snapshotPath == null || !Files.isRegularFile(snapshotPath)) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                    clearMemory();
+                    return false;
+                }
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    add(readEntry(in));
+                }
+            }
+            logOperations = replayLog();
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            clearMemory();
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        /* 重放过变更记录时立即合并，避免在可能不完整的记录之后继续追加 */
+        if (logOperations > 0) {
+            try {
+                compact();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 新增或替换文档
+     * @param document 文档属性
+     * @param title 标题（词频按权重计入）
+     * @param content 正文
+     */
+    public void put(SearchDocument document, String title, String content) {
+        Map<String, Integer> terms = new HashMap<>();
+        int length = 0;
+        for (String token : BigramTokenizer.tokenize(title)) {
+            terms.merge(token, TITLE_WEIGHT, Integer::sum);
+            length += TITLE_WEIGHT;
+        }
+        for (String token : BigramTokenizer.tokenize(content)) {
+            terms.merge(token, 1, Integer::sum);
+            length++;
+        }
+        Entry entry = new Entry(document, terms, length);
+        lock.writeLock().lock();
+        try {
+            remove(document.getId());
+            add(entry);
+            appendLog(OP_PUT, entry, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * 只修改文档属性（例如审核状态），不重新分词
+     * @param id 文档ID
+     * @param change 根据原属性生成新属性
+     */
+    public void update(Long id, UnaryOperator<SearchDocument> change) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                return;
+            }
+            Entry updated = new Entry(change.apply(entry.document.toBuilder().build()), entry.terms, entry.length);
+            entries.put(id, updated);
+            appendLog(OP_PUT, updated, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * 删除文档
+     * @param ids 文档ID
+     */
+    public void delete(Collection<Long> ids) {
+        lock.writeLock().lock();
+        try {
+            for (Long id : ids) {
+                if (remove(id)) {
+                    appendLog(OP_DELETE, null, id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        compactIfNeeded();
+    }
+
+    /**
+     * 检索
+     * @param query 查询文本
+     * @param filter 文档属性过滤条件
+     * @return 按相关性排列的全部命中文档
+     */
+    public List<SearchHit> search(String query, Predicate<SearchDocument> filter) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(BigramTokenizer.tokenize(query)));
+        List<SearchHit> hits = new ArrayList<>();
+        if (terms.isEmpty()) {
+            return hits;
+        }
+        lock.readLock().lock();
+        try {
+            List<Map<Long, Integer>> lists = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                Map<Long, Integer> list = postings.get(term);
+                if (list == null) {
+                    return hits;
+                }
+                lists.add(list);
+            }
+            /* 从最短的倒排表开始，逐个检查文档是否包含其余的词 */
+            lists.sort(Comparator.comparingInt(Map::size));
+            double documents = entries.size();
+            double avgLength = Math.max(1.0, totalLength / documents);
+            double[] idf = new double[lists.size()];
+            for (int i = 0; i < lists.size(); i++) {
+                double df = lists.get(i).size();
+                idf[i] = Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+            }
+            candidates:
+            for (Map.Entry<Long, Integer> candidate : lists.get(0).entrySet()) {
+                Long id = candidate.getKey();
+                for (int i = 1; i < lists.size(); i++) {
+                    if (!lists.get(i).containsKey(id)) {
+                        continue candidates;
+                    }
+                }
+                Entry entry = entries.get(id);
+                if (!filter.test(entry.document)) {
+                    continue;
+                }
+                double norm = K1 * (1 - B + B * entry.length / avgLength);
+                double score = 0;
+                for (int i = 0; i < lists.size(); i++) {
+                    int tf = lists.get(i).get(id);
+                    score += idf[i] * tf * (K1 + 1) / (tf + norm);
+                }
+                hits.add(new SearchHit(entry.document, score));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort(RANKING);
+        return hits;
+    }
+
+    /**
+     * 文档数量
+     * @return
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 开始批量重建：清空内存和段文件，期间不写变更记录
+     */
+    public void beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            logging = false;
+            clearMemory();
+            closeLog();
+            deleteFiles();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 结束批量重建：写入全量快照，恢复写变更记录
+     */
+    public void endRebuild() throws IOException {
+        lock.writeLock().lock();
+        try {
+            logging = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        compact();
+    }
+
+    /**
+     * 把内存中的索引写入新的快照，并清空变更记录
+     */
+    public synchronized void compact() throws IOException {
+        if (snapshotPath == null) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            if (snapshotPath.getParent() != null) {
+                Files.createDirectories(snapshotPath.getParent());
+            }
+            Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+            try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(entries.size());
+                for (Entry entry : entries.values()) {
+                    writeEntry(out, entry);
+                }
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(temp, snapshotPath,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            /* 快照已经包含全部变更，变更记录可以丢弃（在这之前退出的话，重放变更记录的结果相同） */
+            closeLog();
+            Files.deleteIfExists(logPath);
+            logOperations = 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 关闭索引：合并快照并关闭文件
+     */
+    public void close() {
+        try {
+            compact();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        lock.writeLock().lock();
+        try {
+            closeLog();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 统计指标
+     * @return
+     */
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("documents", entries.size());
+            stats.put("terms", postings.size());
+            stats.put("avgLength", entries.isEmpty() ? 0 : (double) totalLength / entries.size());
+            stats.put("logOperations", logOperations);
+            stats.put("snapshotBytes", fileSize(snapshotPath));
+            stats.put("logBytes", fileSize(logPath));
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Entry entry) {
+        Long id = entry.document.getId();
+        entries.put(id, entry);
+        totalLength += entry.length;
+        for (Map.Entry<String, Integer> term : entry.terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), t -> new HashMap<>()).put(id, term.getValue());
+        }
+    }
+
+    private boolean remove(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return false;
+        }
+        totalLength -= entry.length;
+        for (String term : entry.terms.keySet()) {
+            Map<Long, Integer> list = postings.get(term);
+            if (list != null) {
+                list.remove(id);
+                if (list.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void clearMemory() {
+        entries.clear();
+        postings.clear();
+        totalLength = 0;
+        logOperations = 0;
+    }
+
+    private void compactIfNeeded() {
+        if (logOperations < compactThreshold) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 追加一条变更记录（调用时持有写锁）
+     * 写入失败只影响重启后的恢复（下次合并快照时会写入完整的内存索引），不影响本次修改
+     */
+    private void appendLog(byte op, Entry entry, Long id) {
+        if (logPath == null || !logging) {
+            return;
+        }
+        try {
+            if (log == null) {
+                if (logPath.getParent() != null) {
+                    Files.createDirectories(logPath.getParent());
+                }
+                log = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(logPath.toFile(), true)));
+            }
+            log.writeByte(op);
+            if (op == OP_PUT) {
+                writeEntry(log, entry);
+            } else {
+                log.writeLong(id);
+            }
+            log.flush();
+            logOperations++;
+        } catch (IOException e) {
+            e.printStackTrace();
+            closeLog();
+        }
+    }
+
+    private int replayLog() throws IOException {
+        if (!Files.isRegularFile(logPath)) {
+            return 0;
+        }
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(logPath)))) {
+            while (true) {
+                int op = in.read();
+                if (op < 0) {
+                    break;
+                }
+                if (op == OP_PUT) {
+                    Entry entry = readEntry(in);
+                    remove(entry.document.getId());
+                    add(entry);
+                } else if (op == OP_DELETE) {
+                    remove(in.readLong());
+                } else {
+                    break;
+                }
+                count++;
+            }
+        } catch (EOFException e) {
+            /* 最后一条记录不完整，丢弃 */
+        }
+        return count;
+    }
+
+    private void closeLog() {
+        if (log == null) {
+            return;
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        log = null;
+    }
+
+    private void deleteFiles() {
+        if (snapshotPath == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(snapshotPath);
+            Files.deleteIfExists(logPath);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static long fileSize(Path path) {
+        try {
+            return path != null && Files.isRegularFile(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        SearchDocument document = entry.document;
+        out.writeLong(document.getId());
+        writeNullableLong(out, document.getGroupId());
+        writeNullableLong(out, document.getUserId());
+        out.writeBoolean(document.getStatus() != null);
+        if (document.getStatus() != null) {
+            out.writeUTF(document.getStatus());
+        }
+        out.writeBoolean(document.getCharged() != null);
+        if (document.getCharged() != null) {
+            out.writeInt(document.getCharged());
+        }
+        writeNullableLong(out, document.getPublishTime());
+        out.writeInt(entry.length);
+        out.writeInt(entry.terms.size());
+        for (Map.Entry<String, Integer> term : entry.terms.entrySet()) {
+            out.writeUTF(term.getKey());
+            out.writeInt(term.getValue());
+        }
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        SearchDocument document = SearchDocument.builder()
+                .id(in.readLong())
+                .groupId(readNullableLong(in))
+                .userId(readNullableLong(in))
+                .status(in.readBoolean() ? in.readUTF() : null)
+                .charged(in.readBoolean() ? in.readInt() : null)
+                .publishTime(readNullableLong(in))
+                .build();
+        int length = in.readInt();
+        int count = in.readInt();
+        Map<String, Integer> terms = new HashMap<>(count * 4 / 3 + 1);
+        for (int i = 0; i < count; i++) {
+            terms.put(in.readUTF(), in.readInt());
+        }
+        return new Entry(document, terms, length);
+    }
+
+    private static void writeNullableLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    /**
+     * 一个文档的属性、词频表和长度
+     */
+    private static final class Entry {
+        private final SearchDocument document;
+        private final Map<String, Integer> terms;
+        private final int length;
+
+        private Entry(SearchDocument document, Map<String, Integer> terms, int length) {
+            this.document = document;
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.briup.cms.common.sql;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟直方图（HDR风格的对数-线性分桶，单位：微秒）
+ *
+ * 1）小于128微秒的值每微秒一个桶；之后每个2的幂区间再平均分成64个桶，相对误差不超过1/64（约1.6%）
+ * 2）最大记录约2^40微秒（约12天），更大的值计入最后一个桶
+ * 3）记录只需一次原子自增，不加锁，不分配对象；计算分位数时扫描所有桶（约2300个）
+ * @author YuYan
+ * @date 2024-01-29 09:34:51
+ */
+public class LatencyHistogram {
+
+    /* 线性区间的桶数（同时也是线性区间的上界） */
+    private static final int LINEAR_BUCKETS = 128;
+    /* 之后每个2的幂区间的桶数 */
+    private static final int SUB_BUCKETS = 64;
+    private static final int SUB_BUCKET_BITS = 6;
+    /* 可以精确分桶的最大值的位数 */
+    private static final int MAX_BITS = 40;
+    private static final int BUCKETS = LINEAR_BUCKETS + (MAX_BITS - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一个值
+     * @param micros 单位：微秒
+     */
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * 记录数量
+     * @return
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * 所有值的总和（单位：微秒）
+     * @return
+     */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * 分位数
+     * @param quantile 0~1之间，例如0.99
+     * @return 该分位所在桶的上界（单位：微秒），不超过实际记录的最大值
+     */
+    public long percentile(double quantile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * 统计摘要（时间单位：毫秒）
+     * @return
+     */
+    public Map<String, Object> snapshot() {
+        long total = count();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", total);
+        snapshot.put("totalMillis", sum() / 1000.0);
+        snapshot.put("meanMillis", total == 0 ? 0 : sum() / 1000.0 / total);
+        snapshot.put("p50Millis", percentile(0.50) / 1000.0);
+        snapshot.put("p90Millis", percentile(0.90) / 1000.0);
+        snapshot.put("p99Millis", percentile(0.99) / 1000.0);
+        snapshot.put("p999Millis", percentile(0.999) / 1000.0);
+        snapshot.put("maxMillis", max.get() / 1000.0);
+        return snapshot;
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        /* 最高位所在的位置，右移后保留最高的7位，落在[64, 128)之间 */
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int index = LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+        long mantissa = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.briup.cms.common.sql;
+
+import com.baomidou.mybatisplus.core.toolkit.PluginUtils;
+import com.briup.cms.common.config.ConfigProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 慢SQL拦截器（替代把每条SQL及结果同步输出到控制台的StdOutImpl）
+ *
+ * 1）按语句ID（Mapper类名.方法名，例如ArticleMapper.selectPage）记录执行耗时的直方图
+ * 2）耗时超过阈值的语句记录警告日志，包含SQL文本和绑定的参数值；未超过阈值的语句不产生任何输出
+ * @author YuYan
+ * @date 2024-01-29 10:12:45
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Intercepts({
+        @Signature(type = StatementHandler.class, method = "query", args = {Statement.class, ResultHandler.class}),
+        @Signature(type = StatementHandler.class, method = "queryCursor", args = {Statement.class}),
+        @Signature(type = StatementHandler.class, method = "update", args = {Statement.class}),
+        @Signature(type = StatementHandler.class, method = "batch", args = {Statement.class})
+})
+public class SlowQueryInterceptor implements Interceptor {
+
+    /* 无法解析语句ID时使用的标识 */
+    private static final String UNKNOWN_STATEMENT = "unknown";
+
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
+
+    /**
+     * 语句ID -> 耗时直方图
+     */
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            StatementHandler handler = (StatementHandler) invocation.getTarget();
+            MappedStatement statement = mappedStatement(handler);
+            String statementId = statement == null ? UNKNOWN_STATEMENT : shortId(statement.getId());
+            histograms.computeIfAbsent(statementId, id -> new LatencyHistogram())
+                    .record(TimeUnit.NANOSECONDS.toMicros(elapsed));
+
+            long threshold = configProperties.getSqlSlowThreshold();
+            if (threshold > 0 && TimeUnit.NANOSECONDS.toMillis(elapsed) >= threshold) {
+                BoundSql boundSql = handler.getBoundSql();
+                log.warn("慢SQL[{}]耗时{}ms：{}，参数：{}", statementId,
+                        String.format("%.3f", elapsed / 1_000_000.0),
+                        boundSql.getSql().replaceAll("\\s+", " ").trim(),
+                        statement == null ? "[]" : parameters(statement.getConfiguration(), boundSql));
+            }
+        }
+    }
+
+    /**
+     * 各语句的耗时直方图，按总耗时从多到少排列
+     * @return
+     */
+    public Map<String, Object> histograms() {
+        List<Map.Entry<String, LatencyHistogram>> entries = new ArrayList<>(histograms.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("slowThresholdMillis", configProperties.getSqlSlowThreshold());
+        Map<String, Object> statements = new LinkedHashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : entries) {
+            statements.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        result.put("statements", statements);
+        return result;
+    }
+
+    /**
+     * 清空所有直方图（例如在压测或发布前后重新开始统计）
+     */
+    public void reset() {
+        histograms.clear();
+    }
+
+    private static MappedStatement mappedStatement(StatementHandler handler) {
+        try {
+            return PluginUtils.mpStatementHandler(handler).mappedStatement();
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 去掉语句ID中的包名，只保留Mapper类名和方法名
+     */
+    private static String shortId(String id) {
+        int method = id.lastIndexOf('.');
+        int type = method > 0 ? id.lastIndexOf('.', method - 1) : -1;
+        return type < 0 ? id : id.substring(type + 1);
+    }
+
+    /**
+     * 按MyBatis设置参数的方式（DefaultParameterHandler）解析绑定的参数值
+     */
+    private List<String> parameters(Configuration configuration, BoundSql boundSql) {
+        List<String> values = new ArrayList<>();
+        Object parameterObject = boundSql.getParameterObject();
+        MetaObject metaObject = null;
+        for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+            if (mapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            String property = mapping.getProperty();
+            Object value;
+            try {
+                if (boundSql.hasAdditionalParameter(property)) {
+                    value = boundSql.getAdditionalParameter(property);
+                } else if (parameterObject == null) {
+                    value = null;
+                } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+                    value = parameterObject;
+                } else {
+                    if (metaObject == null) {
+                        metaObject = configuration.newMetaObject(parameterObject);
+                    }
+                    value = metaObject.getValue(property);
+                }
+            } catch (Exception e) {
+                value = "?";
+            }
+            values.add(truncate(String.valueOf(value)));
+        }
+        return values;
+    }
+
+    private String truncate(String value) {
+        int max = configProperties.getSqlSlowParamMaxLength();
+        return max > 0 && value.length() > max ? value.substring(0, max) + "..." : value;
+    }
+
+}
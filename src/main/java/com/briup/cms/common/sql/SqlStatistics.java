@@ -0,0 +1,242 @@
+package com.briup.cms.common.sql;
+
+import com.baomidou.mybatisplus.core.toolkit.PluginUtils;
+import com.briup.cms.common.config.ConfigProperties;
+import com.briup.cms.common.exception.CmsException;
+import com.briup.cms.common.util.ResultCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SQL语句统计拦截器
+ *
+ * 在语句真正执行（StatementHandler）时计数和计时，按HTTP请求汇总：
+ * 1）统计每个请求执行的语句数量和数据库总耗时，通过响应头部返回给调用方
+ * 2）同一请求中相同形状（参数化后的SQL文本相同）的语句重复执行达到阈值时，记录为疑似N+1查询
+ * 3）语句数量超过上限时记录警告日志，或直接拒绝执行后续语句（FAIL模式，用于测试环境尽早暴露问题）
+ * 不在请求中执行的语句（例如异步写入审计日志、定时刷写计数）只计入后台统计。
+ * @author YuYan
+ * @date 2024-01-26 14:36:12
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Intercepts({
+        @Signature(type = StatementHandler.class, method = "query", args = {Statement.class, ResultHandler.class}),
+        @Signature(type = StatementHandler.class, method = "queryCursor", args = {Statement.class}),
+        @Signature(type = StatementHandler.class, method = "update", args = {Statement.class}),
+        @Signature(type = StatementHandler.class, method = "batch", args = {Statement.class})
+})
+public class SqlStatistics implements Interceptor {
+
+    /* 超过上限时拒绝执行的处理方式 */
+    private static final String ACTION_FAIL = "FAIL";
+    /* 查看指标时最多列出的疑似N+1语句数量 */
+    private static final int TOP_REPEATED = 20;
+
+    /**
+     * 当前线程正在处理的请求的统计
+     */
+    private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final AtomicLong maxStatements = new AtomicLong();
+    private final LongAdder overLimitRequests = new LongAdder();
+    private final LongAdder repeatedRequests = new LongAdder();
+    private final LongAdder backgroundStatements = new LongAdder();
+    private final LongAdder backgroundNanos = new LongAdder();
+    /**
+     * 语句ID -> 被判定为N+1查询的请求次数
+     */
+    private final Map<String, LongAdder> repeatedStatements = new ConcurrentHashMap<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Trace trace = CURRENT.get();
+        if (trace == null) {
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                backgroundStatements.increment();
+                backgroundNanos.add(System.nanoTime() - start);
+            }
+        }
+
+        int limit = configProperties.getSqlStatementLimit();
+        if (limit > 0 && trace.count >= limit
+                && ACTION_FAIL.equalsIgnoreCase(configProperties.getSqlLimitAction())) {
+            throw new CmsException(ResultCode.SYSTEM_SQL_LIMIT_EXCEEDED);
+        }
+        StatementHandler handler = (StatementHandler) invocation.getTarget();
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            trace.record(handler, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 开始统计当前线程中的请求
+     */
+    public void begin() {
+        CURRENT.set(new Trace());
+    }
+
+    /**
+     * 当前请求的统计
+     * @return 不在请求中时返回null
+     */
+    public static Trace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 结束当前请求的统计：汇总到指标中，超过上限或存在N+1查询时记录警告日志
+     * @param request 请求描述（请求方法和路径）
+     */
+    public void end(String request) {
+        Trace trace = CURRENT.get();
+        CURRENT.remove();
+        if (trace == null) {
+            return;
+        }
+        requests.increment();
+        statements.add(trace.count);
+        nanos.add(trace.nanos);
+        maxStatements.accumulateAndGet(trace.count, Math::max);
+
+        int limit = configProperties.getSqlStatementLimit();
+        if (limit > 0 && trace.count > limit) {
+            overLimitRequests.increment();
+            log.warn("请求[{}]执行了{}条SQL语句，超过上限{}", request, trace.count, limit);
+        }
+        int threshold = configProperties.getSqlRepeatThreshold();
+        if (threshold > 0 && trace.count >= threshold) {
+            boolean repeated = false;
+            for (Shape shape : trace.shapes.values()) {
+                if (shape.count >= threshold) {
+                    repeated = true;
+                    repeatedStatements.computeIfAbsent(shape.statementId, id -> new LongAdder()).increment();
+                    log.warn("请求[{}]中语句[{}]重复执行了{}次，可能存在N+1查询：{}",
+                            request, shape.statementId, shape.count, shape.sql);
+                }
+            }
+            if (repeated) {
+                repeatedRequests.increment();
+            }
+        }
+    }
+
+    /**
+     * 统计指标
+     * @return
+     */
+    public Map<String, Object> metrics() {
+        long requestCount = requests.sum();
+        long statementCount = statements.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("requests", requestCount);
+        metrics.put("statements", statementCount);
+        metrics.put("dbTimeMillis", TimeUnit.NANOSECONDS.toMillis(nanos.sum()));
+        metrics.put("avgStatementsPerRequest", requestCount == 0 ? 0 : (double) statementCount / requestCount);
+        metrics.put("maxStatementsPerRequest", maxStatements.get());
+        metrics.put("statementLimit", configProperties.getSqlStatementLimit());
+        metrics.put("overLimitRequests", overLimitRequests.sum());
+        metrics.put("repeatedRequests", repeatedRequests.sum());
+        metrics.put("backgroundStatements", backgroundStatements.sum());
+        metrics.put("backgroundDbTimeMillis", TimeUnit.NANOSECONDS.toMillis(backgroundNanos.sum()));
+
+        /* 按被判定为N+1查询的次数从多到少排列 */
+        List<Map.Entry<String, LongAdder>> entries = new ArrayList<>(repeatedStatements.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()));
+        Map<String, Long> top = new LinkedHashMap<>();
+        for (Map.Entry<String, LongAdder> entry : entries.subList(0, Math.min(TOP_REPEATED, entries.size()))) {
+            top.put(entry.getKey(), entry.getValue().sum());
+        }
+        metrics.put("repeatedStatements", top);
+        return metrics;
+    }
+
+    /**
+     * 单个请求的统计（只由处理该请求的线程访问）
+     */
+    public static final class Trace {
+        /* 语句数量 */
+        private int count;
+        /* 数据库总耗时（单位：纳秒） */
+        private long nanos;
+        /* 参数化后的SQL文本 -> 执行情况 */
+        private final Map<String, Shape> shapes = new HashMap<>();
+
+        private void record(StatementHandler handler, long elapsed) {
+            count++;
+            nanos += elapsed;
+            String sql = handler.getBoundSql().getSql();
+            Shape shape = shapes.get(sql);
+            if (shape == null) {
+                /* 每种形状只在第一次出现时解析语句ID */
+                shape = new Shape(statementId(handler), sql);
+                shapes.put(sql, shape);
+            }
+            shape.count++;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public double getMillis() {
+            return nanos / 1_000_000.0;
+        }
+    }
+
+    /**
+     * 一种形状的语句在请求中的执行情况
+     */
+    private static final class Shape {
+        private final String statementId;
+        private final String sql;
+        private int count;
+
+        private Shape(String statementId, String sql) {
+            this.statementId = statementId;
+            this.sql = sql;
+        }
+    }
+
+    private static String statementId(StatementHandler handler) {
+        try {
+            return PluginUtils.mpStatementHandler(handler).mappedStatement().getId();
+        } catch (Exception e) {
+            /* 无法解析时使用SQL文本本身作为标识 */
+            e.printStackTrace();
+            return handler.getBoundSql().getSql();
+        }
+    }
+
+}
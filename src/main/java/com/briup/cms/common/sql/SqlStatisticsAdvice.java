@@ -0,0 +1,44 @@
+package com.briup.cms.common.sql;
+
+import com.briup.cms.common.util.GlobalConstants;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * 在响应头部中返回本次请求执行的SQL语句数量和总耗时
+ *
+ * 响应体写出之前响应头部还没有提交，在这里设置；正常返回和异常处理返回的响应都会经过这里。
+ * @author YuYan
+ * @date 2024-01-26 15:11:20
+ */
+@RestControllerAdvice
+public class SqlStatisticsAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(@NotNull MethodParameter returnType,
+                            @NotNull Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body,
+                                  @NotNull MethodParameter returnType,
+                                  @NotNull MediaType selectedContentType,
+                                  @NotNull Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  @NotNull ServerHttpRequest request,
+                                  @NotNull ServerHttpResponse response) {
+        SqlStatistics.Trace trace = SqlStatistics.current();
+        if (trace != null) {
+            response.getHeaders().set(GlobalConstants.SQL_COUNT_HEADER_NAME, String.valueOf(trace.getCount()));
+            response.getHeaders().set(GlobalConstants.SQL_TIME_HEADER_NAME, String.format("%.3f", trace.getMillis()));
+        }
+        return body;
+    }
+
+}
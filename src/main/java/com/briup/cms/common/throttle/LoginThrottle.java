@@ -0,0 +1,370 @@
+package com.briup.cms.common.throttle;
+
+import com.briup.cms.common.config.ConfigProperties;
+import com.briup.cms.common.exception.CmsException;
+import com.briup.cms.common.util.ObjectUtil;
+import com.briup.cms.common.util.RedisUtil;
+import com.briup.cms.common.util.ResultCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 登录限流（防暴力破解）
+ *
+ * 分别按账号和客户端IP统计登录失败次数，统计方式为滑动窗口计数：
+ * 把时间按窗口长度分段，只保留上一段和当前段的计数，
+ * 估算值 = 上一段计数 × 上一段仍在窗口内的比例 + 当前段计数。
+ *
+ * 失败次数达到阈值后开始锁定，锁定时长从基础时长开始，每多失败一次翻一倍，最多不超过最大锁定时长，
+ * 从最后一次失败的时间开始计算（失败计数滑出窗口后锁定也随之解除）。
+ * 被锁定的登录请求在查询数据库、计算密码哈希之前就被拒绝。
+ *
+ * 默认计数保存在本地的ConcurrentHashMap中（分段、读取无锁，计数用CAS更新）；
+ * 后台线程定期清除已经滑出窗口的计数；计数数量达到上限时，按最后一次失败的时间淘汰最早的一批计数，
+ * 所以撞库时内存不会无限增长，每次失败也不需要扫描全部计数。
+ * 开启Redis模式后计数保存在Redis中，多个节点共用同一套计数（计数加一、设置存活时间、更新最后失败时间
+ * 在一个Lua脚本中原子完成），Redis不可用时退回本地计数。
+ * @author YuYan
+ * @date 2024-01-22 10:18:43
+ */
+@Component
+@RequiredArgsConstructor
+public class LoginThrottle {
+
+    private static final String REDIS_KEY_PREFIX = "cms:login:fail:";
+    private static final String TYPE_USERNAME = "username";
+    private static final String TYPE_IP = "ip";
+
+    /**
+     * 失败计数加一并设置存活时间，最后一次失败的时间只会向后更新（多个节点并发时不会被较早的时间覆盖）
+     * KEYS[1]：当前段计数，KEYS[2]：最后一次失败的时间；ARGV[1]：存活时间（毫秒），ARGV[2]：本次失败的时间
+     */
+    private static final RedisScript<String> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "local c = redis.call('INCR', KEYS[1]) " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[1]) " +
+            "local last = tonumber(redis.call('GET', KEYS[2])) " +
+            "if (not last) or last < tonumber(ARGV[2]) then " +
+            "redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[1]) end " +
+            "return tostring(c)", String.class);
+
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
+    /**
+     * Redis工具
+     */
+    private final RedisUtil redisUtil;
+
+    /**
+     * 本地计数（类型:账号或IP -> 滑动窗口）
+     */
+    private final Map<String, AtomicReference<Window>> windows = new ConcurrentHashMap<>();
+    /**
+     * 淘汰本地计数时使用的锁（同一时间只需要一个线程淘汰，其他线程不等待）
+     */
+    private final ReentrantLock evictLock = new ReentrantLock();
+
+    private ScheduledExecutorService purgeExecutor;
+
+    /* 统计指标 */
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder rejectedByUsername = new LongAdder();
+    private final LongAdder rejectedByIp = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @PostConstruct
+    public void start() {
+        purgeExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cms-login-throttle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        /* 每个窗口至少清理一次，最长一分钟清理一次 */
+        long interval = Math.min(windowMillis(), TimeUnit.MINUTES.toMillis(1));
+        purgeExecutor.scheduleWithFixedDelay(
+                () -> purge(System.currentTimeMillis() / windowMillis()),
+                interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        purgeExecutor.shutdownNow();
+    }
+
+    /**
+     * 登录前检查，账号或IP处于锁定状态时直接拒绝
+     * @param username 账号
+     * @param ip 客户端IP
+     */
+    public void check(String username, String ip) {
+        if (!configProperties.isLoginThrottleEnabled()) {
+            return;
+        }
+        checked.increment();
+        long now = System.currentTimeMillis();
+        if (ObjectUtil.hasText(username)
+                && isLocked(TYPE_USERNAME, username, configProperties.getLoginThrottleUsernameThreshold(), now)) {
+            rejectedByUsername.increment();
+            throw new CmsException(ResultCode.USER_LOGIN_LOCKED);
+        }
+        if (ObjectUtil.hasText(ip)
+                && isLocked(TYPE_IP, ip, configProperties.getLoginThrottleIpThreshold(), now)) {
+            rejectedByIp.increment();
+            throw new CmsException(ResultCode.USER_LOGIN_LOCKED);
+        }
+    }
+
+    /**
+     * 记录一次登录失败
+     * @param username 账号
+     * @param ip 客户端IP
+     */
+    public void recordFailure(String username, String ip) {
+        if (!configProperties.isLoginThrottleEnabled()) {
+            return;
+        }
+        failures.increment();
+        long now = System.currentTimeMillis();
+        if (ObjectUtil.hasText(username)) {
+            increment(TYPE_USERNAME, username, now);
+        }
+        if (ObjectUtil.hasText(ip)) {
+            increment(TYPE_IP, ip, now);
+        }
+    }
+
+    /**
+     * 登录成功后清除该账号的失败计数（IP的计数保留，防止用一个账号掩护对其他账号的尝试）
+     * @param username 账号
+     */
+    public void recordSuccess(String username) {
+        if (!configProperties.isLoginThrottleEnabled() || ObjectUtil.notHasText(username)) {
+            return;
+        }
+        windows.remove(TYPE_USERNAME + ":" + username);
+        if (configProperties.isLoginThrottleRedisEnabled()) {
+            try {
+                long bucket = System.currentTimeMillis() / windowMillis();
+                redisUtil.deleteStrings(Arrays.asList(
+                        redisKey(TYPE_USERNAME, username, bucket),
+                        redisKey(TYPE_USERNAME, username, bucket - 1),
+                        redisKey(TYPE_USERNAME, username, -1)));
+            } catch (Exception e) {
+                redisErrors.increment();
+            }
+        }
+    }
+
+    /**
+     * 统计指标
+     * @return
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("mode", configProperties.isLoginThrottleRedisEnabled() ? "redis" : "local");
+        metrics.put("checked", checked.sum());
+        metrics.put("rejectedByUsername", rejectedByUsername.sum());
+        metrics.put("rejectedByIp", rejectedByIp.sum());
+        metrics.put("failures", failures.sum());
+        metrics.put("redisErrors", redisErrors.sum());
+        metrics.put("localEntries", windows.size());
+        metrics.put("localEvictions", evictions.sum());
+        return metrics;
+    }
+
+    /**
+     * 根据失败次数计算锁定时长
+     * @param failures 窗口内的失败次数
+     * @param threshold 开始锁定的失败次数
+     * @return 锁定时长（单位：毫秒），未达到阈值时返回0
+     */
+    private long lockoutMillis(double failures, int threshold) {
+        if (threshold <= 0 || failures < threshold) {
+            return 0;
+        }
+        long base = TimeUnit.SECONDS.toMillis(configProperties.getLoginThrottleBaseLockout());
+        long max = TimeUnit.SECONDS.toMillis(configProperties.getLoginThrottleMaxLockout());
+        int doublings = (int) Math.min(30, (long) failures - threshold);
+        return Math.min(max, base << doublings);
+    }
+
+    private boolean isLocked(String type, String id, int threshold, long now) {
+        long[] state = read(type, id, now);
+        double estimated = estimate(state[0], state[1], now);
+        return now < state[2] + lockoutMillis(estimated, threshold);
+    }
+
+    /**
+     * 读取计数
+     * @return 依次为上一段计数、当前段计数、最后一次失败的时间
+     */
+    private long[] read(String type, String id, long now) {
+        long bucket = now / windowMillis();
+        if (configProperties.isLoginThrottleRedisEnabled()) {
+            try {
+                return redisUtil.getCounters(Arrays.asList(
+                        redisKey(type, id, bucket - 1),
+                        redisKey(type, id, bucket),
+                        redisKey(type, id, -1)));
+            } catch (Exception e) {
+                redisErrors.increment();
+            }
+        }
+        AtomicReference<Window> ref = windows.get(type + ":" + id);
+        return ref == null ? new long[3] : ref.get().shift(bucket).toArray();
+    }
+
+    private void increment(String type, String id, long now) {
+        long bucket = now / windowMillis();
+        if (configProperties.isLoginThrottleRedisEnabled()) {
+            try {
+                long ttl = 2 * windowMillis();
+                redisUtil.executeScript(INCREMENT_SCRIPT,
+                        Arrays.asList(redisKey(type, id, bucket), redisKey(type, id, -1)),
+                        String.valueOf(ttl), String.valueOf(now));
+                return;
+            } catch (Exception e) {
+                redisErrors.increment();
+            }
+        }
+        String key = type + ":" + id;
+        int maxEntries = configProperties.getLoginThrottleMaxEntries();
+        if (!windows.containsKey(key) && windows.size() >= maxEntries) {
+            evict(bucket, maxEntries);
+        }
+        windows.computeIfAbsent(key, k -> new AtomicReference<>(Window.EMPTY))
+                .updateAndGet(w -> w.shift(bucket).increment(now));
+    }
+
+    /**
+     * 清除已经滑出窗口的本地计数（估算值已经为0，不会再处于锁定状态），由后台线程定期执行
+     */
+    private void purge(long bucket) {
+        windows.values().removeIf(ref -> ref.get().bucket < bucket - 1);
+    }
+
+    /**
+     * 本地计数已满时淘汰一批计数：已经滑出窗口的全部清除，仍然是满的则按最后一次失败的时间
+     * 淘汰最早的十分之一（与Token载荷缓存相同的比例），之后的多次失败都不需要再扫描
+     * 已经有线程在淘汰时直接返回，不等待
+     */
+    private void evict(long bucket, int maxEntries) {
+        if (!evictLock.tryLock()) {
+            return;
+        }
+        try {
+            if (windows.size() < maxEntries) {
+                return;
+            }
+            int batch = maxEntries / 10 + 1;
+            /* 按最后一次失败的时间排列的大顶堆，保留最早的batch个 */
+            PriorityQueue<Map.Entry<String, Long>> oldest = new PriorityQueue<>(batch + 1,
+                    Comparator.comparingLong((Map.Entry<String, Long> e) -> e.getValue()).reversed());
+            Iterator<Map.Entry<String, AtomicReference<Window>>> iterator = windows.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, AtomicReference<Window>> entry = iterator.next();
+                Window window = entry.getValue().get();
+                if (window.bucket < bucket - 1) {
+                    iterator.remove();
+                    evictions.increment();
+                    continue;
+                }
+                oldest.offer(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), window.last));
+                if (oldest.size() > batch) {
+                    oldest.poll();
+                }
+            }
+            while (windows.size() >= maxEntries - batch + 1 && !oldest.isEmpty()) {
+                windows.remove(oldest.poll().getKey());
+                evictions.increment();
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    private double estimate(long previous, long current, long now) {
+        long window = windowMillis();
+        double previousWeight = 1.0 - (double) (now % window) / window;
+        return previous * previousWeight + current;
+    }
+
+    private long windowMillis() {
+        return Math.max(1000, TimeUnit.SECONDS.toMillis(configProperties.getLoginThrottleWindow()));
+    }
+
+    /**
+     * Redis键，bucket为-1时表示最后一次失败的时间
+     */
+    private static String redisKey(String type, String id, long bucket) {
+        return REDIS_KEY_PREFIX + type + ":" + id + ":" + (bucket < 0 ? "last" : String.valueOf(bucket));
+    }
+
+    /**
+     * 本地滑动窗口的状态（不可变，通过CAS整体替换）
+     */
+    private static final class Window {
+
+        private static final Window EMPTY = new Window(0, 0, 0, 0);
+
+        /* 当前段的序号（时间 / 窗口长度） */
+        private final long bucket;
+        /* 上一段的计数 */
+        private final long previous;
+        /* 当前段的计数 */
+        private final long current;
+        /* 最后一次失败的时间 */
+        private final long last;
+
+        private Window(long bucket, long previous, long current, long last) {
+            this.bucket = bucket;
+            this.previous = previous;
+            this.current = current;
+            this.last = last;
+        }
+
+        /**
+         * 把窗口移动到指定的段
+         */
+        private Window shift(long target) {
+            if (target == bucket) {
+                return this;
+            }
+            if (target == bucket + 1) {
+                return new Window(target, current, 0, last);
+            }
+            return new Window(target, 0, 0, last);
+        }
+
+        private Window increment(long now) {
+            return new Window(bucket, previous, current + 1, now);
+        }
+
+        private long[] toArray() {
+            return new long[]{previous, current, last};
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.briup.cms.common.token;
+
+import com.briup.cms.common.config.ConfigProperties;
+import com.briup.cms.common.exception.CmsException;
+import com.briup.cms.common.util.ObjectUtil;
+import com.briup.cms.common.util.RedisUtil;
+import com.briup.cms.common.util.ResultCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 刷新令牌存储
+ *
+ * 刷新令牌是不透明的随机字符串，只保存在服务端（Redis中只保存它的SHA-256摘要）：
+ * 1）每次登录创建一个令牌族（family），之后通过刷新得到的令牌都属于同一个族，族的存活时间从登录开始计算，刷新不会延长
+ * 2）每个刷新令牌只能使用一次，使用时原子地把它标记为“已使用”，然后签发同一族的新令牌（轮换）
+ * 3）已使用的令牌再次出现说明令牌可能已被盗用，此时作废整个令牌族，合法用户和攻击者都需要重新登录
+ * 4）登出时作废令牌族，该族中尚未使用的刷新令牌也随之失效
+ * 5）按用户记录尚未过期的令牌族（有序集合，分数为过期时间），强制下线时作废该用户的所有令牌族
+ * @author YuYan
+ * @date 2024-01-23 09:41:27
+ */
+@Component
+@RequiredArgsConstructor
+public class RefreshTokenStore {
+
+    private static final String TOKEN_KEY_PREFIX = "cms:token:refresh:";
+    private static final String FAMILY_KEY_PREFIX = "cms:token:family:";
+    private static final String USER_FAMILIES_KEY_PREFIX = "cms:token:families:";
+    private static final String SEPARATOR = "|";
+    /* 已使用的令牌在值的前面加上该标记 */
+    private static final String USED_MARK = "!";
+
+    /**
+     * 读取令牌并标记为已使用（保留原有的存活时间），返回标记前的值
+     */
+    private static final RedisScript<String> CONSUME_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('GET', KEYS[1]) " +
+            "if (not v) or string.sub(v, 1, 1) == ARGV[1] then return v end " +
+            "local ttl = redis.call('PTTL', KEYS[1]) " +
+            "if ttl > 0 then redis.call('PSETEX', KEYS[1], ttl, ARGV[1] .. v) end " +
+            "return v", String.class);
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
+    /**
+     * Redis工具
+     */
+    private final RedisUtil redisUtil;
+
+    /**
+     * 为一次登录创建新的令牌族
+     * @param userId 用户ID
+     * @return 令牌族ID
+     */
+    public String createFamily(Long userId) {
+        String familyId = UUID.randomUUID().toString();
+        long expire = configProperties.getJwtRefreshTokenExpire();
+        redisUtil.setString(FAMILY_KEY_PREFIX + familyId, String.valueOf(userId),
+                expire, TimeUnit.SECONDS);
+        /* 记录到该用户的令牌族集合中，顺便清除已经过期的令牌族；所有令牌族的存活时间相同，
+         * 集合的存活时间与最新的令牌族一致 */
+        String key = USER_FAMILIES_KEY_PREFIX + userId;
+        long now = System.currentTimeMillis();
+        redisUtil.zadd(key, familyId, now + TimeUnit.SECONDS.toMillis(expire));
+        redisUtil.zremRangeByScore(key, 0, now);
+        redisUtil.expireString(key, expire, TimeUnit.SECONDS);
+        return familyId;
+    }
+
+    /**
+     * 签发属于某个令牌族的刷新令牌
+     * @param userId 用户ID
+     * @param familyId 令牌族ID
+     * @return 刷新令牌
+     */
+    public String issue(Long userId, String familyId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        redisUtil.setString(TOKEN_KEY_PREFIX + digest(token), userId + SEPARATOR + familyId,
+                configProperties.getJwtRefreshTokenExpire(), TimeUnit.SECONDS);
+        return token;
+    }
+
+    /**
+     * 使用刷新令牌（每个令牌只能使用一次）
+     * @param token 刷新令牌
+     * @return 令牌所属的用户和令牌族；令牌被重复使用时整个令牌族已被作废，返回值的reused为true
+     */
+    public Session consume(String token) {
+        if (ObjectUtil.notHasText(token)) {
+            throw new CmsException(ResultCode.TOKEN_REFRESH_INVALID);
+        }
+        String value = redisUtil.executeScript(CONSUME_SCRIPT,
+                Collections.singletonList(TOKEN_KEY_PREFIX + digest(token)), USED_MARK);
+        if (value == null) {
+            throw new CmsException(ResultCode.TOKEN_REFRESH_INVALID);
+        }
+        if (value.startsWith(USED_MARK)) {
+            /* 令牌被重复使用，作废整个令牌族 */
+            Session session = Session.parse(value.substring(USED_MARK.length()), true);
+            revokeFamily(session.getFamilyId());
+            return session;
+        }
+        Session session = Session.parse(value, false);
+        /* 令牌族已经过期或被作废（登出、检测到重复使用） */
+        if (redisUtil.getString(FAMILY_KEY_PREFIX + session.getFamilyId()) == null) {
+            throw new CmsException(ResultCode.TOKEN_REFRESH_INVALID);
+        }
+        return session;
+    }
+
+    /**
+     * 作废令牌族（该族中的所有刷新令牌都不能再使用）
+     * @param familyId 令牌族ID
+     */
+    public void revokeFamily(String familyId) {
+        if (ObjectUtil.hasText(familyId)) {
+            redisUtil.deleteStrings(Collections.singletonList(FAMILY_KEY_PREFIX + familyId));
+        }
+    }
+
+    /**
+     * 作废某个用户的所有令牌族（强制下线）
+     * @param userId 用户ID
+     * @return 作废的令牌族数量
+     */
+    public int revokeAllFamilies(Long userId) {
+        String key = USER_FAMILIES_KEY_PREFIX + userId;
+        try {
+            Set<String> familyIds = redisUtil.zrangeByScore(key, System.currentTimeMillis(), Double.MAX_VALUE).keySet();
+            List<String> keys = new ArrayList<>(familyIds.size() + 1);
+            for (String familyId : familyIds) {
+                keys.add(FAMILY_KEY_PREFIX + familyId);
+            }
+            keys.add(key);
+            redisUtil.deleteStrings(keys);
+            return familyIds.size();
+        } catch (RuntimeException e) {
+            /* 无法确认已经作废时不能告诉管理员下线成功 */
+            e.printStackTrace();
+            throw new CmsException(ResultCode.SYSTEM_BUSY);
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 刷新令牌所属的用户和令牌族
+     */
+    public static class Session {
+        private final Long userId;
+        private final String familyId;
+        private final boolean reused;
+
+        private Session(Long userId, String familyId, boolean reused) {
+            this.userId = userId;
+            this.familyId = familyId;
+            this.reused = reused;
+        }
+
+        private static Session parse(String value, boolean reused) {
+            int index = value.indexOf(SEPARATOR);
+            return new Session(Long.valueOf(value.substring(0, index)),
+                    value.substring(index + 1), reused);
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public String getFamilyId() {
+            return familyId;
+        }
+
+        public boolean isReused() {
+            return reused;
+        }
+    }
+
+}
@@ -0,0 +1,257 @@
+package com.briup.cms.common.token;
+
+import com.briup.cms.common.config.ConfigProperties;
+import com.briup.cms.common.exception.CmsException;
+import com.briup.cms.common.util.ObjectUtil;
+import com.briup.cms.common.util.RedisUtil;
+import com.briup.cms.common.util.ResultCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token吊销名单
+ *
+ * 每个Token签发时都带有唯一的ID（jti），登出或被管理员强制下线时，把jti和Token的过期时间一起记入吊销名单：
+ * 1）Redis有序集合保存全量吊销名单（成员为jti，分数为过期时间），过期的成员定期清除，名单大小只与有效期内的登出次数有关
+ * 2）每个节点在本地维护一个布隆过滤器，每次请求先查询过滤器，绝大多数没有被吊销的Token在本地就能判定放行，
+ * 只有过滤器判定“可能被吊销”时才查询Redis确认，此时Redis不可用则按已吊销处理（安全优先）
+ * 3）吊销时通过Redis频道通知其他节点把jti加入各自的过滤器，
+ * 另外每隔一段时间从Redis全量重建一次过滤器（顺便淘汰已过期的jti），即使通知丢失，
+ * 吊销在其他节点上生效的延迟也不超过重建间隔
+ *
+ * 登录时按用户记录已签发Token的jti，管理员可以据此吊销某个用户的全部Token（强制下线）。
+ * @author YuYan
+ * @date 2024-01-22 15:26:48
+ */
+@Component
+@RequiredArgsConstructor
+public class TokenRevocation {
+
+    private static final String REVOKED_KEY = "cms:token:revoked";
+    private static final String SESSIONS_KEY_PREFIX = "cms:token:sessions:";
+    private static final String MESSAGE_SEPARATOR = "|";
+
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
+    /**
+     * Redis工具
+     */
+    private final RedisUtil redisUtil;
+
+    /**
+     * 本地布隆过滤器（重建时整体替换）
+     */
+    private volatile BloomFilter filter;
+    /**
+     * 正在重建的过滤器（重建期间收到的通知同时写入新旧两个过滤器，避免替换后丢失）
+     */
+    private volatile BloomFilter rebuilding;
+
+    /* 统计指标 */
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder filterHits = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+
+    private ScheduledExecutorService syncExecutor;
+
+    @PostConstruct
+    public void start() {
+        filter = newFilter();
+        syncQuietly();
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cms-token-revocation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1000, configProperties.getTokenRevocationSyncInterval());
+        syncExecutor.scheduleWithFixedDelay(this::syncQuietly,
+                interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        syncExecutor.shutdownNow();
+    }
+
+    /**
+     * 记录某个用户签发的Token（用于强制下线）
+     * @param userId 用户ID
+     * @param jti Token的ID
+     * @param expireAt Token的过期时间（毫秒时间戳）
+     */
+    public void track(Long userId, String jti, long expireAt) {
+        if (userId == null || ObjectUtil.notHasText(jti)) {
+            return;
+        }
+        String key = SESSIONS_KEY_PREFIX + userId;
+        try {
+            redisUtil.zadd(key, jti, expireAt);
+            /* 顺便清除该用户已经过期的Token，键的存活时间与最晚过期的Token一致 */
+            redisUtil.zremRangeByScore(key, 0, System.currentTimeMillis());
+            redisUtil.expireString(key, Math.max(1, expireAt - System.currentTimeMillis()),
+                    TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            /* 记录失败只影响强制下线，不影响登录 */
+            redisErrors.increment();
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 吊销一个Token
+     * @param jti Token的ID
+     * @param expireAt Token的过期时间（毫秒时间戳），过期后自动移出吊销名单
+     */
+    public void revoke(String jti, long expireAt) {
+        if (ObjectUtil.notHasText(jti) || expireAt <= System.currentTimeMillis()) {
+            return;
+        }
+        try {
+            redisUtil.zadd(REVOKED_KEY, jti, expireAt);
+        } catch (Exception e) {
+            /* 写入失败时无法保证其他节点能够拒绝该Token，通知调用者 */
+            redisErrors.increment();
+            throw new CmsException(ResultCode.SYSTEM_BUSY);
+        }
+        put(jti);
+        try {
+            redisUtil.publish(configProperties.getTokenRevocationChannel(),
+                    jti + MESSAGE_SEPARATOR + expireAt);
+        } catch (Exception e) {
+            /* 通知失败时其他节点在下次重建过滤器时生效 */
+            redisErrors.increment();
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 吊销某个用户的全部Token（强制下线）
+     * @param userId 用户ID
+     * @return 吊销的Token数量
+     */
+    public int revokeAll(Long userId) {
+        String key = SESSIONS_KEY_PREFIX + userId;
+        Map<String, Double> sessions;
+        try {
+            sessions = redisUtil.zrangeByScore(key, System.currentTimeMillis(), Double.MAX_VALUE);
+        } catch (Exception e) {
+            redisErrors.increment();
+            throw new CmsException(ResultCode.SYSTEM_BUSY);
+        }
+        for (Map.Entry<String, Double> session : sessions.entrySet()) {
+            revoke(session.getKey(), session.getValue().longValue());
+        }
+        redisUtil.deleteStrings(Collections.singletonList(key));
+        return sessions.size();
+    }
+
+    /**
+     * 判断Token是否已被吊销
+     * @param jti Token的ID（没有ID的Token是旧版本签发的，无法吊销）
+     * @return
+     */
+    public boolean isRevoked(String jti) {
+        if (ObjectUtil.notHasText(jti)) {
+            return false;
+        }
+        checked.increment();
+        if (!filter.mightContain(jti)) {
+            return false;
+        }
+        filterHits.increment();
+        boolean revoked;
+        try {
+            Double expireAt = redisUtil.zscore(REVOKED_KEY, jti);
+            revoked = expireAt != null && expireAt > System.currentTimeMillis();
+        } catch (Exception e) {
+            /* 无法确认时按已吊销处理 */
+            redisErrors.increment();
+            revoked = true;
+        }
+        if (revoked) {
+            rejected.increment();
+        }
+        return revoked;
+    }
+
+    /**
+     * 处理其他节点发来的吊销通知
+     * @param message 格式为“jti|过期时间”
+     */
+    public void onMessage(String message) {
+        int index = message.lastIndexOf(MESSAGE_SEPARATOR);
+        String jti = index < 0 ? message : message.substring(0, index);
+        if (ObjectUtil.hasText(jti)) {
+            put(jti);
+        }
+    }
+
+    /**
+     * 统计指标
+     * @return
+     */
+    public Map<String, Object> metrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("checked", checked.sum());
+        metrics.put("filterHits", filterHits.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("redisErrors", redisErrors.sum());
+        return metrics;
+    }
+
+    /**
+     * 从Redis全量重建本地过滤器，并清除已过期的jti
+     */
+    private void sync() {
+        BloomFilter rebuilt = newFilter();
+        rebuilding = rebuilt;
+        try {
+            long now = System.currentTimeMillis();
+            redisUtil.zremRangeByScore(REVOKED_KEY, 0, now);
+            Map<String, Double> revoked = redisUtil.zrangeByScore(REVOKED_KEY, now, Double.MAX_VALUE);
+            for (String jti : revoked.keySet()) {
+                rebuilt.put(jti);
+            }
+            filter = rebuilt;
+        } finally {
+            rebuilding = null;
+        }
+    }
+
+    private void put(String jti) {
+        filter.put(jti);
+        BloomFilter next = rebuilding;
+        if (next != null) {
+            next.put(jti);
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (Exception e) {
+            /* 重建失败时继续使用旧的过滤器 */
+            redisErrors.increment();
+            e.printStackTrace();
+        }
+    }
+
+    private BloomFilter newFilter() {
+        return new BloomFilter(configProperties.getTokenRevocationExpectedInsertions(),
+                configProperties.getTokenRevocationFalsePositiveRate());
+    }
+
+}
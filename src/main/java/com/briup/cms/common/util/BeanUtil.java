@@ -1,7 +1,6 @@
 package com.briup.cms.common.util;
 
 import com.briup.cms.common.exception.CmsException;
-import org.springframework.beans.BeanUtils;
 
 /**
  * 工具类 - 处理数据模型对象
@@ -10,20 +9,24 @@ import org.springframework.beans.BeanUtils;
  */
 public class BeanUtil {
 
+    @SuppressWarnings("unchecked")
     public static void copyProperties(Object source, Object target) {
-        BeanUtils.copyProperties(source, target);
+        /* 使用按类型缓存的属性复制器，不再每次反射复制 */
+        PropertyCopier<Object, Object> copier = (PropertyCopier<Object, Object>)
+                PropertyCopier.of(source.getClass(), target.getClass());
+        copier.copy(source, target);
     }
 
+    @SuppressWarnings("unchecked")
     public static <T> T copyProperties(Object source, Class<T> poType) {
         if (ObjectUtil.isNull(source)) {
             return null;
         }
         try {
-            /* 通过反射机制创建目标对象 */
-            T target = poType.newInstance();
-            /* 从源对象中复制属性到目标对象中 */
-            BeanUtils.copyProperties(source, target);
-            return target;
+            /* 创建目标对象并从源对象中复制属性（构造器和属性方法在第一次复制时绑定并缓存） */
+            PropertyCopier<Object, T> copier = (PropertyCopier<Object, T>)
+                    PropertyCopier.of(source.getClass(), poType);
+            return copier.copy(source);
         } catch (Exception e) {
             e.printStackTrace();
             throw new CmsException(ResultCode.SYSTEM_INNER_ERROR);
@@ -0,0 +1,111 @@
+package com.briup.cms.common.util;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.briup.cms.common.exception.CmsException;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 游标分页对象（Keyset/Seek分页）
+ *
+ * 与普通的pageNum/pageSize分页不同，游标分页不使用OFFSET跳过前面的数据，
+ * 而是由客户端传入上一页最后一条数据的游标（时间+ID），
+ * 查询时直接使用"(时间, ID) < (游标时间, 游标ID)"的条件定位到下一页，
+ * 并且不再执行COUNT(*)统计总数，所以翻到再深的页码，查询开销都和第一页一样。
+ * 时间为空的数据按MySQL的规则排在最后，游标进入这一段之后只按ID定位（游标时间记为null）。
+ * @author YuYan
+ * @date 2024-01-15 10:12:36
+ */
+@Getter
+@Setter
+public class CursorPage<T> extends Page<T> {
+
+    /* 游标中表示时间为空的标记 */
+    private static final String NULL_TIME = "null";
+
+    /**
+     * 上一页最后一条数据的时间（游标ID不为空而时间为空，表示上一页最后一条数据的时间为空）
+     */
+    @JsonIgnore
+    private Date afterTime;
+    /**
+     * 上一页最后一条数据的ID（为空表示查询第一页）
+     */
+    @JsonIgnore
+    private Long afterId;
+    /**
+     * 下一页的游标，返回给客户端，没有下一页时为空
+     */
+    private String next;
+
+    public CursorPage() {
+        super(1, 10, false);
+    }
+
+    public CursorPage(long size, String after) {
+        /* 游标分页永远只取"第一页"，并且关闭总数统计 */
+        super(1, size, false);
+        decode(after);
+    }
+
+    /**
+     * 是否为查询第一页（没有携带游标）
+     * @return
+     */
+    @JsonIgnore
+    public boolean isFirst() {
+        return afterId == null;
+    }
+
+    /**
+     * 根据本页最后一条数据生成下一页的游标
+     * 本页数据不满一页时，说明已经没有下一页了
+     * @param time 最后一条数据的时间（可以为空）
+     * @param id 最后一条数据的ID
+     */
+    public void fillNext(Date time, Long id) {
+        if (getRecords().size() < getSize() || id == null) {
+            this.next = null;
+            return;
+        }
+        this.next = encode(time, id);
+    }
+
+    /**
+     * 将时间和ID编码为不透明的游标字符串
+     * @param time 为空时编码为null
+     * @param id
+     * @return
+     */
+    public static String encode(Date time, Long id) {
+        String raw = (time == null ? NULL_TIME : String.valueOf(time.getTime())) + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析客户端传入的游标字符串
+     * @param after
+     */
+    private void decode(String after) {
+        if (ObjectUtil.notHasText(after)) {
+            return;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(after),
+                    StandardCharsets.UTF_8);
+            int index = raw.indexOf(':');
+            String time = raw.substring(0, index);
+            this.afterTime = NULL_TIME.equals(time) ? null : new Date(Long.parseLong(time));
+            this.afterId = Long.parseLong(raw.substring(index + 1));
+        } catch (RuntimeException e) {
+            throw new CmsException(ResultCode.PARAM_IS_INVALID);
+        }
+    }
+
+}
@@ -4,10 +4,12 @@ import com.alibaba.excel.EasyExcel;
 import com.alibaba.excel.ExcelWriter;
 import com.alibaba.excel.converters.Converter;
 import com.alibaba.excel.read.builder.ExcelReaderBuilder;
+import com.alibaba.excel.read.listener.ReadListener;
 import com.alibaba.excel.support.ExcelTypeEnum;
 import com.alibaba.excel.write.builder.ExcelWriterBuilder;
 import com.alibaba.excel.write.metadata.WriteSheet;
 import com.briup.cms.common.config.ConfigProperties;
+import com.briup.cms.common.excel.ExcelStreamWriter;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.apache.poi.ss.formula.functions.T;
@@ -45,6 +47,25 @@ public class ExcelUtil {
         return builder.doReadAllSync();
     }
 
+    /**
+     * 流式读取Excel表格（第一个工作表）
+     * 每解析出一行数据就交给监听器处理，不会把整张表格读入内存，适合数据量大的导入
+     * @param is 输入流
+     * @param tClass 与表格对应的实体类
+     * @param listener 逐行处理数据的监听器
+     * @param converters 转换器
+     */
+    public <Entity> void read(InputStream is, Class<Entity> tClass, ReadListener<Entity> listener, Converter<?>...converters) {
+        ExcelReaderBuilder builder = EasyExcel.read(is, tClass, listener);
+        /* 遍历数组，注册所有的转换器 */
+        if (converters != null && converters.length != 0) {
+            for (Converter<?> converter : converters) {
+                builder.registerConverter(converter);
+            }
+        }
+        builder.sheet().doRead();
+    }
+
     public <Entity> void write(OutputStream os, Class<Entity> tClass, List<Entity> dataList, Converter<?>...converters) {
         /* 获取到输出器的建造者对象，用来指定输出的相关规则属性 */
         ExcelWriterBuilder builder = EasyExcel.write();
@@ -71,4 +92,30 @@ public class ExcelUtil {
         writer.close();
     }
 
+    /**
+     * 创建流式写出器，适合数据量大的导出（不需要事先把全部数据放进List）
+     * 写出器用完后必须调用close()，但不会关闭输出流
+     * @param os 输出流
+     * @param tClass 与表格对应的实体类
+     * @param sheetName 工作表名称
+     * @param converters 转换器
+     * @return
+     */
+    public <Entity> ExcelStreamWriter<Entity> openWriter(OutputStream os, Class<Entity> tClass, String sheetName, Converter<?>...converters) {
+        ExcelWriterBuilder writerBuilder = EasyExcel.write(os, tClass)
+                /* 指定要输出的文件类型 */
+                .excelType(configProperties.getExcelExportFileType())
+                /* 由调用者负责关闭输出流 */
+                .autoCloseStream(false);
+        /* 遍历数组，注册所有的转换器 */
+        if (converters != null && converters.length != 0) {
+            for (Converter<?> converter : converters) {
+                writerBuilder.registerConverter(converter);
+            }
+        }
+        return new ExcelStreamWriter<>(writerBuilder.build(), os, sheetName,
+                configProperties.getExcelExportChunkSize(),
+                configProperties.getExcelExportMaxRowsPerSheet());
+    }
+
 }
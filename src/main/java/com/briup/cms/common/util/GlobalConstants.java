@@ -17,6 +17,15 @@ public class GlobalConstants {
      */
     public final static String TOKEN_HEADER_NAME = "Authorization";
 
+    /**
+     * 本次请求执行的SQL语句数量在响应头部中的字段名
+     */
+    public final static String SQL_COUNT_HEADER_NAME = "X-Sql-Count";
+    /**
+     * 本次请求执行SQL语句的总耗时（单位：毫秒）在响应头部中的字段名
+     */
+    public final static String SQL_TIME_HEADER_NAME = "X-Sql-Time";
+
     /**
      * 逻辑删除标志位值，1表示删除，0表示未删除
      */
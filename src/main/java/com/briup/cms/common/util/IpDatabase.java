@@ -0,0 +1,290 @@
+package com.briup.cms.common.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 本地IP归属地数据库（不可变快照）
+ *
+ * 数据文件为UTF-8编码的文本文件，每行一个IP段：起始IP,结束IP,归属地
+ * 以#开头的行和空行会被忽略，IPv4与IPv6的IP段可以写在同一个文件中。
+ * 加载后IPv4段保存在int数组中，IPv6段拆成高64位、低64位保存在long数组中，
+ * 按起始地址排序后通过二分查找定位，IPv4地址的查询过程不创建任何中间对象。
+ * 归属地字符串经过去重，每个IP段只保存一个下标。
+ * @author YuYan
+ * @date 2024-01-17 09:41:15
+ */
+public final class IpDatabase {
+
+    /**
+     * 空数据库
+     */
+    public static final IpDatabase EMPTY = new IpDatabase(
+            new int[0], new int[0], new int[0],
+            new long[0], new long[0], new long[0], new long[0], new int[0],
+            new String[0]);
+
+    /* IPv4段：起始地址、结束地址（按无符号比较）、归属地下标 */
+    private final int[] v4Starts;
+    private final int[] v4Ends;
+    private final int[] v4Locations;
+    /* IPv6段：起始地址高/低64位、结束地址高/低64位（按无符号比较）、归属地下标 */
+    private final long[] v6StartHigh;
+    private final long[] v6StartLow;
+    private final long[] v6EndHigh;
+    private final long[] v6EndLow;
+    private final int[] v6Locations;
+    /* 去重后的归属地字符串表 */
+    private final String[] locations;
+
+    private IpDatabase(int[] v4Starts, int[] v4Ends, int[] v4Locations,
+                       long[] v6StartHigh, long[] v6StartLow,
+                       long[] v6EndHigh, long[] v6EndLow, int[] v6Locations,
+                       String[] locations) {
+        this.v4Starts = v4Starts;
+        this.v4Ends = v4Ends;
+        this.v4Locations = v4Locations;
+        this.v6StartHigh = v6StartHigh;
+        this.v6StartLow = v6StartLow;
+        this.v6EndHigh = v6EndHigh;
+        this.v6EndLow = v6EndLow;
+        this.v6Locations = v6Locations;
+        this.locations = locations;
+    }
+
+    /**
+     * IP段数量
+     * @return
+     */
+    public int size() {
+        return v4Starts.length + v6StartHigh.length;
+    }
+
+    /**
+     * 查询IP地址的归属地
+     * @param ip IPv4或IPv6地址字符串
+     * @return 归属地，查不到或者地址格式非法时返回null
+     */
+    public String lookup(String ip) {
+        if (ObjectUtil.notHasText(ip)) {
+            return null;
+        }
+        if (ip.indexOf(':') < 0) {
+            long v4 = parseIpv4(ip);
+            return v4 < 0 ? null : lookupV4((int) v4);
+        }
+        byte[] bytes = parseIpv6(ip);
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length == 4) {
+            /* IPv4映射地址（::ffff:a.b.c.d）按IPv4处理 */
+            return lookupV4(toInt(bytes, 0));
+        }
+        return lookupV6(toLong(bytes, 0), toLong(bytes, 8));
+    }
+
+    private String lookupV4(int ip) {
+        /* 二分查找最后一个起始地址小于等于ip的IP段 */
+        int low = 0;
+        int high = v4Starts.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.compareUnsigned(v4Starts[mid], ip) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0 || Integer.compareUnsigned(ip, v4Ends[found]) > 0) {
+            return null;
+        }
+        return locations[v4Locations[found]];
+    }
+
+    private String lookupV6(long ipHigh, long ipLow) {
+        int low = 0;
+        int high = v6StartHigh.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (compare128(v6StartHigh[mid], v6StartLow[mid], ipHigh, ipLow) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0 || compare128(ipHigh, ipLow, v6EndHigh[found], v6EndLow[found]) > 0) {
+            return null;
+        }
+        return locations[v6Locations[found]];
+    }
+
+    /**
+     * 从数据文件加载数据库
+     * @param file 数据文件
+     * @return
+     * @throws IOException 文件读取失败或者内容格式错误
+     */
+    public static IpDatabase load(Path file) throws IOException {
+        List<long[]> v4 = new ArrayList<>();
+        List<long[]> v6 = new ArrayList<>();
+        Map<String, Integer> locationIndex = new HashMap<>();
+        List<String> locationTable = new ArrayList<>();
+
+        try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = br.readLine()) != null) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",", 3);
+                if (parts.length < 3) {
+                    throw new IOException("IP数据文件第" + lineNo + "行格式错误：" + line);
+                }
+                String start = parts[0].trim();
+                String end = parts[1].trim();
+                String location = parts[2].trim();
+                Integer index = locationIndex.get(location);
+                if (index == null) {
+                    index = locationTable.size();
+                    locationIndex.put(location, index);
+                    locationTable.add(location);
+                }
+                if (start.indexOf(':') < 0) {
+                    long s = parseIpv4(start);
+                    long e = parseIpv4(end);
+                    if (s < 0 || e < 0 || s > e) {
+                        throw new IOException("IP数据文件第" + lineNo + "行地址错误：" + line);
+                    }
+                    v4.add(new long[]{s, e, index});
+                } else {
+                    byte[] s = parseIpv6(start);
+                    byte[] e = parseIpv6(end);
+                    if (s == null || e == null || s.length != 16 || e.length != 16) {
+                        throw new IOException("IP数据文件第" + lineNo + "行地址错误：" + line);
+                    }
+                    v6.add(new long[]{toLong(s, 0), toLong(s, 8),
+                            toLong(e, 0), toLong(e, 8), index});
+                }
+            }
+        }
+
+        /* 按起始地址排序，供二分查找使用 */
+        v4.sort(Comparator.comparingLong(r -> r[0]));
+        v6.sort((a, b) -> compare128(a[0], a[1], b[0], b[1]));
+
+        int[] v4Starts = new int[v4.size()];
+        int[] v4Ends = new int[v4.size()];
+        int[] v4Locations = new int[v4.size()];
+        for (int i = 0; i < v4.size(); i++) {
+            long[] r = v4.get(i);
+            v4Starts[i] = (int) r[0];
+            v4Ends[i] = (int) r[1];
+            v4Locations[i] = (int) r[2];
+        }
+        long[] v6StartHigh = new long[v6.size()];
+        long[] v6StartLow = new long[v6.size()];
+        long[] v6EndHigh = new long[v6.size()];
+        long[] v6EndLow = new long[v6.size()];
+        int[] v6Locations = new int[v6.size()];
+        for (int i = 0; i < v6.size(); i++) {
+            long[] r = v6.get(i);
+            v6StartHigh[i] = r[0];
+            v6StartLow[i] = r[1];
+            v6EndHigh[i] = r[2];
+            v6EndLow[i] = r[3];
+            v6Locations[i] = (int) r[4];
+        }
+        return new IpDatabase(v4Starts, v4Ends, v4Locations,
+                v6StartHigh, v6StartLow, v6EndHigh, v6EndLow, v6Locations,
+                locationTable.toArray(new String[0]));
+    }
+
+    /**
+     * 解析点分十进制IPv4地址，不做任何DNS查询
+     * @param ip
+     * @return 0~2^32-1之间的地址值，格式非法时返回-1
+     */
+    static long parseIpv4(String ip) {
+        long result = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                result = (result << 8) | octet;
+                octet = -1;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || octet < 0) {
+            return -1;
+        }
+        return (result << 8) | octet;
+    }
+
+    /**
+     * 解析IPv6地址（含冒号的字符串一定会被当做字面量处理，不会触发DNS查询）
+     * @param ip
+     * @return 16字节地址；IPv4映射地址返回4字节；格式非法时返回null
+     */
+    private static byte[] parseIpv6(String ip) {
+        /* 去掉可能存在的区域标识（例如fe80::1%eth0） */
+        int percent = ip.indexOf('%');
+        String literal = percent < 0 ? ip : ip.substring(0, percent);
+        try {
+            return InetAddress.getByName(literal).getAddress();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static int toInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 24)
+                | ((bytes[offset + 1] & 0xff) << 16)
+                | ((bytes[offset + 2] & 0xff) << 8)
+                | (bytes[offset + 3] & 0xff);
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = (result << 8) | (bytes[offset + i] & 0xff);
+        }
+        return result;
+    }
+
+    private static int compare128(long aHigh, long aLow, long bHigh, long bLow) {
+        int c = Long.compareUnsigned(aHigh, bHigh);
+        return c != 0 ? c : Long.compareUnsigned(aLow, bLow);
+    }
+
+    @Override
+    public String toString() {
+        return "IpDatabase{v4=" + v4Starts.length + ", v6=" + v6StartHigh.length
+                + ", locations=" + locations.length + "}";
+    }
+}
@@ -1,26 +1,45 @@
 package com.briup.cms.common.util;
 
+import com.alibaba.fastjson2.JSONObject;
 import com.briup.cms.common.config.ConfigProperties;
-import lombok.Data;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * IP工具类
  *
  * 解析某个IP的归属地
+ * 优先使用启动时加载到内存中的本地IP数据库（二分查找，不发生任何网络IO），
+ * 数据文件修改后会被自动重新加载，无需重启应用。
+ * 本地数据库查不到时，可以选择开启远程查询作为异步兜底：
+ * 当前请求直接返回"未知归属地"，后台线程查询到结果后缓存起来供后续请求使用。
  *
  * @author YuYan
  * @date 2023-12-08 16:31:10
  */
-@Data
 @Component
+@RequiredArgsConstructor
 public class IpUtil {
 
     /**
@@ -33,52 +52,182 @@ public class IpUtil {
     private final static List<String> LOCAL_HOSTS = Arrays.asList(
             "localhost",
             "0:0:0:0:0:0:0:1",
+            "::1",
             "127.0.0.1"
     );
 
+    /**
+     * 当前使用的本地IP数据库（重新加载时整体替换）
+     */
+    private volatile IpDatabase database = IpDatabase.EMPTY;
+    /**
+     * 当前数据库对应的数据文件修改时间
+     */
+    private volatile long databaseModified = -1;
+    /**
+     * 远程查询结果缓存
+     */
+    private final Map<String, String> remoteCache = new ConcurrentHashMap<>();
+    /**
+     * 正在进行远程查询的IP，避免同一个IP重复提交查询
+     */
+    private final Set<String> remotePending = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService reloadExecutor;
+    private ThreadPoolExecutor remoteExecutor;
+
+    @PostConstruct
+    public void init() {
+        reloadIfModified();
+        /* 定时检查数据文件是否被修改，修改后自动重新加载 */
+        long interval = configProperties.getIpDatabaseReloadInterval();
+        if (interval > 0) {
+            reloadExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "cms-ip-db-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reloadExecutor.scheduleWithFixedDelay(this::reloadIfModified,
+                    interval, interval, TimeUnit.SECONDS);
+        }
+        /* 远程查询线程池：单线程+有界队列，队列满时拒绝新的查询任务 */
+        if (configProperties.isIpRemoteFallbackEnabled()) {
+            remoteExecutor = new ThreadPoolExecutor(1, 1,
+                    0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(256),
+                    r -> {
+                        Thread thread = new Thread(r, "cms-ip-remote");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (reloadExecutor != null) {
+            reloadExecutor.shutdownNow();
+        }
+        if (remoteExecutor != null) {
+            remoteExecutor.shutdownNow();
+        }
+    }
+
     /**
      * 解析IP地址的归属地信息
      *
      * @return
      */
     public String parseSource(String ip) {
+        /* 如果传入的地址是本机回环地址，则直接返回固定内容 */
+        if (LOCAL_HOSTS.contains(ip)) {
+            return "本机地址";
+        }
+        String source = database.lookup(ip);
+        if (source != null) {
+            return source;
+        }
+        if (remoteExecutor == null) {
+            return UNKNOWN;
+        }
+        source = remoteCache.get(ip);
+        if (source != null) {
+            return source;
+        }
+        submitRemoteQuery(ip);
+        return UNKNOWN;
+    }
+
+    /**
+     * 当前本地IP数据库中的IP段数量
+     * @return
+     */
+    public int databaseSize() {
+        return database.size();
+    }
+
+    /**
+     * 如果数据文件发生了修改，则重新加载本地IP数据库
+     * 加载失败时继续使用旧的数据库
+     */
+    public synchronized void reloadIfModified() {
+        String location = configProperties.getIpDatabasePath();
+        if (ObjectUtil.notHasText(location)) {
+            return;
+        }
+        Path file = Paths.get(location);
         try {
-            return internalParseSource(ip);
+            if (!Files.isRegularFile(file)) {
+                return;
+            }
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            if (modified == databaseModified) {
+                return;
+            }
+            database = IpDatabase.load(file);
+            databaseModified = modified;
         } catch (Exception e) {
             e.printStackTrace();
-            return UNKNOWN;
+        }
+    }
+
+    private void submitRemoteQuery(String ip) {
+        if (!remotePending.add(ip)) {
+            return;
+        }
+        Runnable task = () -> {
+            try {
+                String source = internalParseSource(ip);
+                if (ObjectUtil.hasText(source)) {
+                    /* 缓存数量超出上限时整体清空，防止无限增长 */
+                    if (remoteCache.size() >= configProperties.getIpRemoteCacheSize()) {
+                        remoteCache.clear();
+                    }
+                    remoteCache.put(ip, source);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                remotePending.remove(ip);
+            }
+        };
+        try {
+            remoteExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            /* 查询队列已满，放弃本次查询 */
+            remotePending.remove(ip);
         }
     }
 
     /**
+     * 调用远程IP查询服务解析归属地
      * @param ip
      * @return
      * @throws Exception
      */
     private String internalParseSource(String ip) throws Exception {
-        /* 如果传入的地址是本机回环地址，则直接返回固定内容 */
-        if (LOCAL_HOSTS.contains(ip)) {
-            return "本机地址";
-        }
         /* 拼接完整的请求地址（URL+参数）*/
         String requestAddress = configProperties.getIpQueryServerHost() + "?json=true&ip=" + ip;
         /* 创建URL对象 */
         URL url = new URL(requestAddress);
-        /* 创建连接对象 */
+        /* 创建连接对象，设置连接和读取超时时间 */
         URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(configProperties.getIpRemoteTimeout());
+        connection.setReadTimeout(configProperties.getIpRemoteTimeout());
         /* 建立连接 */
         connection.connect();
         /* 获取输入流准备读取响应 */
-        BufferedReader br = new BufferedReader(
-                new InputStreamReader(connection.getInputStream(), "GBK"));
-        String line;
-        /* 创建一个可变长字符串对象，用于拼接读到的字符串内容 */
         StringBuilder body = new StringBuilder();
-        while ((line = br.readLine()) != null) {
-            body.append(line);
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), "GBK"))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                body.append(line);
+            }
         }
-        /* 将可变长字符串转换为String类型并返回 */
-        return body.toString();
+        /* 从响应JSON中取出归属地字段 */
+        JSONObject json = JSONObject.parseObject(body.toString().trim());
+        return json == null ? null : json.getString("addr");
     }
 
 }
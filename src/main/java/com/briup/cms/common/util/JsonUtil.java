@@ -3,6 +3,7 @@ package com.briup.cms.common.util;
 import com.alibaba.fastjson2.JSONObject;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
@@ -39,6 +40,15 @@ public class JsonUtil {
         }
     }
 
+    public <J> J parse(String jsonStr, TypeReference<J> type) {
+        try {
+            return mapper.readValue(jsonStr, type);
+        } catch (JsonProcessingException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
     @SneakyThrows
     public Map<String, Object> parseForMap(String jsonStr) {
         return JSONObject.parseObject(jsonStr);
@@ -1,32 +1,55 @@
 package com.briup.cms.common.util;
 
+import com.briup.cms.common.config.ConfigProperties;
 import com.briup.cms.common.exception.CmsException;
 import io.jsonwebtoken.*;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Token令牌工具类，用于生成和校验Token令牌
+ *
+ * 校验通过的载荷按Token的SHA-256摘要缓存起来，缓存项在Token自身的过期时间到达时失效，
+ * 同一个Token再次请求时只需一次哈希查找，不必再做签名校验和JSON解码。
  * @author YuYan
  * @date 2023-11-23 10:47:54
  */
 @Component
+@RequiredArgsConstructor
 public class JwtUtil {
 
     // 签名密钥
     private final String secret = "briup-jwt-secret";
-    // 有效时长（单位：分钟）
-    private final int expire = 24 * 60;
+    // 解析器（配置完成后只读，可以在多个线程之间共用）
+    private final JwtParser parser = Jwts.parser().setSigningKey(secret);
+    // 已校验载荷的缓存（Token摘要 -> 载荷）
+    private final Map<String, VerifiedClaims> verified = new ConcurrentHashMap<>();
+
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
 
     // 生成令牌
     public String generate(Map<String, Object> claims) {
         return Jwts.builder()
                 // 设置载荷
                 .setClaims(claims)
+                // 设置唯一ID（用于吊销单个令牌）
+                .setId(UUID.randomUUID().toString())
                 // 设置过期时间
                 .setExpiration(expiration())
                 // 设置算法类型和签名加密密钥
@@ -45,39 +68,122 @@ public class JwtUtil {
         if (ObjectUtil.notHasText(token)) {
             throw new CmsException(ResultCode.TOKEN_EMPTY);
         }
-        try {
-            JwtParser parser = parser();
-
-            parser.parse(token);
+        // 先查询缓存，缓存中的载荷已经校验过签名
+        String key = digest(token);
+        VerifiedClaims cached = verified.get(key);
+        if (cached != null) {
+            if (System.currentTimeMillis() < cached.expireAt) {
+                return cached.claims;
+            }
+            verified.remove(key, cached);
+            throw new CmsException(ResultCode.TOKEN_EXPIRED);
+        }
 
-            return parser.parseClaimsJws(token).getBody();
+        Claims claims;
+        try {
+            // 校验签名、过期时间并解析载荷（只解析一次）
+            claims = parser.parseClaimsJws(token).getBody();
         } catch (ExpiredJwtException e) {
-            e.printStackTrace();
             throw new CmsException(ResultCode.TOKEN_EXPIRED);
-        } catch (MalformedJwtException | SignatureException e) {
-            e.printStackTrace();
+        } catch (JwtException | IllegalArgumentException e) {
             throw new CmsException(ResultCode.TOKEN_SIGNATURE_ERROR);
         }
-    }
 
-    private JwtParser parser() {
-        return Jwts.parser().setSigningKey(secret);
+        Map<String, Object> result = Collections.unmodifiableMap(new HashMap<>(claims));
+        // 没有过期时间的Token不缓存
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            cache(key, new VerifiedClaims(result, expiration.getTime()));
+        }
+        return result;
     }
 
-    private Date expiration() {
-        // 获取表示当前时间的Calendar对象
-        Calendar c = Calendar.getInstance();
-        // 加上有效时长
-        c.add(Calendar.MINUTE, expire);
-        // 转换为Date对象并返回
-        return c.getTime();
+    /**
+     * 从缓存中移除某个Token的载荷
+     * @param token
+     */
+    public void evict(String token) {
+        if (ObjectUtil.hasText(token)) {
+            verified.remove(digest(token));
+        }
     }
 
-}
+    /**
+     * 获取载荷中的令牌ID
+     * @param claims 载荷
+     * @return 没有ID时返回null
+     */
+    public String getId(Map<String, Object> claims) {
+        Object jti = claims.get(Claims.ID);
+        return jti instanceof String ? (String) jti : null;
+    }
 
+    /**
+     * 获取载荷中的过期时间
+     * @param claims 载荷
+     * @return 毫秒时间戳，没有过期时间时返回0
+     */
+    public long getExpireAt(Map<String, Object> claims) {
+        Object exp = claims.get(Claims.EXPIRATION);
+        // 载荷中的过期时间单位是秒
+        return exp instanceof Number ? ((Number) exp).longValue() * 1000 : 0;
+    }
 
+    private void cache(String key, VerifiedClaims claims) {
+        int maxSize = configProperties.getJwtClaimsCacheSize();
+        if (maxSize <= 0) {
+            return;
+        }
+        if (verified.size() >= maxSize) {
+            // 缓存已满，先清理已经过期的缓存项
+            long now = System.currentTimeMillis();
+            verified.values().removeIf(v -> v.expireAt <= now);
+            // 仍然是满的，随机淘汰一部分缓存项（被淘汰的Token下次请求时重新校验即可）
+            Iterator<String> iterator = verified.keySet().iterator();
+            for (int i = maxSize / 10 + 1; i > 0 && iterator.hasNext()
+                    && verified.size() >= maxSize; i--) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        verified.put(key, claims);
+    }
 
+    /**
+     * 计算Token的SHA-256摘要，作为缓存键（不直接用Token字符串，避免缓存中保存完整的令牌）
+     * @param token
+     * @return
+     */
+    private static String digest(String token) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
+    /**
+     * 已校验的载荷及其过期时间
+     */
+    private static class VerifiedClaims {
+        private final Map<String, Object> claims;
+        private final long expireAt;
 
+        private VerifiedClaims(Map<String, Object> claims, long expireAt) {
+            this.claims = claims;
+            this.expireAt = expireAt;
+        }
+    }
 
+    private Date expiration() {
+        // 获取表示当前时间的Calendar对象
+        Calendar c = Calendar.getInstance();
+        // 加上有效时长（访问令牌只短时间有效，过期后使用刷新令牌换取新的访问令牌）
+        c.add(Calendar.SECOND, (int) configProperties.getJwtAccessTokenExpire());
+        // 转换为Date对象并返回
+        return c.getTime();
+    }
 
+}
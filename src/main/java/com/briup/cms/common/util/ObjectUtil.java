@@ -2,6 +2,7 @@ package com.briup.cms.common.util;
 
 import org.springframework.util.StringUtils;
 
+import java.lang.reflect.Array;
 import java.util.Collection;
 
 /**
@@ -106,7 +107,8 @@ public class ObjectUtil {
             return true;
         }
         if (obj.getClass().isArray()) {
-            return ((Object[]) obj).length == 0;
+            // 基本类型数组不能强转为Object[]，统一通过反射获取长度
+            return Array.getLength(obj) == 0;
         }
         return false;
     }
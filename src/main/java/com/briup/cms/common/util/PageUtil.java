@@ -1,9 +1,12 @@
 package com.briup.cms.common.util;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.toolkit.support.SFunction;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
-import org.springframework.beans.BeanUtils;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -23,10 +26,11 @@ public class PageUtil {
      */
     public static <T, R> IPage<R> convert(
             IPage<T> source, Function<T, R> function) {
-        /* 创建一个新的分页对象 */
-        IPage<R> target = new Page<>();
-        /* 将传入的Page对象的属性复制到新Page对象中 */
-        BeanUtils.copyProperties(source, target);
+        /* 创建一个新的分页对象（游标分页对象需要保留下一页的游标） */
+        IPage<R> target = source instanceof CursorPage
+                ? new CursorPage<>() : new Page<>();
+        /* 将传入的Page对象的分页信息复制到新Page对象中 */
+        copyMeta(source, target);
         /* 将传入的Page对象中的数据集合中的每个元素都转换成目标类型 */
         List<R> newList = source.getRecords()
                 .stream()
@@ -37,4 +41,106 @@ public class PageUtil {
         return target;
     }
 
+    /**
+     * 复制分页信息（不包括数据清单），直接调用各个属性的方法，不使用反射
+     * @param source 原分页对象
+     * @param target 目标分页对象
+     */
+    public static void copyMeta(IPage<?> source, IPage<?> target) {
+        target.setCurrent(source.getCurrent());
+        target.setSize(source.getSize());
+        target.setTotal(source.getTotal());
+        if (target instanceof Page) {
+            Page<?> page = (Page<?>) target;
+            page.setOrders(new ArrayList<>(source.orders()));
+            page.setOptimizeCountSql(source.optimizeCountSql());
+            page.setSearchCount(source.searchCount());
+            page.setCountId(source.countId());
+            page.setMaxLimit(source.maxLimit());
+        }
+        if (source instanceof CursorPage && target instanceof CursorPage) {
+            CursorPage<?> from = (CursorPage<?>) source;
+            CursorPage<?> to = (CursorPage<?>) target;
+            to.setAfterTime(from.getAfterTime());
+            to.setAfterId(from.getAfterId());
+            to.setNext(from.getNext());
+        }
+    }
+
+    /**
+     * 根据请求参数创建分页对象
+     * 如果请求中携带了after参数（即使是空串），则使用游标分页模式，
+     * 否则使用原有的pageNum/pageSize分页模式
+     * @param pageNum 当前页
+     * @param pageSize 每页大小
+     * @param after 上一页返回的游标
+     * @param <T> 数据类型
+     * @return
+     */
+    public static <T> IPage<T> of(int pageNum, int pageSize, String after) {
+        return after == null ? new Page<>(pageNum, pageSize)
+                : new CursorPage<>(pageSize, after);
+    }
+
+    /**
+     * 为游标分页设置定位条件和排序规则
+     * 条件：time &lt; 游标时间 OR (time = 游标时间 AND id &lt; 游标ID) OR time IS NULL
+     * 游标时间为空时：time IS NULL AND id &lt; 游标ID
+     * 排序：time DESC, id DESC（MySQL中NULL小于任何值，时间为空的数据排在最后，与普通分页的顺序一致）
+     * 如果不是游标分页对象，则不做任何处理
+     * @param page 分页对象
+     * @param lqw 查询条件模型对象
+     * @param timeColumn 时间字段
+     * @param idColumn 主键字段
+     * @param <T> 实体类型
+     */
+    public static <T> void seek(IPage<T> page,
+                                LambdaQueryWrapper<T> lqw,
+                                SFunction<T, Date> timeColumn,
+                                SFunction<T, Long> idColumn) {
+        if (!(page instanceof CursorPage)) {
+            return;
+        }
+        CursorPage<T> cursorPage = (CursorPage<T>) page;
+        if (!cursorPage.isFirst()) {
+            Date afterTime = cursorPage.getAfterTime();
+            Long afterId = cursorPage.getAfterId();
+            if (afterTime == null) {
+                /* 已经翻到时间为空的数据，只按ID定位 */
+                lqw.and(w -> w.isNull(timeColumn).lt(idColumn, afterId));
+            } else {
+                /* time < 游标时间的比较会排除时间为空的数据，需要单独包含进来 */
+                lqw.and(w -> w.lt(timeColumn, afterTime)
+                        .or()
+                        .eq(timeColumn, afterTime)
+                        .lt(idColumn, afterId)
+                        .or()
+                        .isNull(timeColumn));
+            }
+        }
+        lqw.orderByDesc(timeColumn).orderByDesc(idColumn);
+    }
+
+    /**
+     * 查询完毕后，根据本页最后一条数据为游标分页对象生成下一页的游标
+     * 如果不是游标分页对象，则不做任何处理
+     * @param page 分页对象
+     * @param timeColumn 时间字段
+     * @param idColumn 主键字段
+     * @param <T> 实体类型
+     */
+    public static <T> void fillNext(IPage<T> page,
+                                    SFunction<T, Date> timeColumn,
+                                    SFunction<T, Long> idColumn) {
+        if (!(page instanceof CursorPage)) {
+            return;
+        }
+        List<T> records = page.getRecords();
+        if (records.isEmpty()) {
+            return;
+        }
+        T last = records.get(records.size() - 1);
+        ((CursorPage<T>) page).fillNext(timeColumn.apply(last), idColumn.apply(last));
+    }
+
 }
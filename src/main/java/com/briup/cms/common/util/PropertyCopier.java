@@ -0,0 +1,220 @@
+package com.briup.cms.common.util;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ClassUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 属性复制器（不使用反射）
+ *
+ * 每一对（源类型, 目标类型）第一次复制时，找出两边同名且类型（包括泛型）兼容的属性，
+ * 通过LambdaMetafactory把getter、setter和无参构造器绑定成普通的函数对象并缓存，
+ * 之后的复制相当于直接调用target.setXxx(source.getXxx())，不再有反射调用和属性内省的开销。
+ * 复制规则与Spring的BeanUtils.copyProperties相同；无法绑定的类型对退回使用BeanUtils。
+ * @author YuYan
+ * @date 2024-01-24 10:31:15
+ */
+public final class PropertyCopier<S, T> {
+
+    /**
+     * （源类型, 目标类型） -> 复制器
+     */
+    private static final Map<Pair, PropertyCopier<?, ?>> COPIERS = new ConcurrentHashMap<>();
+
+    private final Class<T> targetType;
+    /* 目标类型的无参构造器 */
+    private final Supplier<T> constructor;
+    /* 每个属性的getter和setter，下标一一对应 */
+    private final Function<Object, Object>[] getters;
+    private final BiConsumer<Object, Object>[] setters;
+    /* 目标属性是否为基本类型（null值不能赋给基本类型，跳过） */
+    private final boolean[] primitives;
+    /* 绑定失败时为true，退回使用BeanUtils */
+    private final boolean fallback;
+
+    @SuppressWarnings("unchecked")
+    private PropertyCopier(Class<S> sourceType, Class<T> targetType) {
+        this.targetType = targetType;
+        Supplier<T> ctor = null;
+        List<Function<Object, Object>> getterList = new ArrayList<>();
+        List<BiConsumer<Object, Object>> setterList = new ArrayList<>();
+        List<Boolean> primitiveList = new ArrayList<>();
+        boolean failed = false;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            if (!Modifier.isAbstract(targetType.getModifiers())) {
+                ctor = bindConstructor(lookup, targetType);
+            }
+            for (PropertyDescriptor targetProperty : BeanUtils.getPropertyDescriptors(targetType)) {
+                Method writeMethod = targetProperty.getWriteMethod();
+                if (writeMethod == null) {
+                    continue;
+                }
+                PropertyDescriptor sourceProperty = BeanUtils.getPropertyDescriptor(sourceType, targetProperty.getName());
+                Method readMethod = sourceProperty == null ? null : sourceProperty.getReadMethod();
+                if (readMethod == null || !isAssignable(writeMethod, readMethod)) {
+                    continue;
+                }
+                getterList.add(bindGetter(lookup, readMethod));
+                setterList.add(bindSetter(lookup, writeMethod));
+                primitiveList.add(writeMethod.getParameterTypes()[0].isPrimitive());
+            }
+        } catch (Throwable e) {
+            /* 例如属性方法不是public的，无法绑定 */
+            e.printStackTrace();
+            failed = true;
+        }
+        this.constructor = ctor;
+        this.fallback = failed;
+        this.getters = getterList.toArray(new Function[0]);
+        this.setters = setterList.toArray(new BiConsumer[0]);
+        this.primitives = new boolean[primitiveList.size()];
+        for (int i = 0; i < primitives.length; i++) {
+            primitives[i] = primitiveList.get(i);
+        }
+    }
+
+    /**
+     * 获取某一对类型的复制器（第一次获取时创建并缓存）
+     * @param sourceType 源类型
+     * @param targetType 目标类型
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <S, T> PropertyCopier<S, T> of(Class<S> sourceType, Class<T> targetType) {
+        return (PropertyCopier<S, T>) COPIERS.computeIfAbsent(new Pair(sourceType, targetType),
+                pair -> new PropertyCopier<>(sourceType, targetType));
+    }
+
+    /**
+     * 创建目标对象并复制属性
+     * @param source 源对象
+     * @return 源对象为null时返回null
+     */
+    public T copy(S source) {
+        if (source == null) {
+            return null;
+        }
+        T target;
+        try {
+            target = constructor != null ? constructor.get() : targetType.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        copy(source, target);
+        return target;
+    }
+
+    /**
+     * 把源对象的属性复制到已有的目标对象中
+     * @param source 源对象
+     * @param target 目标对象
+     */
+    public void copy(S source, T target) {
+        if (fallback) {
+            BeanUtils.copyProperties(source, target);
+            return;
+        }
+        for (int i = 0; i < getters.length; i++) {
+            Object value = getters[i].apply(source);
+            if (value != null || !primitives[i]) {
+                setters[i].accept(target, value);
+            }
+        }
+    }
+
+    /**
+     * 判断getter的返回值能否传给setter（与BeanUtils.copyProperties的规则相同）
+     * 按泛型判断，例如List<Integer>不能复制给List<Long>；泛型无法解析时只按原始类型判断
+     * @param writeMethod 目标属性的setter
+     * @param readMethod 源属性的getter
+     * @return
+     */
+    private static boolean isAssignable(Method writeMethod, Method readMethod) {
+        ResolvableType sourceType = ResolvableType.forMethodReturnType(readMethod);
+        ResolvableType targetType = ResolvableType.forMethodParameter(writeMethod, 0);
+        if (sourceType.hasUnresolvableGenerics() || targetType.hasUnresolvableGenerics()) {
+            return ClassUtils.isAssignable(writeMethod.getParameterTypes()[0], readMethod.getReturnType());
+        }
+        return targetType.isAssignableFrom(sourceType);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> bindConstructor(MethodHandles.Lookup lookup, Class<T> type) throws Throwable {
+        MethodHandle handle = lookup.findConstructor(type, MethodType.methodType(void.class));
+        CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                MethodType.methodType(Supplier.class),
+                MethodType.methodType(Object.class),
+                handle,
+                MethodType.methodType(type));
+        return (Supplier<T>) site.getTarget().invoke();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> bindGetter(MethodHandles.Lookup lookup, Method method) throws Throwable {
+        MethodHandle handle = lookup.unreflect(method);
+        CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                MethodType.methodType(Function.class),
+                MethodType.methodType(Object.class, Object.class),
+                handle,
+                MethodType.methodType(ClassUtils.resolvePrimitiveIfNecessary(method.getReturnType()),
+                        method.getDeclaringClass()));
+        return (Function<Object, Object>) site.getTarget().invoke();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> bindSetter(MethodHandles.Lookup lookup, Method method) throws Throwable {
+        MethodHandle handle = lookup.unreflect(method);
+        CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                MethodType.methodType(BiConsumer.class),
+                MethodType.methodType(void.class, Object.class, Object.class),
+                handle,
+                MethodType.methodType(void.class, method.getDeclaringClass(),
+                        ClassUtils.resolvePrimitiveIfNecessary(method.getParameterTypes()[0])));
+        return (BiConsumer<Object, Object>) site.getTarget().invoke();
+    }
+
+    /**
+     * 缓存键
+     */
+    private static final class Pair {
+        private final Class<?> source;
+        private final Class<?> target;
+
+        private Pair(Class<?> source, Class<?> target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Pair)) {
+                return false;
+            }
+            Pair other = (Pair) o;
+            return source == other.source && target == other.target;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * source.hashCode() + target.hashCode();
+        }
+    }
+
+}
@@ -2,11 +2,16 @@ package com.briup.cms.common.util;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author YuYan
@@ -18,6 +23,11 @@ public class RedisUtil {
 
     private final RedisTemplate<Object, Object> redisTemplate;
 
+    /**
+     * 以字符串形式读写的模板（用于计数器，计数值需要能被INCR命令直接累加）
+     */
+    private final StringRedisTemplate stringRedisTemplate;
+
     private final JsonUtil jsonUtil;
 
     // public void delete(Object key) {
@@ -30,11 +40,159 @@ public class RedisUtil {
     }
 
 
+    public void delete(Object key) {
+        redisTemplate.delete(key);
+    }
+
     public void set(Object key, Object value) {
         redisTemplate.opsForValue()
                 .set(key, value);
     }
 
+    public void set(Object key, Object value, long timeout, TimeUnit unit) {
+        redisTemplate.opsForValue()
+                .set(key, value, timeout, unit);
+    }
+
+    public Long increment(Object key) {
+        return redisTemplate.opsForValue().increment(key);
+    }
+
+    public Long increment(Object key, long delta) {
+        return redisTemplate.opsForValue().increment(key, delta);
+    }
+
+    /**
+     * 向指定频道发布一条消息（Redis Pub/Sub）
+     * @param channel 频道名称
+     * @param message 消息内容
+     */
+    public void publish(String channel, Object message) {
+        redisTemplate.convertAndSend(channel, message);
+    }
+
+    /**
+     * 将订阅频道收到的消息体反序列化为对象
+     * @param body 消息体
+     * @return
+     */
+    public Object deserialize(byte[] body) {
+        return redisTemplate.getValueSerializer().deserialize(body);
+    }
+
+    /**
+     * 批量读取计数器的值（不存在的计数器返回0）
+     * @param keys 计数器键
+     * @return 与keys一一对应的值
+     */
+    public long[] getCounters(List<String> keys) {
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+        long[] counters = new long[keys.size()];
+        for (int i = 0; values != null && i < counters.length; i++) {
+            String value = values.get(i);
+            counters[i] = value == null ? 0 : Long.parseLong(value);
+        }
+        return counters;
+    }
+
+    /**
+     * 设置字符串值及其存活时间（与计数器使用相同的序列化方式）
+     * @param key 键
+     * @param value 值
+     * @param timeout 存活时间
+     * @param unit 时间单位
+     */
+    public void setString(String key, String value, long timeout, TimeUnit unit) {
+        stringRedisTemplate.opsForValue().set(key, value, timeout, unit);
+    }
+
+    /**
+     * 读取字符串值
+     * @param key 键
+     * @return 不存在时返回null
+     */
+    public String getString(String key) {
+        return stringRedisTemplate.opsForValue().get(key);
+    }
+
+    /**
+     * 执行返回字符串的Lua脚本（多个命令需要原子执行时使用）
+     * @param script 脚本
+     * @param keys 脚本中的KEYS
+     * @param args 脚本中的ARGV
+     * @return
+     */
+    public String executeScript(RedisScript<String> script, List<String> keys, Object... args) {
+        return stringRedisTemplate.execute(script, keys, args);
+    }
+
+    /**
+     * 删除计数器或字符串值
+     * @param keys 键
+     */
+    public void deleteStrings(List<String> keys) {
+        stringRedisTemplate.delete(keys);
+    }
+
+    /**
+     * 向有序集合中添加成员（与计数器使用相同的序列化方式）
+     * @param key 有序集合的键
+     * @param member 成员
+     * @param score 分数
+     */
+    public void zadd(String key, String member, double score) {
+        stringRedisTemplate.opsForZSet().add(key, member, score);
+    }
+
+    /**
+     * 查询有序集合中成员的分数
+     * @param key 有序集合的键
+     * @param member 成员
+     * @return 成员不存在时返回null
+     */
+    public Double zscore(String key, String member) {
+        return stringRedisTemplate.opsForZSet().score(key, member);
+    }
+
+    /**
+     * 查询有序集合中分数在给定范围内的成员及其分数
+     * @param key 有序集合的键
+     * @param min 最小分数
+     * @param max 最大分数
+     * @return 成员 -> 分数
+     */
+    public Map<String, Double> zrangeByScore(String key, double min, double max) {
+        Map<String, Double> members = new HashMap<>();
+        Set<ZSetOperations.TypedTuple<String>> tuples =
+                stringRedisTemplate.opsForZSet().rangeByScoreWithScores(key, min, max);
+        if (tuples != null) {
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                members.put(tuple.getValue(), tuple.getScore());
+            }
+        }
+        return members;
+    }
+
+    /**
+     * 删除有序集合中分数在给定范围内的成员
+     * @param key 有序集合的键
+     * @param min 最小分数
+     * @param max 最大分数
+     */
+    public void zremRangeByScore(String key, double min, double max) {
+        stringRedisTemplate.opsForZSet().removeRangeByScore(key, min, max);
+    }
+
+    /**
+     * 设置键的存活时间（用于计数器、有序集合等字符串序列化的键）
+     * @param key 键
+     * @param timeout 存活时间
+     * @param unit 时间单位
+     */
+    public void expireString(String key, long timeout, TimeUnit unit) {
+        stringRedisTemplate.expire(key, timeout, unit);
+    }
+
     public Object get(Object key) {
         return redisTemplate.opsForValue().get(key);
     }
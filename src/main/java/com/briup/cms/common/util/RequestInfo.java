@@ -0,0 +1,50 @@
+package com.briup.cms.common.util;
+
+import lombok.Data;
+
+/**
+ * 当前请求的上下文信息
+ *
+ * 由拦截器在请求开始时填充，请求结束时清除；
+ * 交给@Async方法或线程池执行的任务会带上提交任务时的一份副本。
+ * @author YuYan
+ * @date 2024-01-23 16:10:25
+ */
+@Data
+public class RequestInfo {
+
+    /* 当前用户ID（未登录时为null） */
+    private Long userId;
+    /* 当前用户账号 */
+    private String username;
+    /* 当前用户的角色ID */
+    private Integer roleId;
+    /* 当前用户是否为VIP */
+    private Integer vip;
+    /* 请求方法 */
+    private String requestMethod;
+    /* 请求URL */
+    private String requestUrl;
+    /* 客户端IP */
+    private String requestIp;
+    /* 客户端IP归属地 */
+    private String requestSource;
+
+    /**
+     * 复制一份（交给其他线程使用，避免两个线程共用同一个对象）
+     * @return
+     */
+    public RequestInfo copy() {
+        RequestInfo copy = new RequestInfo();
+        copy.userId = userId;
+        copy.username = username;
+        copy.roleId = roleId;
+        copy.vip = vip;
+        copy.requestMethod = requestMethod;
+        copy.requestUrl = requestUrl;
+        copy.requestIp = requestIp;
+        copy.requestSource = requestSource;
+        return copy;
+    }
+
+}
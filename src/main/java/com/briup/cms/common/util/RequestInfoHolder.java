@@ -1,54 +1,116 @@
 package com.briup.cms.common.util;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
+ * 当前请求的上下文信息（线程局部变量）
+ *
+ * 请求线程由Tomcat线程池复用，请求结束时必须调用clear()，否则下一个请求会读到上一个用户的信息。
+ * 把任务交给其他线程执行时，使用wrap()包装任务，任务执行期间可以读到提交任务时的上下文，执行完后自动恢复。
  * @author YuYan
  * @date 2023-11-27 15:11:07
  */
 public class RequestInfoHolder {
 
-    private static final ThreadLocal<Map<String, Object>>
-            threadLocal = new ThreadLocal<>();
+    private static final ThreadLocal<RequestInfo> threadLocal = new ThreadLocal<>();
 
-    public static void set(String key, Object value) {
-        /* 判断当前线程在ThreadLocal中的Map集合是否已被创建 */
-        Map<String, Object> map = threadLocal.get();
-        if (map == null) {
-            map = new HashMap<>();
-            threadLocal.set(map);
+    /**
+     * 获取当前线程的上下文，不存在时创建
+     * @return
+     */
+    public static RequestInfo current() {
+        RequestInfo info = threadLocal.get();
+        if (info == null) {
+            info = new RequestInfo();
+            threadLocal.set(info);
         }
-        map.put(key, value);
+        return info;
     }
 
-    public static Long getLong(String key) {
-        Object value = get(key);
-        if (value instanceof Long) {
-            return (Long) value;
-        }
-        return null;
+    /**
+     * 获取当前线程的上下文
+     * @return 不存在时返回null
+     */
+    public static RequestInfo get() {
+        return threadLocal.get();
     }
 
-    public static String getString(String key) {
-        Object value = get(key);
-        if (value instanceof String) {
-            return (String) value;
+    /**
+     * 设置当前线程的上下文（传入null相当于clear()）
+     * @param info
+     */
+    public static void set(RequestInfo info) {
+        if (info == null) {
+            threadLocal.remove();
+        } else {
+            threadLocal.set(info);
         }
-        return null;
     }
 
-    public static Object get(String key) {
-        /* 从ThreadLocal对象中取出当前线程的Map  */
-        Map<String, Object> map = threadLocal.get();
-        if (map == null) {
-            /* 该线程还尚未向ThreadLocal中存储数据 */
-            return null;
-        }
-        return map.get(key);
+    /**
+     * 清除当前线程的上下文
+     */
+    public static void clear() {
+        threadLocal.remove();
     }
 
+    /**
+     * 当前用户ID
+     * @return 未登录时返回null
+     */
+    public static Long getUserId() {
+        RequestInfo info = threadLocal.get();
+        return info == null ? null : info.getUserId();
+    }
 
+    /**
+     * 当前用户账号
+     * @return 未登录时返回null
+     */
+    public static String getUsername() {
+        RequestInfo info = threadLocal.get();
+        return info == null ? null : info.getUsername();
+    }
 
+    /**
+     * 包装任务，使其在其他线程中执行时带上当前线程的上下文
+     * @param task
+     * @return
+     */
+    public static Runnable wrap(Runnable task) {
+        RequestInfo captured = snapshot();
+        return () -> {
+            RequestInfo previous = threadLocal.get();
+            set(captured);
+            try {
+                task.run();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    /**
+     * 包装任务，使其在其他线程中执行时带上当前线程的上下文
+     * @param task
+     * @return
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        RequestInfo captured = snapshot();
+        return () -> {
+            RequestInfo previous = threadLocal.get();
+            set(captured);
+            try {
+                return task.call();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    private static RequestInfo snapshot() {
+        RequestInfo info = threadLocal.get();
+        return info == null ? null : info.copy();
+    }
 
 }
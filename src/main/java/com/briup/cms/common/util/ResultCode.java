@@ -20,11 +20,16 @@ public enum ResultCode {
 	USER_PASSWORD_INVALID(20003, "密码错误"),
 	USER_ACCOUNT_FORBIDDEN(20004, "账号已被禁用"),
 	USER_HAS_EXISTED(20005, "用户已存在"),
+	USER_PERMISSION_DENIED(20006, "没有访问权限"),
 
 
     TOKEN_EMPTY(20007, "Token令牌不存在！"),
     TOKEN_EXPIRED(20008, "Token令牌已过期！"),
     TOKEN_SIGNATURE_ERROR(20009, "Token令牌内容或格式非法！"),
+    USER_LOGIN_LOCKED(20010, "登录失败次数过多，请稍后再试"),
+    TOKEN_REVOKED(20011, "Token令牌已失效，请重新登录！"),
+    TOKEN_REFRESH_INVALID(20012, "刷新令牌无效或已过期，请重新登录！"),
+    TOKEN_REFRESH_REUSED(20013, "刷新令牌已被使用，请重新登录！"),
 
 
 	/* 业务错误：30001-39999 */
@@ -32,6 +37,8 @@ public enum ResultCode {
 
 	/* 系统错误：40001-49999 */
 	SYSTEM_INNER_ERROR(40001, "系统内部错误，请稍后重试"),
+	SYSTEM_BUSY(40002, "系统繁忙，请稍后重试"),
+	SYSTEM_SQL_LIMIT_EXCEEDED(40003, "单次请求执行的SQL语句过多"),
 
 	/* 数据错误：50001-599999 */
 	DATA_NONE(50001, "数据未找到"),
@@ -1,30 +1,104 @@
 package com.briup.cms.common.util;
 
 import com.briup.cms.common.config.ConfigProperties;
-import lombok.Data;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
+import com.briup.cms.common.exception.CmsException;
+import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
 import org.springframework.util.DigestUtils;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 加密工具类
+ *
+ * BCrypt计算量很大，为了不让登录高峰占满Tomcat的请求线程，
+ * 所有BCrypt计算都交给一个有界的专用线程池执行：队列已满时立即拒绝，
+ * 等待超时时放弃本次计算，两种情况都提示“系统繁忙”。
+ *
+ * 启动时可以按目标耗时自动校准加密强度（cost）：在当前硬件上从配置的加密强度开始逐级测量，
+ * 选出单次计算耗时达到目标的最小强度。校准结果只用于新生成的密文；
+ * 配置的加密强度是所有节点共享的下限，只有低于下限的密文才需要重新加密，
+ * 避免硬件不同的节点校准出不同的强度后，用户在节点之间来回登录时反复重新加密。
  * @author YuYan
  * @date 2023-11-30 16:30:12
  */
-@Data
-@Configuration
+@Component
+@RequiredArgsConstructor
 public class SecurityUtil {
 
+    /**
+     * BCrypt允许的最小加密强度
+     */
+    private static final int MIN_STRENGTH = 4;
+    /**
+     * BCrypt允许的最大加密强度
+     */
+    private static final int MAX_STRENGTH = 31;
+
     /**
      * 自定义配置对象
      */
     private final ConfigProperties configProperties;
 
+    /**
+     * 密码加密器（整个应用共用一个）
+     */
+    private BCryptPasswordEncoder passwordEncoder;
+    /**
+     * 当前使用的加密强度（新生成的密文）
+     */
+    private int strength;
+    /**
+     * 所有节点共享的加密强度下限（低于下限的密文需要重新加密）
+     */
+    private int minStrength;
+    /**
+     * 执行BCrypt计算的线程池
+     */
+    private ThreadPoolExecutor hashExecutor;
+
+    @PostConstruct
+    public void init() {
+        /* 对干扰因子进行加密 */
+        SecureRandom secureRandom = new SecureRandom(
+                configProperties.getSecuritySecret().getBytes());
+        /* 确定加密强度，创建BCrypt密码编译器对象 */
+        minStrength = Math.min(MAX_STRENGTH, Math.max(MIN_STRENGTH, configProperties.getSecurityStrength()));
+        strength = calibrate(secureRandom);
+        passwordEncoder = new BCryptPasswordEncoder(strength, secureRandom);
+
+        int threads = configProperties.getSecurityHashThreads() > 0
+                ? configProperties.getSecurityHashThreads()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        hashExecutor = new ThreadPoolExecutor(threads, threads,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, configProperties.getSecurityHashQueueCapacity())),
+                r -> {
+                    Thread thread = new Thread(r, "cms-bcrypt-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdownNow();
+    }
+
     /**
      * 校验给定的原文与密文是否匹配
      * @param rawText 原文
@@ -32,7 +106,7 @@ public class SecurityUtil {
      * @return
      */
     public boolean bcryptMatches(String rawText, String secureText) {
-        return passwordEncoder().matches(rawText, secureText);
+        return hash(() -> passwordEncoder.matches(rawText, secureText));
     }
 
     /**
@@ -41,7 +115,37 @@ public class SecurityUtil {
      * @return
      */
     public String bcryptEncode(String rawText) {
-        return passwordEncoder().encode(rawText);
+        return hash(() -> passwordEncoder.encode(rawText));
+    }
+
+    /**
+     * 判断密文使用的加密强度是否低于共享的下限（低于下限时应该在用户登录成功后重新加密）
+     * 不与本节点校准出的强度比较：各节点校准结果可能不同，比较会导致在节点之间反复重新加密
+     * 密文格式：$2a$10$...，第二段数字就是加密强度
+     * @param secureText 密文
+     * @return
+     */
+    public boolean bcryptNeedsRehash(String secureText) {
+        if (secureText == null || secureText.length() < 7 || secureText.charAt(0) != '$') {
+            return false;
+        }
+        int end = secureText.indexOf('$', 1);
+        if (end < 0 || end + 3 > secureText.length()) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(secureText.substring(end + 1, end + 3)) < minStrength;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 当前使用的加密强度
+     * @return
+     */
+    public int getBcryptStrength() {
+        return strength;
     }
 
     /**
@@ -52,16 +156,61 @@ public class SecurityUtil {
     }
 
     /**
-     * 密码加密器Bean
+     * 在专用线程池中执行BCrypt计算
+     * @param task
      * @return
      */
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        /* 对干扰因子进行加密 */
-        SecureRandom secureRandom = new SecureRandom(
-                configProperties.getSecuritySecret().getBytes());
-        /* 创建BCrypt密码编译器对象 */
-        return new BCryptPasswordEncoder(configProperties.getSecurityStrength(),
-                secureRandom);
+    private <T> T hash(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = hashExecutor.submit(task);
+        } catch (RejectedExecutionException e) {
+            /* 队列已满，直接拒绝 */
+            throw new CmsException(ResultCode.SYSTEM_BUSY);
+        }
+        try {
+            return future.get(configProperties.getSecurityHashTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new CmsException(ResultCode.SYSTEM_BUSY);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new CmsException(ResultCode.SYSTEM_BUSY);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CmsException(ResultCode.SYSTEM_INNER_ERROR);
+        }
+    }
+
+    /**
+     * 校准加密强度（不低于共享的下限）
+     * 目标耗时小于等于0时不校准，直接使用配置的加密强度
+     * @param secureRandom
+     * @return
+     */
+    private int calibrate(SecureRandom secureRandom) {
+        long target = configProperties.getSecurityTargetHashMillis();
+        if (target <= 0) {
+            return minStrength;
+        }
+        int max = Math.min(MAX_STRENGTH, Math.max(minStrength, configProperties.getSecurityMaxStrength()));
+        for (int cost = minStrength; cost < max; cost++) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(cost, secureRandom);
+            /* 先预热一次，再取两次测量中较小的耗时 */
+            encoder.encode("calibration");
+            long elapsed = Long.MAX_VALUE;
+            for (int i = 0; i < 2; i++) {
+                long start = System.nanoTime();
+                encoder.encode("calibration");
+                elapsed = Math.min(elapsed, System.nanoTime() - start);
+            }
+            if (TimeUnit.NANOSECONDS.toMillis(elapsed) >= target) {
+                return cost;
+            }
+        }
+        return max;
     }
 }
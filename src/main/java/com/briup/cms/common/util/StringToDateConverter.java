@@ -1,32 +1,162 @@
 package com.briup.cms.common.util;
 
-import lombok.Data;
-import lombok.RequiredArgsConstructor;
-import lombok.SneakyThrows;
+import com.briup.cms.common.exception.CmsException;
 import org.jetbrains.annotations.NotNull;
-import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.context.annotation.Bean;
 import org.springframework.core.convert.converter.Converter;
-import org.springframework.stereotype.Component;
 
-import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * 请求参数String-Date转换器
+ *
+ * 使用不可变、线程安全的DateTimeFormatter（SimpleDateFormat不是线程安全的，不能在请求线程之间共享）：
+ * 1）默认格式yyyy-MM-dd HH:mm:ss直接逐个字符解析数字，不经过正则和格式解析器
+ * 2）其他格式按配置的顺序依次尝试，只有日期部分的格式时间取0点；使用严格模式，2月30日等不存在的日期不会被调整为月末
+ * 3）全部是数字的参数按毫秒时间戳解析
+ * 无法解析时抛出参数类型错误的业务异常。
  * @author YuYan
  * @date 2023-12-05 17:22:24
  */
-@RequiredArgsConstructor
 public class StringToDateConverter implements Converter<String, Date> {
 
-    private final SimpleDateFormat format;
+    /* 可以直接解析数字的默认格式 */
+    private static final String FAST_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    private static final int FAST_LENGTH = FAST_PATTERN.length();
+
+    private final ZoneId zone;
+    private final boolean fastPath;
+    private final List<DateTimeFormatter> formatters = new ArrayList<>();
+
+    /**
+     * @param zone 解析使用的时区
+     * @param patterns 允许的时间格式（按顺序尝试）
+     */
+    public StringToDateConverter(ZoneId zone, String... patterns) {
+        this.zone = zone;
+        boolean fast = false;
+        for (String pattern : patterns) {
+            if (FAST_PATTERN.equals(pattern)) {
+                fast = true;
+                continue;
+            }
+            formatters.add(new DateTimeFormatterBuilder()
+                    .appendPattern(pattern)
+                    .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+                    .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+                    .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+                    /* 严格模式下yyyy（纪元年）需要纪元才能确定年份，默认公元 */
+                    .parseDefaulting(ChronoField.ERA, 1)
+                    .toFormatter()
+                    .withResolverStyle(ResolverStyle.STRICT));
+        }
+        this.fastPath = fast;
+    }
+
+    /**
+     * 使用系统默认时区
+     * @param patterns 允许的时间格式（按顺序尝试）
+     */
+    public StringToDateConverter(String... patterns) {
+        this(ZoneId.systemDefault(), patterns);
+    }
 
     @Override
-    @SneakyThrows
     public Date convert(@NotNull String source) {
-        return ObjectUtil.notHasText(source) ? null
-                : format.parse(source);
+        if (ObjectUtil.notHasText(source)) {
+            return null;
+        }
+        String text = source.trim();
+        try {
+            if (fastPath && text.length() == FAST_LENGTH) {
+                LocalDateTime dateTime = parseFast(text);
+                if (dateTime != null) {
+                    return toDate(dateTime);
+                }
+            }
+            for (DateTimeFormatter formatter : formatters) {
+                try {
+                    return toDate(LocalDateTime.parse(text, formatter));
+                } catch (DateTimeException e) {
+                    /* 尝试下一个格式 */
+                }
+            }
+        } catch (DateTimeException e) {
+            throw new CmsException(ResultCode.PARAM_TYPE_BIND_ERROR);
+        }
+        if (isEpochMillis(text)) {
+            try {
+                return new Date(Long.parseLong(text));
+            } catch (NumberFormatException e) {
+                /* 19位数字可能超出long的范围 */
+                throw new CmsException(ResultCode.PARAM_TYPE_BIND_ERROR);
+            }
+        }
+        throw new CmsException(ResultCode.PARAM_TYPE_BIND_ERROR);
+    }
+
+    /**
+     * 按yyyy-MM-dd HH:mm:ss解析
+     * @param text 长度为19的字符串
+     * @return 分隔符不匹配或存在非数字字符时返回null；数值超出范围（例如2月30日）时抛出DateTimeException
+     */
+    private static LocalDateTime parseFast(String text) {
+        if (text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != ' '
+                || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return null;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        int hour = digits(text, 11, 13);
+        int minute = digits(text, 14, 16);
+        int second = digits(text, 17, 19);
+        if ((year | month | day | hour | minute | second) < 0) {
+            return null;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second);
+    }
+
+    /**
+     * 解析[start, end)之间的数字
+     * @return 存在非数字字符时返回-1
+     */
+    private static int digits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isEpochMillis(String text) {
+        /* long最多19位数字 */
+        if (text.length() > 19) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime.atZone(zone).toInstant());
     }
 
 }
@@ -3,63 +3,179 @@ package com.briup.cms.common.verify;
 import com.briup.cms.common.exception.CmsException;
 import com.briup.cms.common.util.ObjectUtil;
 import com.briup.cms.common.util.ResultCode;
-import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
-import org.aspectj.lang.annotation.Pointcut;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.StaticMethodMatcherPointcutAdvisor;
+import org.springframework.core.MethodClassKey;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
 
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 /**
  * 参数验证切面
+ *
+ * 作用在Service层方法上，按@Required注解验证参数不能为空：
+ * 1）每个方法第一次被匹配时，读取接口和实现类上的注解，按参数的声明类型编译成一组验证器并缓存，之后直接使用
+ * 2）没有需要验证的参数的方法不会被匹配，调用时完全不经过本切面（例如RoleService.list()）
+ * 3）验证器按声明类型预先选好判断方式（字符串、数组、集合、Map、其他对象），调用时不再逐个类型判断
  * @author YuYan
  * @date 2023-12-14 11:20:09
  */
-@Aspect
 @Component
-public class ParamVerifyAspect {
+public class ParamVerifyAspect extends StaticMethodMatcherPointcutAdvisor {
 
     /**
-     * 切入点，作用在Service层所有方法上
+     * 作用的包
      */
-    @Pointcut("execution(* com.briup.cms.service..*.*(..))")
-    public void serviceMethodPointCut() {
+    private static final String SERVICE_PACKAGE = "com.briup.cms.service";
 
+    private static final ParamValidator[] NONE = new ParamValidator[0];
+
+    /**
+     * （方法, 目标类） -> 编译好的验证器
+     */
+    private final Map<MethodClassKey, ParamValidator[]> chains = new ConcurrentHashMap<>();
+
+    public ParamVerifyAspect() {
+        setAdvice((MethodInterceptor) this::invoke);
+        setClassFilter(clazz -> clazz.getName().startsWith(SERVICE_PACKAGE));
+    }
+
+    @Override
+    public boolean matches(Method method, Class<?> targetClass) {
+        return chain(method, targetClass).length > 0;
     }
 
-    @Before("serviceMethodPointCut()")
-    public void before(JoinPoint joinPoint) {
-        /* 通过连接点对象获取到实参列表 */
-        Object[] args = joinPoint.getArgs();
-        if (ObjectUtil.isEmpty(args)) {
-            return;
-        }
-        /* 遍历校验参数列表中的所有参数 */
-        for (Object arg : args) {
-            /* 如果为空指针（null值），直接抛出异常 */
-            if (ObjectUtil.isEmpty(arg)) {
+    private Object invoke(MethodInvocation invocation) throws Throwable {
+        Object target = invocation.getThis();
+        ParamValidator[] validators = chain(invocation.getMethod(),
+                target == null ? invocation.getMethod().getDeclaringClass() : AopUtils.getTargetClass(target));
+        Object[] args = invocation.getArguments();
+        for (ParamValidator validator : validators) {
+            if (validator.isEmpty(args[validator.index])) {
                 throw new CmsException(ResultCode.PARAM_NOT_COMPLETE);
             }
-            /* 考虑到各种特殊类型的"空"判断 */
-            /* 如果是数组，要求长度不能为0 */
-            if (arg.getClass().isArray() && ((Object[]) arg).length == 0) {
-                throw new CmsException(ResultCode.PARAM_NOT_COMPLETE);
+        }
+        return invocation.proceed();
+    }
+
+    private ParamValidator[] chain(Method method, Class<?> targetClass) {
+        return chains.computeIfAbsent(new MethodClassKey(method, targetClass),
+                key -> compile(method, targetClass));
+    }
+
+    /**
+     * 根据注解编译方法的验证器
+     */
+    private static ParamValidator[] compile(Method method, Class<?> targetClass) {
+        /* 实现类上的方法和所有接口中同名同参数的方法都可以声明注解 */
+        List<Method> declarations = new ArrayList<>();
+        declarations.add(AopUtils.getMostSpecificMethod(method, targetClass));
+        for (Class<?> ifc : ClassUtils.getAllInterfacesForClassAsSet(targetClass)) {
+            Method declared = ClassUtils.getMethodIfAvailable(ifc, method.getName(), method.getParameterTypes());
+            if (declared != null) {
+                declarations.add(declared);
             }
-            /* 如果是集合，要求长度不能为0 */
-            if (arg instanceof Collection && ((Collection<?>) arg).size() == 0) {
-                throw new CmsException(ResultCode.PARAM_NOT_COMPLETE);
+        }
+
+        boolean allRequired = false;
+        for (Method declaration : declarations) {
+            allRequired |= declaration.isAnnotationPresent(Required.class);
+        }
+
+        Class<?>[] types = method.getParameterTypes();
+        List<ParamValidator> validators = new ArrayList<>();
+        for (int i = 0; i < types.length; i++) {
+            /* 基本类型的参数不可能为空 */
+            if (types[i].isPrimitive()) {
+                continue;
             }
-            /* 如果是集合，要求长度不能为0 */
-            if (arg instanceof Map && ((Map<?, ?>) arg).size() == 0) {
-                throw new CmsException(ResultCode.PARAM_NOT_COMPLETE);
+            if (allRequired || isRequired(declarations, i)) {
+                validators.add(new ParamValidator(i, emptyCheck(types[i])));
             }
-            /* 如果是字符串，要求不能为空串或空白字符构成的字符串 */
-            if (arg instanceof String && ObjectUtil.notHasText((String) arg)) {
-                throw new CmsException(ResultCode.PARAM_NOT_COMPLETE);
+        }
+        return validators.isEmpty() ? NONE : validators.toArray(NONE);
+    }
+
+    private static boolean isRequired(List<Method> declarations, int index) {
+        for (Method declaration : declarations) {
+            for (Annotation annotation : declaration.getParameterAnnotations()[index]) {
+                if (annotation instanceof Required) {
+                    return true;
+                }
             }
         }
+        return false;
+    }
+
+    /**
+     * 按参数的声明类型选择“空”的判断方式
+     */
+    private static Predicate<Object> emptyCheck(Class<?> type) {
+        if (CharSequence.class.isAssignableFrom(type)) {
+            return arg -> arg == null || !StringUtils.hasText((CharSequence) arg);
+        }
+        if (type.isArray()) {
+            return arg -> arg == null || Array.getLength(arg) == 0;
+        }
+        if (Collection.class.isAssignableFrom(type)) {
+            return arg -> arg == null || ((Collection<?>) arg).isEmpty();
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return arg -> arg == null || ((Map<?, ?>) arg).isEmpty();
+        }
+        if (type.isAssignableFrom(String.class) || type.isAssignableFrom(Collection.class)
+                || type.isAssignableFrom(Map.class)) {
+            /* 声明类型过于宽泛（例如Object），只能在调用时判断实际类型 */
+            return ParamVerifyAspect::isEmptyValue;
+        }
+        return ObjectUtil::isNull;
+    }
+
+    private static boolean isEmptyValue(Object arg) {
+        if (ObjectUtil.isEmpty(arg)) {
+            return true;
+        }
+        if (arg instanceof CharSequence) {
+            return !StringUtils.hasText((CharSequence) arg);
+        }
+        if (arg instanceof Collection) {
+            return ((Collection<?>) arg).isEmpty();
+        }
+        if (arg instanceof Map) {
+            return ((Map<?, ?>) arg).isEmpty();
+        }
+        return false;
+    }
+
+    /**
+     * 单个参数的验证器
+     */
+    private static final class ParamValidator {
+        /* 参数的位置 */
+        private final int index;
+        /* “空”的判断方式 */
+        private final Predicate<Object> empty;
+
+        private ParamValidator(int index, Predicate<Object> empty) {
+            this.index = index;
+            this.empty = empty;
+        }
+
+        private boolean isEmpty(Object arg) {
+            return empty.test(arg);
+        }
     }
 
 }
@@ -0,0 +1,23 @@
+package com.briup.cms.common.verify;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 声明Service层方法的参数不能为空
+ *
+ * 用在参数上表示该参数不能为空，用在方法上表示所有参数都不能为空；可以写在接口或实现类上。
+ * “空”指：null值、空串或空白字符串、长度为0的数组、空集合、空Map。
+ * 没有使用该注解的方法不会被参数验证切面拦截。
+ * @author YuYan
+ * @date 2024-01-24 09:12:40
+ */
+/* 当前注解可以用在方法和参数上 */
+@Target({ElementType.METHOD, ElementType.PARAMETER})
+/* 注解的保留策略：RUNTIME */
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Required {
+
+}
@@ -1,7 +1,12 @@
 package com.briup.cms.dao;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.briup.cms.common.counter.CounterDelta;
 import com.briup.cms.common.model.entity.Article;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
 
 /**
  * @author YuYan
@@ -10,4 +15,25 @@ import com.briup.cms.common.model.entity.Article;
 
 public interface ArticleMapper extends BaseMapper<Article> {
 
+    /**
+     * 批量累加资讯的阅读量、点赞量、点踩量（一条UPDATE语句）
+     * @param deltas 每篇资讯的计数增量，不能为空
+     * @return
+     */
+    @Update("<script>" +
+            "update cms_article set " +
+            "read_num = ifnull(read_num, 0) + case id " +
+            "<foreach collection='deltas' item='d'>when #{d.id} then #{d.read} </foreach>" +
+            "else 0 end, " +
+            "like_num = ifnull(like_num, 0) + case id " +
+            "<foreach collection='deltas' item='d'>when #{d.id} then #{d.like} </foreach>" +
+            "else 0 end, " +
+            "dislike_num = ifnull(dislike_num, 0) + case id " +
+            "<foreach collection='deltas' item='d'>when #{d.id} then #{d.dislike} </foreach>" +
+            "else 0 end " +
+            "where id in " +
+            "<foreach collection='deltas' item='d' open='(' separator=',' close=')'>#{d.id}</foreach>" +
+            "</script>")
+    int incrementCounters(@Param("deltas") List<CounterDelta> deltas);
+
 }
@@ -2,9 +2,13 @@ package com.briup.cms.dao;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.briup.cms.common.model.entity.Category;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * @author YuYan
  * @date 2023-12-04 14:03:24
@@ -19,4 +23,31 @@ public interface CategoryMapper extends BaseMapper<Category> {
     @ResultType(Integer.class)
     Integer selectMaxOrderNum();
 
+    /**
+     * 在给定的栏目中，查询下面存在二级栏目的栏目ID（按parent_id分组统计）
+     * @param ids 栏目ID，不能为空
+     * @return
+     */
+    @Select("<script>" +
+            "select parent_id from cms_category " +
+            "where deleted = 0 and parent_id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "group by parent_id having count(*) > 0" +
+            "</script>")
+    List<Integer> selectIdsHavingChildren(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * 在给定的栏目中，查询下面存在作者账号正常（未注销）的资讯的栏目ID（按category_id分组统计）
+     * @param ids 栏目ID，不能为空
+     * @return
+     */
+    @Select("<script>" +
+            "select a.category_id from cms_article a " +
+            "join cms_user u on u.id = a.user_id " +
+            "where a.deleted = 0 and u.deleted = 0 and a.category_id in " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "group by a.category_id" +
+            "</script>")
+    List<Integer> selectIdsHavingActiveArticles(@Param("ids") Collection<Integer> ids);
+
 }
@@ -1,7 +1,18 @@
 package com.briup.cms.dao;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.briup.cms.common.model.entity.Log;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.util.List;
 
 /**
  * @author YuYan
@@ -9,4 +20,37 @@ import com.briup.cms.common.model.entity.Log;
  */
 public interface LogMapper extends BaseMapper<Log> {
 
+    /**
+     * 批量插入日志（一条多行INSERT语句）
+     * @param logs 日志集合，不能为空
+     * @return
+     */
+    @Insert("<script>" +
+            "insert into cms_log (username, business_name, request_url, request_method, " +
+            "ip, source, params_json, result_json, spend_time, create_time) values " +
+            "<foreach collection='logs' item='log' separator=','>" +
+            "(#{log.username}, #{log.businessName}, #{log.requestUrl}, #{log.requestMethod}, " +
+            "#{log.requestIp}, #{log.requestSource}, #{log.requestParams}, #{log.responseResult}, " +
+            "#{log.spendTime}, #{log.createTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("logs") List<Log> logs);
+
+    /**
+     * 按条件流式查询日志（用于导出）
+     * 使用只进结果集并把fetchSize设为Integer.MIN_VALUE，MySQL驱动会逐行返回数据，
+     * 每读到一行就交给resultHandler处理，不会把全部结果读入内存。
+     * 不查询请求参数（params_json），导出时用不到。
+     * 方法没有返回值，必须通过ResultType声明每一行映射的类型。
+     * @param wrapper 查询条件（包含排序、limit）
+     * @param resultHandler 逐行处理查询结果
+     */
+    @Select("select id, username, business_name, request_url, request_method, " +
+            "ip as request_ip, source as request_source, result_json as response_result, " +
+            "spend_time, create_time from cms_log ${ew.customSqlSegment}")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(Log.class)
+    void streamByClause(@Param(Constants.WRAPPER) Wrapper<Log> wrapper,
+                        ResultHandler<Log> resultHandler);
+
 }
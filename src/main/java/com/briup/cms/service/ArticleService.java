@@ -3,6 +3,7 @@ package com.briup.cms.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.briup.cms.common.model.entity.Article;
 import com.briup.cms.common.model.ext.ArticleExt;
+import com.briup.cms.common.verify.Required;
 
 import java.util.List;
 
@@ -17,6 +18,7 @@ public interface ArticleService {
      * 新增或修改文章信息
      * @param articleExt
      */
+    @Required
     void saveOrUpdate(ArticleExt articleExt);
 
     /**
@@ -24,12 +26,14 @@ public interface ArticleService {
      * @param id 文章ID
      * @param status 状态（审核通过、审核不通过）
      */
+    @Required
     void review(Long id, String status);
 
     /**
      * 删除文章信息
      * @param ids
      */
+    @Required
     void delete(List<Long> ids);
 
     /**
@@ -38,14 +42,30 @@ public interface ArticleService {
      * @param commentsNum 要附带的评论数量
      * @return
      */
+    @Required
     ArticleExt getById(Long id, int commentsNum);
 
+    /**
+     * 点赞文章
+     * @param id 文章ID
+     */
+    @Required
+    void like(Long id);
+
+    /**
+     * 点踩文章
+     * @param id 文章ID
+     */
+    @Required
+    void dislike(Long id);
+
     /**
      * 分页+条件检索文章信息
      * @param page 分页对象（包含分页参数pageNum、pageSize）
      * @param articleExt 检索条件
      * @return
      */
+    @Required
     IPage<ArticleExt> pageQueryByClause(IPage<Article> page,
                                         ArticleExt articleExt);
 
@@ -1,6 +1,8 @@
 package com.briup.cms.service;
 
 import com.briup.cms.common.model.ext.UserExt;
+import com.briup.cms.common.model.vo.TokenVO;
+import com.briup.cms.common.verify.Required;
 
 /**
  * 业务逻辑接口 - 认证相关
@@ -12,15 +14,40 @@ public interface AuthService {
      * 用户登录功能
      * @param username 账号
      * @param password 密码
-     * @return 如果登录成功则返回Token令牌
+     * @param ip 客户端IP（用于登录限流）
+     * @return 如果登录成功则返回访问令牌和刷新令牌
      */
-    String login(String username, String password);
+    @Required
+    TokenVO login(String username, String password, String ip);
+
+    /**
+     * 使用刷新令牌换取新的令牌对（刷新令牌只能使用一次）
+     * @param refreshToken 刷新令牌
+     * @return 新的访问令牌和刷新令牌
+     */
+    @Required
+    TokenVO refresh(String refreshToken);
 
     /**
      * 根据Token获取用户信息
      * @param token Token令牌
      * @return
      */
+    @Required
     UserExt getUserinfo(String token);
 
+    /**
+     * 用户登出（吊销Token令牌）
+     * @param token Token令牌
+     */
+    void logout(String token);
+
+    /**
+     * 强制某个用户下线（吊销该用户的全部Token令牌）
+     * @param userId 用户ID
+     * @return 吊销的Token令牌数量
+     */
+    @Required
+    int killSessions(Long userId);
+
 }
@@ -3,6 +3,9 @@ package com.briup.cms.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.briup.cms.common.model.entity.Category;
 import com.briup.cms.common.model.ext.CategoryExt;
+import com.briup.cms.common.model.vo.CategoryDeleteReportVO;
+import com.briup.cms.common.model.vo.ExcelImportReportVO;
+import com.briup.cms.common.verify.Required;
 
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -19,18 +22,22 @@ public interface CategoryService {
      * 新增栏目信息
      * @param categoryExt
      */
+    @Required
     void save(CategoryExt categoryExt);
 
     /**
      * 删除栏目信息
      * @param ids
+     * @return 每个栏目ID的处理结果
      */
-    void delete(List<Integer> ids);
+    @Required
+    CategoryDeleteReportVO delete(List<Integer> ids);
 
     /**
      * 修改栏目信息
      * @param categoryExt
      */
+    @Required
     void update(CategoryExt categoryExt);
 
     /**
@@ -38,6 +45,7 @@ public interface CategoryService {
      * @param id 栏目ID
      * @return
      */
+    @Required
     CategoryExt getById(Integer id, boolean cascadeChildren);
 
     /**
@@ -55,18 +63,22 @@ public interface CategoryService {
      * 分页+条件检索栏目信息
      * @return
      */
+    @Required
     IPage<CategoryExt> pageQueryByClause(
             IPage<Category> page, CategoryExt categoryExt);
 
     /**
      * 上传Excel栏目信息
      * @param is
+     * @return 导入结果（逐行记录失败原因）
      */
-    void upload(InputStream is);
+    @Required
+    ExcelImportReportVO upload(InputStream is);
 
     /**
      * 导出栏目数据为Excel表格
      */
+    @Required
     void download(OutputStream os);
 
 }
@@ -5,6 +5,7 @@ import com.briup.cms.common.model.entity.Comment;
 import com.briup.cms.common.model.ext.CommentExt;
 import com.briup.cms.common.model.ext.SubCommentExt;
 import com.briup.cms.common.model.param.CommentDeleteParam;
+import com.briup.cms.common.verify.Required;
 
 import java.util.List;
 
@@ -19,12 +20,14 @@ public interface CommentService {
      * 新增一级评论
      * @param commentExt
      */
+    @Required
     void save(CommentExt commentExt);
 
     /**
      * 新增二级评论
      * @param commentExt
      */
+    @Required
     void save(SubCommentExt commentExt);
 
     /**
@@ -32,12 +35,14 @@ public interface CommentService {
      * @param id
      * @param type
      */
+    @Required
     void delete(Long id, String type);
 
     /**
      * 批量删除评论信息
      * @param params
      */
+    @Required
     void deleteBatch(List<CommentDeleteParam> params);
 
     /**
@@ -45,11 +50,13 @@ public interface CommentService {
      * @param subCommentParam
      * @return
      */
+    @Required
     List<SubCommentExt> list(SubCommentExt subCommentParam);
 
     // 文章ID
     // pageNum pageSize
     // 关键字、用户id、
     // 文章id、发表时间
+    @Required
     IPage<CommentExt> pageQueryByClause(IPage<Comment> page, CommentExt commentParam);
 }
@@ -3,6 +3,7 @@ package com.briup.cms.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.briup.cms.common.model.entity.Log;
 import com.briup.cms.common.model.ext.LogExt;
+import com.briup.cms.common.verify.Required;
 
 import java.io.OutputStream;
 
@@ -12,11 +13,14 @@ import java.io.OutputStream;
  */
 public interface LogService {
 
+    @Required
     void save(Log log);
 
+    @Required
     IPage<LogExt> pageQueryByClause(IPage<Log> page,
                                     LogExt logExt);
 
+    @Required
     void download(OutputStream os,
                   LogExt logParam);
 }
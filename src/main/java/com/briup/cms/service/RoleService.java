@@ -1,6 +1,7 @@
 package com.briup.cms.service;
 
 import com.briup.cms.common.model.ext.RoleExt;
+import com.briup.cms.common.verify.Required;
 
 import java.util.List;
 
@@ -11,6 +12,7 @@ import java.util.List;
  */
 public interface RoleService {
 
+    @Required
     RoleExt getById(Integer id);
 
     List<RoleExt> list();
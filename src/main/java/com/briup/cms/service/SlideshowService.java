@@ -3,6 +3,7 @@ package com.briup.cms.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.briup.cms.common.model.entity.Slideshow;
 import com.briup.cms.common.model.ext.SlideshowExt;
+import com.briup.cms.common.verify.Required;
 
 import java.util.List;
 
@@ -14,22 +15,28 @@ import java.util.List;
 public interface SlideshowService {
 
     // 根据状态查询轮播图信息
+    @Required
     List<SlideshowExt> listByStatus(String status);
 
     // 分页+条件检索轮播图信息
+    @Required
     IPage<SlideshowExt> pageQueryByClause(SlideshowExt slideshowExt,
                                           IPage<Slideshow> page);
 
     // 根据id查询轮播图信息
+    @Required
     SlideshowExt getById(Integer id);
 
     // 新增或修改轮播图信息
+    @Required
     void saveOrUpdate(SlideshowExt slideshowExt);
 
     // 根据id删除轮播图信息
+    @Required
     void deleteById(Integer id);
 
     // 批量删除轮播图信息
+    @Required
     void delete(List<Integer> ids);
 
 }
@@ -1,5 +1,6 @@
 package com.briup.cms.service;
 
+import com.briup.cms.common.verify.Required;
 import org.springframework.web.multipart.MultipartFile;
 
 /**
@@ -14,6 +15,7 @@ public interface UploadService {
      * @param multipartFile 文件对象
      * @return OSS上完整的文件访问URL
      */
+    @Required
     String upload(MultipartFile multipartFile);
 
 }
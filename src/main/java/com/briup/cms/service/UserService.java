@@ -3,6 +3,7 @@ package com.briup.cms.service;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.briup.cms.common.model.entity.User;
 import com.briup.cms.common.model.ext.UserExt;
+import com.briup.cms.common.verify.Required;
 
 import java.util.List;
 
@@ -17,6 +18,7 @@ public interface UserService {
      * 新增用户信息
      * @param userExt
      */
+    @Required
     void save(UserExt userExt);
 
     /**
@@ -24,6 +26,7 @@ public interface UserService {
      * @param id
      * @return
      */
+    @Required
     UserExt getById(Long id);
 
     /**
@@ -31,18 +34,21 @@ public interface UserService {
      * @param id
      * @return
      */
+    @Required
     UserExt getByIdNullable(Long id);
 
     /**
      * 更新用户信息
      * @param userExt
      */
+    @Required
     void update(UserExt userExt);
 
     /**
      * 删除用户信息
      * @param ids
      */
+    @Required
     void delete(List<Long> ids);
 
     /**
@@ -50,6 +56,7 @@ public interface UserService {
      * @param userExt
      * @return
      */
+    @Required
     IPage<UserExt> pageQueryByClause(UserExt userExt, IPage<User> page);
 
     /**
@@ -57,6 +64,7 @@ public interface UserService {
      * @param username 用户名
      * @return
      */
+    @Required
     UserExt getByUsername(String username);
 
     /**
@@ -2,18 +2,35 @@ package com.briup.cms.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.briup.cms.common.cache.CacheRegistry;
+import com.briup.cms.common.cache.PageSnapshot;
+import com.briup.cms.common.cache.TwoTierCache;
+import com.briup.cms.common.config.ConfigProperties;
+import com.briup.cms.common.counter.ArticleCounter;
 import com.briup.cms.common.model.entity.Article;
 import com.briup.cms.common.model.ext.ArticleExt;
+import com.briup.cms.common.exception.CmsException;
+import com.briup.cms.common.search.ContentSearch;
+import com.briup.cms.common.search.SearchHit;
+import com.briup.cms.common.util.CursorPage;
 import com.briup.cms.common.util.PageUtil;
+import com.briup.cms.common.util.RedisUtil;
 import com.briup.cms.common.util.RequestInfoHolder;
+import com.briup.cms.common.util.ResultCode;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.briup.cms.dao.ArticleMapper;
 import com.briup.cms.service.ArticleService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import javax.annotation.PostConstruct;
+
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * 业务逻辑层实现类 - 资讯模块
@@ -23,10 +40,55 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 public class ArticleServiceImpl implements ArticleService {
+
+    private static final TypeReference<ArticleExt> ARTICLE_TYPE =
+            new TypeReference<ArticleExt>() {};
+    private static final TypeReference<PageSnapshot<ArticleExt>> ARTICLE_PAGE_TYPE =
+            new TypeReference<PageSnapshot<ArticleExt>>() {};
+
     /**
      * 资讯模块Dao层对象
      */
     private final ArticleMapper articleMapper;
+    /**
+     * 缓存注册中心
+     */
+    private final CacheRegistry cacheRegistry;
+    /**
+     * Redis工具（用于生成缓存键）
+     */
+    private final RedisUtil redisUtil;
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
+    /**
+     * 资讯计数器（阅读量、点赞量、点踩量）
+     */
+    private final ArticleCounter articleCounter;
+    /**
+     * 全文检索
+     */
+    private final ContentSearch contentSearch;
+    /**
+     * 资讯详情缓存（按资讯ID缓存）
+     */
+    private TwoTierCache detailCache;
+    /**
+     * 资讯列表缓存（按查询条件缓存，任何资讯发生变化时整体失效）
+     */
+    private TwoTierCache listCache;
+
+    @PostConstruct
+    public void initCache() {
+        detailCache = cacheRegistry.create("article:detail",
+                configProperties.getArticleDetailCacheSize(),
+                configProperties.getArticleDetailCacheTtl());
+        listCache = cacheRegistry.create("article:list",
+                configProperties.getArticleListCacheSize(),
+                configProperties.getArticleListCacheTtl());
+        // 计数不随刷写清除缓存，读取时由计数器合并最新计数（见mergeCounters）
+    }
 
     /**
      * 新增或修改资讯信息
@@ -56,7 +118,7 @@ public class ArticleServiceImpl implements ArticleService {
          * 为了方便其他后续的模块取出和使用这些用户信息。
          *
          */
-        Long userId = RequestInfoHolder.getLong("userId");
+        Long userId = RequestInfoHolder.getUserId();
 
         // 把参数封装为一个Entity对象
         Article article = new Article();
@@ -76,6 +138,11 @@ public class ArticleServiceImpl implements ArticleService {
             article.setStatus("未审核");
             // 调用Dao层执行插入即可
             articleMapper.updateById(article);
+            // 更新全文索引（本次只修改了部分字段，重新查询完整的资讯信息）
+            contentSearch.indexArticle(articleMapper.selectById(id));
+            // 清除该资讯的详情缓存以及所有列表缓存
+            detailCache.invalidate(String.valueOf(id));
+            listCache.invalidateAll();
             return;
         }
         /* 新增操作 */
@@ -93,7 +160,10 @@ public class ArticleServiceImpl implements ArticleService {
         article.setDislikeNum(0);
         // 调用Dao层执行插入
         articleMapper.insert(article);
-
+        // 把新增的资讯加入全文索引
+        contentSearch.indexArticle(article);
+        // 新增的资讯会出现在列表中，清除所有列表缓存
+        listCache.invalidateAll();
     }
 
     /**
@@ -110,11 +180,23 @@ public class ArticleServiceImpl implements ArticleService {
         article.setStatus(status);
         // 调用Dao层执行修改
         articleMapper.updateById(article);
+        // 更新全文索引中的审核状态
+        contentSearch.updateArticleStatus(id, status);
+        // 清除该资讯的详情缓存以及所有列表缓存
+        detailCache.invalidate(String.valueOf(id));
+        listCache.invalidateAll();
     }
 
     @Override
     public void delete(List<Long> ids) {
         articleMapper.deleteBatchIds(ids);
+        // 从全文索引中删除
+        contentSearch.deleteArticles(ids);
+        // 清除被删除资讯的详情缓存以及所有列表缓存
+        for (Long id : ids) {
+            detailCache.invalidate(String.valueOf(id));
+        }
+        listCache.invalidateAll();
     }
 
     /**
@@ -125,11 +207,70 @@ public class ArticleServiceImpl implements ArticleService {
      */
     @Override
     public ArticleExt getById(Long id, int commentsNum) {
-        ArticleExt articleExt = ArticleExt.toExt(articleMapper.selectById(id));
+        // 先查询缓存，缓存中没有时再查询数据库
+        ArticleExt articleExt = detailCache.get(String.valueOf(id), ARTICLE_TYPE,
+                () -> ArticleExt.toExt(articleMapper.selectById(id)));
+        if (articleExt == null) {
+            return null;
+        }
+        // 阅读量加一（先累加在内存中，定期批量写入数据库）
+        articleCounter.increment(id, ArticleCounter.Type.READ);
 
         // 查询该文章下的几条评论
 
-        return articleExt;
+        return mergeCounters(articleExt);
+    }
+
+    /**
+     * 点赞资讯
+     * @param id 文章ID
+     */
+    @Override
+    public void like(Long id) {
+        checkExists(id);
+        articleCounter.increment(id, ArticleCounter.Type.LIKE);
+    }
+
+    /**
+     * 点踩资讯
+     * @param id 文章ID
+     */
+    @Override
+    public void dislike(Long id) {
+        checkExists(id);
+        articleCounter.increment(id, ArticleCounter.Type.DISLIKE);
+    }
+
+    /**
+     * 判断资讯是否存在（优先查询缓存）
+     * @param id 文章ID
+     */
+    private void checkExists(Long id) {
+        ArticleExt articleExt = detailCache.get(String.valueOf(id), ARTICLE_TYPE,
+                () -> ArticleExt.toExt(articleMapper.selectById(id)));
+        if (articleExt == null) {
+            throw new CmsException(ResultCode.ARTICLE_NOT_EXIST);
+        }
+    }
+
+    /**
+     * 把最新的计数合并到资讯信息中
+     * 缓存中的计数只是缓存加载时数据库中的值，最新计数 = 数据库计数（缓存值与最近刷写后的值取较大者）+ 未写入的增量
+     * 缓存中的对象是共享的，计数有变化时复制一份再修改
+     * @param articleExt
+     * @return
+     */
+    private ArticleExt mergeCounters(ArticleExt articleExt) {
+        long[] counts = articleCounter.current(articleExt.getId(),
+                articleExt.getReadNum(), articleExt.getLikeNum(), articleExt.getDislikeNum());
+        if (counts == null) {
+            return articleExt;
+        }
+        ArticleExt merged = ArticleExt.toExt(articleExt);
+        merged.setReadNum((int) counts[0]);
+        merged.setLikeNum((int) counts[1]);
+        merged.setDislikeNum((int) counts[2]);
+        return merged;
     }
 
     /**
@@ -139,13 +280,38 @@ public class ArticleServiceImpl implements ArticleService {
      * 2）有一些查询条件是关于其他实体种类信息的条件设置，
      * 例如：所属栏目、发布者（用户），需要先发送请求给后台查询数据列表，用于页面的渲染
      * 3）查询的时间是一个范围选择模式
-     * @param page 分页对象（包含分页参数pageNum、pageSize）
+     * @param page 分页对象（包含分页参数pageNum、pageSize，或者游标分页参数after、pageSize）
      * @param articleExt 检索条件
      * @return
      */
     @Override
     public IPage<ArticleExt> pageQueryByClause(IPage<Article> page,
                                                ArticleExt articleExt) {
+        /* 以分页参数+查询条件作为缓存键，先查询缓存 */
+        Object[] keyArgs = page instanceof CursorPage
+                ? new Object[]{((CursorPage<Article>) page).getAfterTime(),
+                ((CursorPage<Article>) page).getAfterId(), page.getSize(), articleExt}
+                : new Object[]{page.getCurrent(), page.getSize(), articleExt};
+        String key = redisUtil.generateKey(ArticleServiceImpl.class, "pageQueryByClause",
+                page.getClass().getSimpleName(), keyArgs);
+        IPage<ArticleExt> result = listCache.get(key, ARTICLE_PAGE_TYPE,
+                () -> PageSnapshot.of(queryPage(page, articleExt)))
+                .restore(page);
+        // 合并最新的计数（替换记录清单，不修改缓存中的对象）
+        result.setRecords(result.getRecords().stream()
+                .map(this::mergeCounters)
+                .collect(Collectors.toList()));
+        return result;
+    }
+
+    /**
+     * 分页+多条件检索资讯信息（查询数据库）
+     * @param page 分页对象
+     * @param articleExt 检索条件
+     * @return
+     */
+    private IPage<ArticleExt> queryPage(IPage<Article> page,
+                                        ArticleExt articleExt) {
         /* 取出参数 */
         String title = articleExt.getTitle();
         Integer categoryId = articleExt.getCategoryId();
@@ -155,6 +321,19 @@ public class ArticleServiceImpl implements ArticleService {
         Date startTime = articleExt.getStartTime();
         Date endTime = articleExt.getEndTime();
 
+        /* 有关键字时优先使用全文索引检索标题和正文（索引不可用时使用下面的数据库模糊查询） */
+        if (StringUtils.hasText(title)) {
+            List<SearchHit> hits = contentSearch.searchArticles(title, document ->
+                    (categoryId == null || Objects.equals(document.getGroupId(), categoryId.longValue()))
+                            && (!StringUtils.hasText(status) || status.equals(document.getStatus()))
+                            && (userId == null || userId.equals(document.getUserId()))
+                            && (charged == null || charged.equals(document.getCharged()))
+                            && ContentSearch.inTimeRange(document, startTime, endTime));
+            if (hits != null) {
+                return searchPage(page, hits);
+            }
+        }
+
         /* 把参数封装为一个条件模型对象 */
         LambdaQueryWrapper<Article> lqw = new LambdaQueryWrapper<>();
         // 文章标题，模糊匹配
@@ -173,9 +352,12 @@ public class ArticleServiceImpl implements ArticleService {
         // 结束时间，范围匹配（发布时间要早于限定的结束时间）
         // lt = less than 小于的意思
         lqw.le(endTime != null, Article::getPublishTime, endTime);
+        // 游标分页模式下，按照(发布时间, ID)定位到上一页最后一条数据之后
+        PageUtil.seek(page, lqw, Article::getPublishTime, Article::getId);
 
         /* 执行分页查询 */
         articleMapper.selectPage(page, lqw);
+        PageUtil.fillNext(page, Article::getPublishTime, Article::getId);
 
         /* 转换数据类型 */
         IPage<ArticleExt> newPage = PageUtil.convert(page, ArticleExt::toExt);
@@ -185,6 +367,20 @@ public class ArticleServiceImpl implements ArticleService {
         return newPage;
     }
 
+    /**
+     * 根据全文检索的结果查询一页资讯信息
+     * @param page 分页对象
+     * @param hits 检索结果
+     * @return
+     */
+    private IPage<ArticleExt> searchPage(IPage<Article> page, List<SearchHit> hits) {
+        List<Long> ids = ContentSearch.slice(page, hits);
+        List<Article> articles = ids.isEmpty() ? Collections.emptyList() : articleMapper.selectBatchIds(ids);
+        page.setRecords(ContentSearch.order(ids, articles, Article::getId));
+        PageUtil.fillNext(page, Article::getPublishTime, Article::getId);
+        return PageUtil.convert(page, ArticleExt::toExt);
+    }
+
     /**
      * 查询所有资讯信息（用于评论管理模块下拉列表中显示和选择文章）
      * @return
@@ -1,10 +1,16 @@
 package com.briup.cms.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.briup.cms.common.config.ConfigProperties;
 import com.briup.cms.common.exception.CmsException;
 import com.briup.cms.common.model.entity.User;
 import com.briup.cms.common.model.ext.UserExt;
+import com.briup.cms.common.model.vo.TokenVO;
+import com.briup.cms.common.throttle.LoginThrottle;
+import com.briup.cms.common.token.RefreshTokenStore;
+import com.briup.cms.common.token.TokenRevocation;
 import com.briup.cms.common.util.JwtUtil;
+import com.briup.cms.common.util.ObjectUtil;
 import com.briup.cms.common.util.ResultCode;
 import com.briup.cms.common.util.SecurityUtil;
 import com.briup.cms.dao.UserMapper;
@@ -46,15 +52,35 @@ public class AuthServiceImpl implements AuthService {
      * 加密工具
      */
     private final SecurityUtil securityUtil;
+    /**
+     * 登录限流
+     */
+    private final LoginThrottle loginThrottle;
+    /**
+     * Token吊销名单
+     */
+    private final TokenRevocation tokenRevocation;
+    /**
+     * 刷新令牌存储
+     */
+    private final RefreshTokenStore refreshTokenStore;
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
 
     /**
      * 用户登录
      * @param username 账号
      * @param password 密码
+     * @param ip 客户端IP
      * @return
      */
     @Override
-    public String login(String username, String password) {
+    public TokenVO login(String username, String password, String ip) {
+        /* 账号或IP登录失败次数过多时直接拒绝（在查询数据库、计算密码哈希之前） */
+        loginThrottle.check(username, ip);
+
         /* 根据用户提交的账号，查询用户信息 */
         // 创建一个查询条件模型对象，用来封装查询条件
         LambdaQueryWrapper<User> lqw = new LambdaQueryWrapper<>();
@@ -66,25 +92,80 @@ public class AuthServiceImpl implements AuthService {
         /* 根据查询的结果，判断登录的结果 */
         // 如果账号不存在，则登录失败，抛出异常
         if (user == null) {
+            loginThrottle.recordFailure(username, ip);
             throw new CmsException(ResultCode.USER_USERNAME_NOT_EXIST);
         }
         // 如果密码不正确，则登录失败，抛出异常
         // password = DigestUtils.md5DigestAsHex(password.getBytes());
         if (!securityUtil.bcryptMatches(password, user.getPassword())) {
+            loginThrottle.recordFailure(username, ip);
             throw new CmsException(ResultCode.USER_PASSWORD_INVALID);
         }
+        // 密码正确，清除该账号的失败计数
+        loginThrottle.recordSuccess(username);
         // 如果账号状态不可用，则登录失败，抛出异常
         if (!user.getStatus().equals("启用")) {
             throw new CmsException(ResultCode.USER_ACCOUNT_FORBIDDEN);
         }
+        // 如果密文的加密强度低于共享的下限，使用本次登录的明文密码重新加密
+        if (securityUtil.bcryptNeedsRehash(user.getPassword())) {
+            User rehashed = new User();
+            rehashed.setId(user.getId());
+            rehashed.setPassword(securityUtil.bcryptEncode(password));
+            userMapper.updateById(rehashed);
+        }
+
+        /* 额外步骤：生成访问令牌，并为本次登录创建刷新令牌族 */
+        return issueTokens(user, refreshTokenStore.createFamily(user.getId()));
+    }
+
+    /**
+     * 使用刷新令牌换取新的令牌对
+     * @param refreshToken 刷新令牌
+     * @return
+     */
+    @Override
+    public TokenVO refresh(String refreshToken) {
+        RefreshTokenStore.Session session = refreshTokenStore.consume(refreshToken);
+        // 已使用过的刷新令牌再次出现，令牌可能已被盗用，强制该用户下线
+        if (session.isReused()) {
+            tokenRevocation.revokeAll(session.getUserId());
+            throw new CmsException(ResultCode.TOKEN_REFRESH_REUSED);
+        }
+        // 只在刷新时查询一次用户信息，账号被禁用或删除后最迟在下次刷新时失效
+        User user = userMapper.selectById(session.getUserId());
+        if (user == null || !"启用".equals(user.getStatus())) {
+            refreshTokenStore.revokeFamily(session.getFamilyId());
+            throw new CmsException(ResultCode.USER_ACCOUNT_FORBIDDEN);
+        }
+        return issueTokens(user, session.getFamilyId());
+    }
 
-        /* 额外步骤：把用户信息封装起来作为载荷生成Token令牌 */
-        // 创建一个Map集合，保存用户信息（载荷）
+    /**
+     * 签发访问令牌和属于某个令牌族的刷新令牌
+     * @param user 用户信息
+     * @param familyId 刷新令牌族ID
+     * @return
+     */
+    private TokenVO issueTokens(User user, String familyId) {
+        // 把鉴权需要的用户信息封装起来作为载荷，后续请求不需要再查询数据库
         Map<String, Object> map = new HashMap<>();
         map.put("userId", user.getId());
         map.put("username", user.getUsername());
+        map.put("roleId", user.getRoleId());
+        map.put("status", user.getStatus());
+        map.put("vip", user.getVip());
+        map.put("familyId", familyId);
         // 调用Token工具类生成令牌字符串
-        return jwtUtil.generate(map);
+        String token = jwtUtil.generate(map);
+        // 按用户记录令牌ID（用于强制下线）
+        Map<String, Object> claims = jwtUtil.getClaims(token);
+        tokenRevocation.track(user.getId(), jwtUtil.getId(claims), jwtUtil.getExpireAt(claims));
+        return TokenVO.builder()
+                .token(token)
+                .expiresIn(configProperties.getJwtAccessTokenExpire())
+                .refreshToken(refreshTokenStore.issue(user.getId(), familyId))
+                .build();
     }
 
     /**
@@ -95,12 +176,54 @@ public class AuthServiceImpl implements AuthService {
     @Override
     public UserExt getUserinfo(String token) {
         // 调用Token工具解析Token令牌字符串并且获取到Token中包含的载荷信息
+        // （与Token拦截器共用同一个已校验载荷缓存，通常只需一次哈希查找）
         Map<String, Object> claims = jwtUtil.getClaims(token);
-        // 从载荷中取出用户的id
-        Long userId = (Long) claims.get("userId");
+        // 从载荷中取出用户的id（载荷解码后较小的数值是Integer类型）
+        Long userId = ((Number) claims.get("userId")).longValue();
         // 根据用户id查询出用户的信息
         User user = userMapper.selectById(userId);
         // 把查询出来的用户对象（Entity类型）转换成实体扩展类型（Ext类型）
         return UserExt.toExt(user);
     }
+
+    /**
+     * 用户登出
+     * @param token Token令牌
+     */
+    @Override
+    public void logout(String token) {
+        // 没有携带Token或Token已经失效时无需处理
+        if (ObjectUtil.notHasText(token)) {
+            return;
+        }
+        Map<String, Object> claims;
+        try {
+            claims = jwtUtil.getClaims(token);
+        } catch (CmsException e) {
+            return;
+        }
+        // 把令牌ID加入吊销名单，直到令牌自身过期
+        tokenRevocation.revoke(jwtUtil.getId(claims), jwtUtil.getExpireAt(claims));
+        jwtUtil.evict(token);
+        // 作废本次登录的刷新令牌族
+        Object familyId = claims.get("familyId");
+        if (familyId instanceof String) {
+            refreshTokenStore.revokeFamily((String) familyId);
+        }
+    }
+
+    /**
+     * 强制某个用户下线
+     * @param userId 用户ID
+     * @return
+     */
+    @Override
+    public int killSessions(Long userId) {
+        if (userId == null) {
+            throw new CmsException(ResultCode.PARAM_IS_BLANK);
+        }
+        // 先作废刷新令牌族，避免被吊销的用户通过刷新令牌重新获得访问令牌
+        refreshTokenStore.revokeAllFamilies(userId);
+        return tokenRevocation.revokeAll(userId);
+    }
 }
@@ -2,24 +2,39 @@ package com.briup.cms.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.briup.cms.common.cache.CacheRegistry;
+import com.briup.cms.common.cache.CategoryTree;
+import com.briup.cms.common.config.ConfigProperties;
+import com.briup.cms.common.excel.CategoryImportListener;
+import com.briup.cms.common.excel.ExcelStreamWriter;
 import com.briup.cms.common.exception.CmsException;
-import com.briup.cms.common.model.entity.Article;
 import com.briup.cms.common.model.entity.Category;
-import com.briup.cms.common.model.entity.User;
 import com.briup.cms.common.model.ext.CategoryExt;
+import com.briup.cms.common.model.excel.ExcelCategory;
 import com.briup.cms.common.model.ext.UserExt;
+import com.briup.cms.common.model.vo.CategoryDeleteReportVO;
+import com.briup.cms.common.model.vo.ExcelImportReportVO;
+import com.briup.cms.common.util.ExcelUtil;
 import com.briup.cms.common.util.PageUtil;
 import com.briup.cms.common.util.ResultCode;
-import com.briup.cms.dao.ArticleMapper;
 import com.briup.cms.dao.CategoryMapper;
-import com.briup.cms.dao.UserMapper;
 import com.briup.cms.service.CategoryService;
 import lombok.RequiredArgsConstructor;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import javax.annotation.PostConstruct;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author YuYan
@@ -29,18 +44,63 @@ import java.util.List;
 @RequiredArgsConstructor
 public class CategoryServiceImpl implements CategoryService {
 
+    /**
+     * 栏目树快照在缓存注册中心中使用的名称（用于跨节点通知重新加载）
+     */
+    private static final String TREE_NAME = "category:tree";
+
     /**
      * 栏目模块Dao层对象
      */
     private final CategoryMapper categoryMapper;
     /**
-     * 资讯模块的Dao层对象
+     * 缓存注册中心
+     */
+    private final CacheRegistry cacheRegistry;
+    /**
+     * MyBatis会话工厂（导入时创建批量模式的会话）
+     */
+    private final SqlSessionFactory sqlSessionFactory;
+    /**
+     * 事务管理器（导入时每个批次在一个事务中提交）
+     */
+    private final PlatformTransactionManager transactionManager;
+    /**
+     * Excel工具
+     */
+    private final ExcelUtil excelUtil;
+    /**
+     * 自定义配置对象
+     */
+    private final ConfigProperties configProperties;
+
+    /**
+     * 栏目树快照（栏目数据变化时整体替换）
+     */
+    private volatile CategoryTree tree = CategoryTree.EMPTY;
+
+    @PostConstruct
+    public void initTree() {
+        reloadTree();
+        // 其他节点修改了栏目数据时，重新加载本节点的快照
+        cacheRegistry.addListener(TREE_NAME, this::reloadTree);
+    }
+
+    /**
+     * 从数据库加载全部栏目，重建快照后整体替换
+     * 加锁是为了保证并发修改时，最后替换上去的快照一定是最后加载的数据
      */
-    private final ArticleMapper articleMapper;
+    private synchronized void reloadTree() {
+        tree = CategoryTree.of(categoryMapper.selectList(null));
+    }
+
     /**
-     * 用户模块的Dao层对象
+     * 栏目数据发生变化后，重建本节点的快照并通知其他节点
      */
-    private final UserMapper userMapper;
+    private void refreshTree() {
+        reloadTree();
+        cacheRegistry.notifyChanged(TREE_NAME);
+    }
 
     /**
      * 新增栏目信息
@@ -55,12 +115,8 @@ public class CategoryServiceImpl implements CategoryService {
         Integer parentId = categoryExt.getParentId();
 
         /* 检查栏目名称是否重复 */
-        // 创建条件模型对象
-        LambdaQueryWrapper<Category> lqw = new LambdaQueryWrapper<>();
-        // 设置查询条件：栏目名称必须等于给定的name值
-        lqw.eq(Category::getName, name);
-        // 执行查询，如果查到的结果不为空，则说明该名称已经被使用
-        if (categoryMapper.selectOne(lqw) != null) {
+        // 在栏目树快照中按名称查找，如果找到则说明该名称已经被使用
+        if (tree.findIdByName(name) != null) {
             throw new CmsException(ResultCode.CATEGORY_HAS_EXISTED);
         }
 
@@ -76,6 +132,8 @@ public class CategoryServiceImpl implements CategoryService {
 
         // 调用Dao层执行插入
         categoryMapper.insert(category);
+        // 重建栏目树快照
+        refreshTree();
     }
 
     /**
@@ -87,7 +145,8 @@ public class CategoryServiceImpl implements CategoryService {
      * 3）对于单条数据删除，如果删除失败则必须给出提示
      *   对于多条数据删除，只要有任何一条被成功删除就算操作成功，
      *   如果所有数据都删除失败才反馈删除失败。
-     *   实现：在遍历集合处理删除的过程中，记录每一次删除的结果数量
+     *   实现：先用几条聚合查询判断出所有允许删除的栏目，再用一条语句统一删除，
+     *   并返回每个栏目ID的处理结果
      * 栏目的删除存在特定的要求：
      * 1、如果是一级栏目，当该栏目下存在二级栏目的时候禁止删除
      * 2、如果是二级栏目，如果当前栏目下存在任何作者账号正常的资讯信息存在，则禁止删除
@@ -98,64 +157,67 @@ public class CategoryServiceImpl implements CategoryService {
      *
      *
      * @param ids
+     * @return 每个栏目ID的处理结果
      */
     @Override
-    public void delete(List<Integer> ids) {
-
-        // 设置一个变量，用来记录总体被实际删掉的数据条数
-        int deletedCount = 0;
+    public CategoryDeleteReportVO delete(List<Integer> ids) {
+        CategoryDeleteReportVO report = new CategoryDeleteReportVO();
+        // 去掉重复的ID，保留请求中的顺序
+        Set<Integer> idSet = new LinkedHashSet<>(ids);
+        if (idSet.isEmpty()) {
+            throw new CmsException(ResultCode.CATEGORY_DELETE_FAILED);
+        }
 
-        // 遍历整个集合，对每个要删除的栏目进行判断处理
-        for (Integer id : ids) {
-            // 根据取出的id值，查出该栏目的详细信息
-            Category category = categoryMapper.selectById(id);
-            // 分成一级栏目和二级栏目两种方向处理
+        /* 用几条聚合查询一次性判断所有栏目是否允许删除 */
+        // 查出要删除的所有栏目
+        Map<Integer, Category> categories = new HashMap<>();
+        for (Category category : categoryMapper.selectBatchIds(idSet)) {
+            categories.put(category.getId(), category);
+        }
+        // 一级栏目：查出其中包含二级栏目的栏目ID
+        List<Integer> parentIds = new ArrayList<>();
+        // 二级栏目：查出其中存在作者账号正常的资讯的栏目ID
+        List<Integer> childIds = new ArrayList<>();
+        for (Category category : categories.values()) {
             if (category.getParentId() == null) {
-                /* 要删除的是父栏目（一级栏目），判断该栏目下是否包含子栏目 */
-                // 调用Dao层根据parentId查询栏目信息
-                LambdaQueryWrapper<Category> lqw = new LambdaQueryWrapper<>();
-                lqw.eq(Category::getParentId, id);
-                List<Category> categories = categoryMapper.selectList(lqw);
-                if (categories == null || categories.size() == 0) {
-                    // 没有子级栏目，可以删除
-                    deletedCount += categoryMapper.deleteById(id);
-                }
+                parentIds.add(category.getId());
+            } else {
+                childIds.add(category.getId());
+            }
+        }
+        Set<Integer> havingChildren = parentIds.isEmpty() ? Collections.emptySet()
+                : new HashSet<>(categoryMapper.selectIdsHavingChildren(parentIds));
+        Set<Integer> havingArticles = childIds.isEmpty() ? Collections.emptySet()
+                : new HashSet<>(categoryMapper.selectIdsHavingActiveArticles(childIds));
+
+        /* 判断每个栏目的处理结果，收集允许删除的栏目 */
+        Map<Integer, CategoryDeleteReportVO.Outcome> outcomes = new HashMap<>();
+        List<Integer> deletable = new ArrayList<>();
+        for (Integer id : idSet) {
+            Category category = categories.get(id);
+            if (category == null) {
+                outcomes.put(id, CategoryDeleteReportVO.Outcome.NOT_EXIST);
+            } else if (havingChildren.contains(id)) {
+                outcomes.put(id, CategoryDeleteReportVO.Outcome.HAS_CHILDREN);
+            } else if (havingArticles.contains(id)) {
+                outcomes.put(id, CategoryDeleteReportVO.Outcome.HAS_ARTICLES);
             } else {
-                /* 要删除的是子栏目（二级栏目） */
-                /* 查出该子栏目下的所有资讯 */
-                // 创建条件模型（用来查询资讯信息）
-                LambdaQueryWrapper<Article> lqw = new LambdaQueryWrapper<>();
-                // 设置查询条件：所属的分类id
-                lqw.eq(Article::getCategoryId, id);
-                // 调用Dao层执行查询
-                List<Article> articles = articleMapper.selectList(lqw);
-                // 设置一个变量，用来表示最终是否允许删除
-                boolean deleted = true;
-                if (articles != null) {
-                    for (Article article : articles) {
-                        // 取出资讯的作者ID
-                        Long userId = article.getUserId();
-                        // 查出资讯的作者（用户）
-                        User user = userMapper.selectById(userId);
-                        // 判断该用户是否已经注销（逻辑删除标志位）
-                        if (user.getDeleted().equals(0)) {
-                            deleted = false;
-                            // 只要找到一个未删除的用户信息，就可以直接结束循环了
-                            break;
-                        }
-                    }
-                }
-                // 判断删除标志位，是否允许删除
-                if (deleted) {
-                    deletedCount += categoryMapper.deleteById(id);
-                }
+                outcomes.put(id, CategoryDeleteReportVO.Outcome.DELETED);
+                deletable.add(id);
             }
         }
 
-        // 所有循环执行完毕之后，判断如果被删除的数据量仍为0，则抛出异常
-        if (deletedCount == 0) {
+        // 允许删除的栏目用一条语句全部删除，所有栏目都不允许删除时抛出异常
+        if (deletable.isEmpty() || categoryMapper.deleteBatchIds(deletable) == 0) {
             throw new CmsException(ResultCode.CATEGORY_DELETE_FAILED);
         }
+        // 按请求中的顺序记录每个栏目的处理结果
+        for (Integer id : idSet) {
+            report.put(id, outcomes.get(id));
+        }
+        // 重建栏目树快照
+        refreshTree();
+        return report;
     }
 
     /**
@@ -172,19 +234,19 @@ public class CategoryServiceImpl implements CategoryService {
         Integer parentId = categoryExt.getParentId();
 
         /* 检查栏目名称是否重复 */
-        // 创建查询模型对象
-        LambdaQueryWrapper<Category> lqw = new LambdaQueryWrapper<>();
-        // 设置查询条件：栏目名称
-        lqw.eq(Category::getName, name);
-        // 执行查询，如果查到的结果不为空则报错
-        Category record = categoryMapper.selectOne(lqw);
-        if (record != null && !record.getId().equals(id)) {
+        // 在栏目树快照中按名称查找，如果找到的是其他栏目则报错
+        CategoryTree snapshot = tree;
+        Integer recordId = snapshot.findIdByName(name);
+        if (recordId != null && !recordId.equals(id)) {
             throw new CmsException(ResultCode.CATEGORY_HAS_EXISTED);
         }
 
         /* 如果当前栏目是父栏目，则不允许改为子栏目 */
-        // 调用Dao层根据id查询出这条数据的当前状态
-        record = categoryMapper.selectById(id);
+        // 从快照中查询出这条数据的当前状态
+        CategoryExt record = snapshot.get(id, false);
+        if (record == null) {
+            throw new CmsException(ResultCode.CATEGORY_NOT_EXIST);
+        }
         // 如果该栏目本身是父栏目并且前端提交了parentId参数（表示要修改为子栏目）则报错
         if (record.getParentId() == null && parentId != null) {
             throw new CmsException(ResultCode.CATEGORY_LEVEL_SETTING_ERROR);
@@ -199,6 +261,8 @@ public class CategoryServiceImpl implements CategoryService {
         category.setParentId(parentId);
         /* 调用dao层执行修改 */
         categoryMapper.updateById(category);
+        // 重建栏目树快照
+        refreshTree();
     }
 
     /**
@@ -209,12 +273,8 @@ public class CategoryServiceImpl implements CategoryService {
      */
     @Override
     public CategoryExt getById(Integer id, boolean cascadeChildren) {
-        // 直接调用方法根据主键查询数据
-        Category category = categoryMapper.selectById(id);
-        // 将Entity类型转换为Ext类型
-        CategoryExt categoryExt = CategoryExt.toExt(category);
-
-        return categoryExt;
+        // 直接从栏目树快照中查询（返回的是新创建的Ext对象）
+        return tree.get(id, cascadeChildren);
     }
 
     /**
@@ -228,26 +288,8 @@ public class CategoryServiceImpl implements CategoryService {
      */
     @Override
     public List<CategoryExt> list(String type, boolean cascadeChildren) {
-        // 创建查询条件模型对象
-        LambdaQueryWrapper<Category> lqw = new LambdaQueryWrapper<>();
-        // 判断查询的类型type是查父栏目还是子栏目
-        if (type.equals("parent")) {
-            // 如果要查询的是父栏目，那么条件就是parent_id字段必须为空
-            lqw.isNull(Category::getParentId);
-        } else if (type.equals("child")) {
-            // 如果要查询的是子栏目，那么条件就是parent_id字段必须非空
-            lqw.isNotNull(Category::getParentId);
-        }
-
-        // 调用Dao层执行查询
-        List<Category> categories = categoryMapper.selectList(lqw);
-
-        // 转换数据类型
-        List<CategoryExt> categoryExts = CategoryExt.toExt(categories);
-
-        // TODO 根据cascadeChildren参数判断是否需要查询并封装子级数据
-
-        return categoryExts;
+        // 直接从栏目树快照中查询，按需挂载每个一级栏目下的二级栏目
+        return tree.list(type, cascadeChildren);
     }
 
     /**
@@ -276,12 +318,42 @@ public class CategoryServiceImpl implements CategoryService {
     }
 
     @Override
-    public void upload(InputStream is) {
-
+    public ExcelImportReportVO upload(InputStream is) {
+        // 每次导入创建一个新的监听器，由它逐行校验数据并分批插入
+        try (CategoryImportListener listener = new CategoryImportListener(sqlSessionFactory,
+                categoryMapper,
+                transactionManager,
+                configProperties.getExcelImportBatchSize(),
+                configProperties.getExcelImportChunkSize(),
+                configProperties.getExcelImportMaxErrors())) {
+            excelUtil.read(is, ExcelCategory.class, listener);
+            return listener.getReport();
+        } finally {
+            // 即使中途出错，之前已提交的数据也需要体现在快照中，所以总是重建栏目树快照
+            refreshTree();
+        }
     }
 
+    /**
+     * 导出栏目数据为Excel表格
+     * 栏目数据直接从栏目树快照中读取，通过流式写出器分批写入表格
+     * @param os 输出流
+     */
     @Override
     public void download(OutputStream os) {
-
+        CategoryTree snapshot = tree;
+        try (ExcelStreamWriter<ExcelCategory> writer = excelUtil.openWriter(os, ExcelCategory.class, "栏目")) {
+            for (CategoryExt category : snapshot.list(null, false)) {
+                CategoryExt parent = category.getParentId() == null
+                        ? null : snapshot.get(category.getParentId(), false);
+                writer.add(ExcelCategory.builder()
+                        .name(category.getName())
+                        .description(category.getDescription())
+                        .orderNum(category.getOrderNum())
+                        .deleted(Integer.valueOf(1).equals(category.getDeleted()) ? "已删除" : "未删除")
+                        .parentName(parent == null ? null : parent.getName())
+                        .build());
+            }
+        }
     }
 }
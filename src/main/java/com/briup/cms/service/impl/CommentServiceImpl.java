@@ -9,6 +9,9 @@ import com.briup.cms.common.model.ext.CommentExt;
 import com.briup.cms.common.model.ext.SubCommentExt;
 import com.briup.cms.common.model.ext.UserExt;
 import com.briup.cms.common.model.param.CommentDeleteParam;
+import com.briup.cms.common.search.ContentSearch;
+import com.briup.cms.common.search.SearchHit;
+import com.briup.cms.common.util.ObjectUtil;
 import com.briup.cms.common.util.PageUtil;
 import com.briup.cms.dao.CommentMapper;
 import com.briup.cms.dao.SubCommentMapper;
@@ -18,8 +21,15 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 业务逻辑层实现类 - 评论模块
@@ -48,6 +58,10 @@ public class CommentServiceImpl implements CommentService {
      * 用户模块Dao层对象
      */
     private final UserMapper userMapper;
+    /**
+     * 全文检索
+     */
+    private final ContentSearch contentSearch;
 
     @Override
     public void save(CommentExt commentExt) {
@@ -78,6 +92,8 @@ public class CommentServiceImpl implements CommentService {
             subCommentMapper.delete(lqw);
             // 二级评论删除完毕之后，再删除一级评论
             commentMapper.deleteById(id);
+            // 从全文索引中删除（二级评论不参与检索）
+            contentSearch.deleteComments(Collections.singletonList(id));
         } else if (type.equals("child")) {
             /* 删除二级评论 */
             subCommentMapper.deleteById(id);
@@ -109,6 +125,22 @@ public class CommentServiceImpl implements CommentService {
         String content = commentParam.getContent();
         Date startTime = commentParam.getStartTime();
         Date endTime = commentParam.getEndTime();
+        /* 有关键字时优先使用全文索引检索评论内容（索引不可用时使用下面的数据库模糊查询） */
+        if (StringUtils.hasText(content)) {
+            List<SearchHit> hits = contentSearch.searchComments(content, document ->
+                    (userId == null || userId.equals(document.getUserId()))
+                            && (articleId == null || articleId.equals(document.getGroupId()))
+                            && ContentSearch.inTimeRange(document, startTime, endTime));
+            if (hits != null) {
+                List<Long> ids = ContentSearch.slice(page, hits);
+                List<Comment> comments = ids.isEmpty() ? Collections.emptyList() : commentMapper.selectBatchIds(ids);
+                page.setRecords(ContentSearch.order(ids, comments, Comment::getId));
+                PageUtil.fillNext(page, Comment::getPublishTime, Comment::getId);
+                IPage<CommentExt> newPage = PageUtil.convert(page, CommentExt::toExt);
+                loadCommentGraph(newPage.getRecords());
+                return newPage;
+            }
+        }
         /* 设置查询条件 */
         LambdaQueryWrapper<Comment> lqw = new LambdaQueryWrapper<>();
         lqw.eq(userId != null, Comment::getUserId, userId);
@@ -118,44 +150,72 @@ public class CommentServiceImpl implements CommentService {
         lqw.ge(startTime != null, Comment::getPublishTime, startTime);
         // lt() less than  小于的意思   le() less than or equal  小于或等于
         lqw.le(endTime != null, Comment::getPublishTime, endTime);
+        // 游标分页模式下，按照(发布时间, ID)定位到上一页最后一条数据之后
+        PageUtil.seek(page, lqw, Comment::getPublishTime, Comment::getId);
         /* 调用dao层执行查询 */
         commentMapper.selectPage(page, lqw);
+        PageUtil.fillNext(page, Comment::getPublishTime, Comment::getId);
         /* 数据类型转换 */
         IPage<CommentExt> newPage = PageUtil.convert(page, CommentExt::toExt);
 
-        /* 关联查询每条评论的作者信息 */
-        // 获取到分页对象中包含的数据清单（一个集合对象）
-        List<CommentExt> records = newPage.getRecords();
-        // 遍历这个集合，为每个一级评论对象查询并封装它所属的作者信息、包含的二级评论
+        /* 批量关联查询评论的作者信息、二级评论信息 */
+        loadCommentGraph(newPage.getRecords());
+
+        return newPage;
+    }
+
+    /**
+     * 为一页一级评论批量装配二级评论和作者信息
+     * 无论这一页有多少条评论，都只额外执行两次查询：
+     * 1）通过parent_id IN (...)一次查出所有二级评论
+     * 2）通过id IN (...)一次查出所有一级、二级评论的作者
+     * 然后在内存中按照id关联组装，避免逐条查询产生的N+1问题
+     * @param records 一级评论集合
+     */
+    private void loadCommentGraph(List<CommentExt> records) {
+        if (ObjectUtil.isEmpty(records)) {
+            return;
+        }
+
+        /* 一次性查出这一页所有一级评论下的二级评论 */
+        List<Long> parentIds = records.stream()
+                .map(CommentExt::getId)
+                .collect(Collectors.toList());
+        LambdaQueryWrapper<SubComment> subLqw = new LambdaQueryWrapper<>();
+        subLqw.in(SubComment::getParentId, parentIds);
+        List<SubCommentExt> subCommentExts =
+                SubCommentExt.toExt(subCommentMapper.selectList(subLqw));
+
+        /* 收集一级评论、二级评论涉及到的所有作者ID，一次性查出作者信息 */
+        Set<Long> authorIds = new HashSet<>();
         for (CommentExt record : records) {
-            // 从一级评论对象中取出外键作者ID（用户ID）
-            Long authorId = record.getUserId();
-            // 调用用户模块Dao层对象查询这个用户详细信息
-            UserExt userExt = UserExt.toExt(userMapper.selectById(authorId));
-            // 把查询到的用户信息封装到评论对象中（这个数据需要组合起来一并返回给前端使用）
-            record.setUserExt(userExt);
-
-            // 创建一个用于查询二级评论的条件模型对象
-            LambdaQueryWrapper<SubComment> subLqw = new LambdaQueryWrapper<>();
-            // 设置查询条件：parent_id等于当前一级评论对象的id
-            subLqw.eq(SubComment::getParentId, record.getId());
-            // 调用Dao层执行查询
-            List<SubComment> subComments = subCommentMapper.selectList(subLqw);
-            // 转换数据类型
-            List<SubCommentExt> subCommentExts = SubCommentExt.toExt(subComments);
-            // 遍历每个二级评论对象，为它查询并封装发布者信息
-            for (SubCommentExt subCommentExt : subCommentExts) {
-                // 从二级评论对象中取出外键作者ID（用户ID）
-                Long subAuthorId = record.getUserId();
-                // 调用用户模块Dao层对象查询这个用户详细信息
-                userExt = UserExt.toExt(userMapper.selectById(subAuthorId));
-                // 把查询到的用户信息封装到评论对象中（这个数据需要组合起来一并返回给前端使用）
-                subCommentExt.setUserExt(userExt);
+            authorIds.add(record.getUserId());
+        }
+        for (SubCommentExt subCommentExt : subCommentExts) {
+            authorIds.add(subCommentExt.getUserId());
+        }
+        authorIds.remove(null);
+        Map<Long, UserExt> authors = new HashMap<>();
+        if (!authorIds.isEmpty()) {
+            for (User user : userMapper.selectBatchIds(authorIds)) {
+                authors.put(user.getId(), UserExt.toExt(user));
             }
-            // 把二级评论信息封装到一级评论对象中
-            record.setSubCommentExts(subCommentExts);
         }
 
-        return newPage;
+        /* 在内存中为二级评论设置作者（使用二级评论自己的作者ID），并按照parent_id分组 */
+        Map<Long, List<SubCommentExt>> subCommentGroups = new HashMap<>();
+        for (SubCommentExt subCommentExt : subCommentExts) {
+            subCommentExt.setUserExt(authors.get(subCommentExt.getUserId()));
+            subCommentGroups
+                    .computeIfAbsent(subCommentExt.getParentId(), k -> new ArrayList<>())
+                    .add(subCommentExt);
+        }
+
+        /* 把作者信息和二级评论封装到每个一级评论对象中 */
+        for (CommentExt record : records) {
+            record.setUserExt(authors.get(record.getUserId()));
+            record.setSubCommentExts(subCommentGroups
+                    .getOrDefault(record.getId(), new ArrayList<>()));
+        }
     }
 }
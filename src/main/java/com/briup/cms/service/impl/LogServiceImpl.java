@@ -1,31 +1,148 @@
 package com.briup.cms.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.briup.cms.common.excel.ExcelStreamWriter;
 import com.briup.cms.common.model.entity.Log;
+import com.briup.cms.common.model.excel.ExcelLog;
 import com.briup.cms.common.model.ext.LogExt;
+import com.briup.cms.common.util.ExcelUtil;
+import com.briup.cms.common.util.JsonUtil;
+import com.briup.cms.common.util.ObjectUtil;
+import com.briup.cms.common.util.PageUtil;
+import com.briup.cms.dao.LogMapper;
 import com.briup.cms.service.LogService;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
 import java.io.OutputStream;
+import java.util.Date;
 
 /**
  * @author YuYan
  * @date 2024-01-09 19:42:56
  */
 @Service
+@RequiredArgsConstructor
 public class LogServiceImpl implements LogService {
+
+    /**
+     * 日志模块Dao层对象
+     */
+    private final LogMapper logMapper;
+    /**
+     * Excel工具
+     */
+    private final ExcelUtil excelUtil;
+    /**
+     * JSON工具
+     */
+    private final JsonUtil jsonUtil;
+
+    /**
+     * 同步写入一条日志
+     * 注意：接口访问日志由LogAspect交给LogWriter异步批量写入，不经过本方法
+     * @param log
+     */
     @Override
     public void save(Log log) {
-
+        logMapper.insert(log);
     }
 
+    /**
+     * 分页+条件检索日志信息
+     * @param page 分页对象（包含分页参数pageNum、pageSize，或者游标分页参数after、pageSize）
+     * @param logExt 检索条件
+     * @return
+     */
     @Override
     public IPage<LogExt> pageQueryByClause(IPage<Log> page, LogExt logExt) {
-        return null;
+        /* 设置查询条件 */
+        LambdaQueryWrapper<Log> lqw = buildClause(logExt);
+        // 游标分页模式下，按照(创建时间, ID)定位到上一页最后一条数据之后
+        PageUtil.seek(page, lqw, Log::getCreateTime, Log::getId);
+
+        /* 调用Dao层执行查询 */
+        logMapper.selectPage(page, lqw);
+        PageUtil.fillNext(page, Log::getCreateTime, Log::getId);
+
+        /* 转换数据类型 */
+        return PageUtil.convert(page, LogExt::toExt);
     }
 
+    /**
+     * 按条件导出日志为Excel表格
+     * 日志从数据库中逐行流式读出，分批写入表格，导出行数再多也不会把数据全部读入内存
+     * @param os 输出流
+     * @param logParam 检索条件（limit大于0时最多导出limit条，按创建时间倒序）
+     */
     @Override
     public void download(OutputStream os, LogExt logParam) {
+        /* 设置查询条件 */
+        LambdaQueryWrapper<Log> lqw = buildClause(logParam);
+        lqw.orderByDesc(Log::getCreateTime).orderByDesc(Log::getId);
+        if (logParam.getLimit() > 0) {
+            lqw.last("limit " + logParam.getLimit());
+        }
+
+        /* 流式查询，每读到一条日志就转换后交给写出器 */
+        try (ExcelStreamWriter<ExcelLog> writer = excelUtil.openWriter(os, ExcelLog.class, "日志")) {
+            logMapper.streamByClause(lqw, context -> writer.add(toExcel(context.getResultObject())));
+        }
+    }
+
+    /**
+     * 根据检索条件创建条件模型对象
+     * @param logExt 检索条件
+     * @return
+     */
+    private LambdaQueryWrapper<Log> buildClause(LogExt logExt) {
+        /* 取出参数 */
+        String username = logExt.getUsername();
+        String requestUrl = logExt.getRequestUrl();
+        Date startTime = logExt.getStartTime();
+        Date endTime = logExt.getEndTime();
+
+        LambdaQueryWrapper<Log> lqw = new LambdaQueryWrapper<>();
+        lqw.like(StringUtils.hasText(username), Log::getUsername, username);
+        lqw.like(StringUtils.hasText(requestUrl), Log::getRequestUrl, requestUrl);
+        lqw.ge(startTime != null, Log::getCreateTime, startTime);
+        lqw.le(endTime != null, Log::getCreateTime, endTime);
+        return lqw;
+    }
+
+    /**
+     * 把日志转换为导出表格中的一行
+     * 响应状态码和响应消息从响应结果的JSON中取出
+     * @param log
+     * @return
+     */
+    private ExcelLog toExcel(Log log) {
+        ResponseSummary summary = ObjectUtil.hasText(log.getResponseResult())
+                ? jsonUtil.parse(log.getResponseResult(), ResponseSummary.class) : null;
+        return ExcelLog.builder()
+                .username(log.getUsername())
+                .businessName(log.getBusinessName())
+                .requestUrl(log.getRequestUrl())
+                .requestMethod(log.getRequestMethod())
+                .requestIp(log.getRequestIp())
+                .spendTime(log.getSpendTime())
+                .createTime(log.getCreateTime())
+                .code(summary == null || summary.getCode() == null ? null : String.valueOf(summary.getCode()))
+                .message(summary == null ? null : summary.getMessage())
+                .build();
+    }
 
+    /**
+     * 响应结果中导出时需要的字段（其他字段解析时直接跳过）
+     */
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private static class ResponseSummary {
+        private Integer code;
+        private String message;
     }
 }
@@ -189,9 +189,12 @@ public class UserServiceImpl implements UserService {
         lqw.eq(userExt.getVip() != null, User::getVip, userExt.getVip());
         // 设置查询条件：用户状态
         lqw.eq(StringUtils.hasText(userExt.getStatus()), User::getStatus, userExt.getStatus());
+        // 游标分页模式下，按照(注册时间, ID)定位到上一页最后一条数据之后
+        PageUtil.seek(page, lqw, User::getRegisterTime, User::getId);
 
         /* 执行分页查询操作，查询的结果会直接封装到这个page对象中 */
         userMapper.selectPage(page, lqw);
+        PageUtil.fillNext(page, User::getRegisterTime, User::getId);
 
         /* 数据转换 */
         IPage<UserExt> newPage = PageUtil.convert(page, UserExt::toExt);
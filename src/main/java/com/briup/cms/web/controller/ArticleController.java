@@ -1,11 +1,12 @@
 package com.briup.cms.web.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.briup.cms.common.log.LogAccess;
 import com.briup.cms.common.model.entity.Article;
 import com.briup.cms.common.model.ext.ArticleExt;
 import com.briup.cms.common.model.vo.ArticleVO;
+import com.briup.cms.common.permission.Permission;
+import com.briup.cms.common.permission.RequirePermission;
 import com.briup.cms.common.util.PageUtil;
 import com.briup.cms.common.util.Result;
 import com.briup.cms.service.ArticleService;
@@ -40,6 +41,7 @@ public class ArticleController {
      * 分页+条件检索资讯信息
      * @param pageNum 当前页
      * @param pageSize 每页大小
+     * @param after 游标分页参数（上一页返回的next游标，首页传空串），携带该参数时忽略pageNum
      * @param title 标题关键字
      * @param categoryId 所属栏目ID
      * @param status 审核状态
@@ -50,8 +52,9 @@ public class ArticleController {
      * @return
      */
     @GetMapping(params = "page=true")
-    public Result pageQuery(@RequestParam(value = "pageNum", required = true) int pageNum,
+    public Result pageQuery(@RequestParam(value = "pageNum", required = false, defaultValue = "1") int pageNum,
                             @RequestParam(value = "pageSize", required = true) int pageSize,
+                            @RequestParam(value = "after", required = false) String after,
                             @RequestParam(value = "title", required = false) String title,
                             @RequestParam(value = "categoryId", required = false) Integer categoryId,
                             @RequestParam(value = "status", required = false) String status,
@@ -60,7 +63,7 @@ public class ArticleController {
                             @RequestParam(value = "startTime", required = false) Date startTime,
                             @RequestParam(value = "endTime", required = false) Date endTime) {
         /* 封装分页参数 */
-        IPage<Article> page = new Page<>(pageNum, pageSize);
+        IPage<Article> page = PageUtil.of(pageNum, pageSize, after);
         /* 封装查询条件 */
         ArticleExt articleExt = ArticleExt.builder()
                 .title(title)
@@ -96,12 +99,35 @@ public class ArticleController {
      */
     @PutMapping("/{id}")
     @LogAccess("审核资讯")
+    @RequirePermission(Permission.ARTICLE_REVIEW)
     public Result review(@PathVariable(value = "id") Long id,
                          @RequestBody(required = false) String status) {
         articleService.review(id, status);
         return Result.ok();
     }
 
+    /**
+     * 点赞资讯
+     * @param id 文章ID
+     * @return
+     */
+    @PutMapping(value = "/{id}", params = "action=like")
+    public Result like(@PathVariable(value = "id") Long id) {
+        articleService.like(id);
+        return Result.ok();
+    }
+
+    /**
+     * 点踩资讯
+     * @param id 文章ID
+     * @return
+     */
+    @PutMapping(value = "/{id}", params = "action=dislike")
+    public Result dislike(@PathVariable(value = "id") Long id) {
+        articleService.dislike(id);
+        return Result.ok();
+    }
+
     /**
      * 删除资讯信息
      * @param ids
@@ -109,6 +135,7 @@ public class ArticleController {
      */
     @DeleteMapping("/{ids}")
     @LogAccess("删除资讯信息")
+    @RequirePermission(Permission.ARTICLE_DELETE)
     public Result delete(@PathVariable(value = "ids") List<Long> ids) {
         articleService.delete(ids);
         return Result.ok();
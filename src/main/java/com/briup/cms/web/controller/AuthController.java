@@ -1,12 +1,20 @@
 package com.briup.cms.web.controller;
 
+import com.briup.cms.common.log.LogAccess;
+import com.briup.cms.common.model.vo.TokenVO;
 import com.briup.cms.common.model.vo.UserVO;
+import com.briup.cms.common.permission.Permission;
+import com.briup.cms.common.permission.RequirePermission;
+import com.briup.cms.common.throttle.LoginThrottle;
+import com.briup.cms.common.token.TokenRevocation;
 import com.briup.cms.common.util.GlobalConstants;
 import com.briup.cms.common.util.Result;
 import com.briup.cms.service.AuthService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
+
 /**
  * 认证相关功能
  * @author YuYan
@@ -17,17 +25,47 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
 
     private final AuthService authService;
+    /**
+     * 登录限流
+     */
+    private final LoginThrottle loginThrottle;
+    /**
+     * Token吊销名单
+     */
+    private final TokenRevocation tokenRevocation;
 
     /**
      * 用户登录
      * @param userVO
+     * @param request
      * @return
      */
     @PostMapping("/login")
-    public Result login(@RequestBody UserVO userVO) {
+    public Result login(@RequestBody UserVO userVO, HttpServletRequest request) {
         return Result.ok(authService.login(
                 userVO.getUsername(),
-                userVO.getPassword()));
+                userVO.getPassword(),
+                request.getRemoteAddr()));
+    }
+
+    /**
+     * 使用刷新令牌换取新的令牌对
+     * @param tokenVO
+     * @return
+     */
+    @PostMapping("/refresh")
+    public Result refresh(@RequestBody TokenVO tokenVO) {
+        return Result.ok(authService.refresh(tokenVO.getRefreshToken()));
+    }
+
+    /**
+     * 查询登录限流的统计指标
+     * @return
+     */
+    @GetMapping("/auth/login-throttle")
+    @RequirePermission(Permission.SYSTEM_MONITOR)
+    public Result loginThrottleMetrics() {
+        return Result.ok(loginThrottle.metrics());
     }
 
     /**
@@ -42,12 +80,37 @@ public class AuthController {
     }
 
     /**
-     * 用户登出
+     * 用户登出（吊销当前的Token）
+     * @param token
      * @return
      */
     @PostMapping("/logout")
-    public Result logout() {
+    public Result logout(@RequestHeader(value = GlobalConstants.TOKEN_HEADER_NAME, required = false)
+                                 String token) {
+        authService.logout(token);
         return Result.ok();
     }
 
+    /**
+     * 强制某个用户下线（吊销该用户的全部Token）
+     * @param userId
+     * @return
+     */
+    @DeleteMapping("/auth/session/{userId}")
+    @LogAccess("强制用户下线")
+    @RequirePermission(Permission.SESSION_KILL)
+    public Result killSessions(@PathVariable("userId") Long userId) {
+        return Result.ok(authService.killSessions(userId));
+    }
+
+    /**
+     * 查询Token吊销名单的统计指标
+     * @return
+     */
+    @GetMapping("/auth/token-revocation")
+    @RequirePermission(Permission.SYSTEM_MONITOR)
+    public Result tokenRevocationMetrics() {
+        return Result.ok(tokenRevocation.metrics());
+    }
+
 }
@@ -0,0 +1,37 @@
+package com.briup.cms.web.controller;
+
+import com.briup.cms.common.cache.CacheRegistry;
+import com.briup.cms.common.permission.Permission;
+import com.briup.cms.common.permission.RequirePermission;
+import com.briup.cms.common.util.Result;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 缓存相关功能
+ * @author YuYan
+ * @date 2024-01-18 15:10:38
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/auth/cache")
+public class CacheController {
+
+    /**
+     * 缓存注册中心
+     */
+    private final CacheRegistry cacheRegistry;
+
+    /**
+     * 查询所有缓存的统计指标（命中率、淘汰数量等）
+     * @return
+     */
+    @GetMapping
+    @RequirePermission(Permission.SYSTEM_MONITOR)
+    public Result stats() {
+        return Result.ok(cacheRegistry.stats());
+    }
+
+}
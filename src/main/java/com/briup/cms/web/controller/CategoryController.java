@@ -52,8 +52,7 @@ public class CategoryController {
      */
     @DeleteMapping("/{ids}")
     public Result delete(@PathVariable("ids") List<Integer> ids) {
-        categoryService.delete(ids);
-        return Result.ok();
+        return Result.ok(categoryService.delete(ids));
     }
 
     /**
@@ -151,8 +150,7 @@ public class CategoryController {
      */
     @PostMapping(params = "action=upload")
     public Result upload(@RequestParam("file") MultipartFile multipartFile) throws Exception {
-        categoryService.upload(multipartFile.getInputStream());
-        return Result.ok();
+        return Result.ok(categoryService.upload(multipartFile.getInputStream()));
     }
 
 
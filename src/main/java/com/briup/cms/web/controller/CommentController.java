@@ -1,7 +1,6 @@
 package com.briup.cms.web.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.briup.cms.common.model.entity.Comment;
 import com.briup.cms.common.model.ext.CommentExt;
 import com.briup.cms.common.model.ext.SubCommentExt;
@@ -99,6 +98,7 @@ public class CommentController {
      * 分页+条件检索一级评论信息
      * @param pageNum 当前页
      * @param pageSize 每页大小
+     * @param after 游标分页参数（上一页返回的next游标，首页传空串），携带该参数时忽略pageNum
      * @param articleId 文章ID
      * @param content 评论内容关键字
      * @param userId 用户ID
@@ -107,15 +107,16 @@ public class CommentController {
      * @return
      */
     @GetMapping(params = "page=true")
-    public Result pageQuery(@RequestParam(value = "pageNum", required = true) int pageNum,
+    public Result pageQuery(@RequestParam(value = "pageNum", required = false, defaultValue = "1") int pageNum,
                             @RequestParam(value = "pageSize", required = true) int pageSize,
+                            @RequestParam(value = "after", required = false) String after,
                             @RequestParam(value = "articleId", required = false) Long articleId,
                             @RequestParam(value = "keyword", required = false) String content,
                             @RequestParam(value = "userId", required = false) Long userId,
                             @RequestParam(value = "startTime", required = false) Date startTime,
                             @RequestParam(value = "endTime", required = false) Date endTime) {
         /* 封装分页参数 */
-        IPage<Comment> page = new Page<>(pageNum, pageSize);
+        IPage<Comment> page = PageUtil.of(pageNum, pageSize, after);
         /* 封装查询条件 */
         CommentExt commentParam = CommentExt.builder()
                 .articleId(articleId)
@@ -1,7 +1,6 @@
 package com.briup.cms.web.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.briup.cms.common.download.Download;
 import com.briup.cms.common.model.entity.Log;
 import com.briup.cms.common.model.ext.LogExt;
@@ -32,15 +31,27 @@ public class LogController {
      */
     private final LogService logService;
 
+    /**
+     * 分页+条件检索日志信息
+     * @param pageSize 每页大小
+     * @param pageNum 当前页
+     * @param after 游标分页参数（上一页返回的next游标，首页传空串），携带该参数时忽略pageNum
+     * @param username 操作用户
+     * @param requestUrl 请求接口
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @return
+     */
     @GetMapping(params = "page=true")
     public Result pageQuery(@RequestParam(value = "pageSize", required = true) int pageSize,
-                            @RequestParam(value = "pageNum", required = true) int pageNum,
+                            @RequestParam(value = "pageNum", required = false, defaultValue = "1") int pageNum,
+                            @RequestParam(value = "after", required = false) String after,
                             @RequestParam(value = "username", required = false) String username,
                             @RequestParam(value = "requestUrl", required = false) String requestUrl,
                             @RequestParam(value = "startTime", required = false) Date startTime,
                             @RequestParam(value = "endTime", required = false) Date endTime) {
 
-        IPage<Log> page = new Page<>(pageNum, pageSize);
+        IPage<Log> page = PageUtil.of(pageNum, pageSize, after);
 
         LogExt logExt = LogExt.builder()
                 .username(username)
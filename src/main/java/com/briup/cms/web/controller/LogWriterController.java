@@ -0,0 +1,38 @@
+package com.briup.cms.web.controller;
+
+import com.briup.cms.common.log.LogWriter;
+import com.briup.cms.common.permission.Permission;
+import com.briup.cms.common.permission.RequirePermission;
+import com.briup.cms.common.util.Result;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 审计日志异步写入相关功能
+ * （/auth/log/**不经过登录拦截，监控接口不能放在日志模块的路径下）
+ * @author YuYan
+ * @date 2024-01-30 15:08:21
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/auth/log-writer")
+@RequirePermission(Permission.SYSTEM_MONITOR)
+public class LogWriterController {
+
+    /**
+     * 审计日志异步写入组件
+     */
+    private final LogWriter logWriter;
+
+    /**
+     * 查询审计日志缓冲队列的统计指标（队列深度、丢弃数量、写入数量等）
+     * @return
+     */
+    @GetMapping
+    public Result metrics() {
+        return Result.ok(logWriter.metrics());
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.briup.cms.web.controller;
+
+import com.briup.cms.common.log.LogAccess;
+import com.briup.cms.common.permission.Permission;
+import com.briup.cms.common.permission.PermissionRegistry;
+import com.briup.cms.common.permission.RequirePermission;
+import com.briup.cms.common.util.Result;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 权限相关功能
+ * @author YuYan
+ * @date 2024-01-23 15:02:44
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/auth/permission")
+@RequirePermission(Permission.PERMISSION_MANAGE)
+public class PermissionController {
+
+    /**
+     * 权限注册中心
+     */
+    private final PermissionRegistry permissionRegistry;
+
+    /**
+     * 查询各角色拥有的权限
+     * @return
+     */
+    @GetMapping
+    public Result describe() {
+        return Result.ok(permissionRegistry.describe());
+    }
+
+    /**
+     * 重新加载角色权限（角色数据变化后调用，所有节点同时生效）
+     * @return
+     */
+    @PutMapping
+    @LogAccess("重新加载角色权限")
+    public Result reload() {
+        permissionRegistry.reload();
+        return Result.ok();
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.briup.cms.web.controller;
+
+import com.briup.cms.common.log.LogAccess;
+import com.briup.cms.common.permission.Permission;
+import com.briup.cms.common.permission.RequirePermission;
+import com.briup.cms.common.search.ContentSearch;
+import com.briup.cms.common.util.Result;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 全文索引相关功能
+ * @author YuYan
+ * @date 2024-01-29 17:20:46
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/auth/search")
+@RequirePermission(Permission.SYSTEM_MONITOR)
+public class SearchController {
+
+    /**
+     * 全文检索
+     */
+    private final ContentSearch contentSearch;
+
+    /**
+     * 查询索引状态（文档数量、词数量、段文件大小、是否正在重建等）
+     * @return
+     */
+    @GetMapping
+    public Result stats() {
+        return Result.ok(contentSearch.stats());
+    }
+
+    /**
+     * 在后台从数据库重建索引（例如直接修改了数据库中的数据之后）
+     * @return
+     */
+    @LogAccess("重建全文索引")
+    @PutMapping(params = "action=rebuild")
+    public Result rebuild() {
+        contentSearch.rebuild();
+        return Result.ok();
+    }
+
+}
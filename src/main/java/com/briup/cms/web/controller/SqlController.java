@@ -0,0 +1,65 @@
+package com.briup.cms.web.controller;
+
+import com.briup.cms.common.log.LogAccess;
+import com.briup.cms.common.permission.Permission;
+import com.briup.cms.common.permission.RequirePermission;
+import com.briup.cms.common.sql.SlowQueryInterceptor;
+import com.briup.cms.common.sql.SqlStatistics;
+import com.briup.cms.common.util.Result;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * SQL执行情况相关功能
+ * @author YuYan
+ * @date 2024-01-26 15:25:06
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/auth/sql")
+@RequirePermission(Permission.SYSTEM_MONITOR)
+public class SqlController {
+
+    /**
+     * SQL语句统计
+     */
+    private final SqlStatistics sqlStatistics;
+
+    /**
+     * 慢SQL拦截器
+     */
+    private final SlowQueryInterceptor slowQueryInterceptor;
+
+    /**
+     * 查询按请求汇总的SQL统计指标（语句数量、数据库耗时、疑似N+1查询等）
+     * @return
+     */
+    @GetMapping
+    public Result statistics() {
+        return Result.ok(sqlStatistics.metrics());
+    }
+
+    /**
+     * 查询按语句汇总的耗时直方图（次数、平均值、p50/p90/p99/p999、最大值）
+     * @return
+     */
+    @GetMapping("/histogram")
+    public Result histograms() {
+        return Result.ok(slowQueryInterceptor.histograms());
+    }
+
+    /**
+     * 清空耗时直方图，重新开始统计
+     * @return
+     */
+    @LogAccess("清空SQL耗时直方图")
+    @DeleteMapping("/histogram")
+    public Result resetHistograms() {
+        slowQueryInterceptor.reset();
+        return Result.ok();
+    }
+
+}
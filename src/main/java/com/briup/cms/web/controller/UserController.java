@@ -1,11 +1,12 @@
 package com.briup.cms.web.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.briup.cms.common.log.LogAccess;
 import com.briup.cms.common.model.entity.User;
 import com.briup.cms.common.model.ext.UserExt;
 import com.briup.cms.common.model.vo.UserVO;
+import com.briup.cms.common.permission.Permission;
+import com.briup.cms.common.permission.RequirePermission;
 import com.briup.cms.common.util.PageUtil;
 import com.briup.cms.common.util.Result;
 import com.briup.cms.service.UserService;
@@ -33,6 +34,7 @@ public class UserController {
      */
     @PostMapping
     @LogAccess("新增用户信息")
+    @RequirePermission(Permission.USER_MANAGE)
     public Result save(@RequestBody UserVO userVO) {
         userService.save(UserExt.toExt(userVO));
         return Result.ok();
@@ -67,6 +69,7 @@ public class UserController {
      */
     @DeleteMapping("/{ids}")
     @LogAccess("删除用户信息")
+    @RequirePermission(Permission.USER_MANAGE)
     public Result delete(@PathVariable("ids") List<Long> ids) {
         userService.delete(ids);
         return Result.ok();
@@ -76,6 +79,7 @@ public class UserController {
      * 分页+条件检索用户信息
      * @param pageNum 当前页
      * @param pageSize 每页大小
+     * @param after 游标分页参数（上一页返回的next游标，首页传空串），携带该参数时忽略pageNum
      * @param vip VIP状态
      * @param roleId 角色ID
      * @param status 用户状态
@@ -83,8 +87,10 @@ public class UserController {
      * @return
      */
     @GetMapping(params = "page=true")
-    public Result pageQuery(@RequestParam(value = "pageNum") int pageNum,
+    @RequirePermission(Permission.USER_MANAGE)
+    public Result pageQuery(@RequestParam(value = "pageNum", required = false, defaultValue = "1") int pageNum,
                             @RequestParam(value = "pageSize") int pageSize,
+                            @RequestParam(value = "after", required = false) String after,
                             @RequestParam(value = "isVip", required = false) Integer vip,
                             @RequestParam(value = "roleId", required = false) Integer roleId,
                             @RequestParam(value = "status", required = false) String status,
@@ -96,7 +102,7 @@ public class UserController {
         userExt.setStatus(status);
         userExt.setRoleId(roleId);
         /* 封装分页参数 */
-        IPage<User> page = new Page<>(pageNum, pageSize);
+        IPage<User> page = PageUtil.of(pageNum, pageSize, after);
 
         return Result.ok(PageUtil.convert(
                 userService.pageQueryByClause(userExt, page),
@@ -108,6 +114,7 @@ public class UserController {
      * @return
      */
     @GetMapping
+    @RequirePermission(Permission.USER_MANAGE)
     public Result list() {
         return Result.ok(UserVO.toVO(userService.list()));
     }
@@ -0,0 +1,54 @@
+package com.briup.cms.web.interceptor;
+
+import com.briup.cms.common.util.IpUtil;
+import com.briup.cms.common.util.RequestInfo;
+import com.briup.cms.common.util.RequestInfoHolder;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 请求上下文拦截器
+ *
+ * 拦截所有请求：请求开始时记录请求方法、URL、客户端IP及归属地，请求结束时清除上下文，
+ * 防止复用的请求线程把上一个请求的用户信息带到下一个请求中。
+ * 需要排在Token拦截器之前，用户信息由Token拦截器在认证通过后补充。
+ * @author YuYan
+ * @date 2024-01-23 16:24:07
+ */
+@Component
+@RequiredArgsConstructor
+public class RequestInfoInterceptor implements HandlerInterceptor {
+
+    /**
+     * IP工具
+     */
+    private final IpUtil ipUtil;
+
+    @Override
+    public boolean preHandle(@NotNull HttpServletRequest request,
+                             @NotNull HttpServletResponse response,
+                             @NotNull Object handler) {
+        /* 每个请求都从一个新的上下文开始 */
+        RequestInfo info = new RequestInfo();
+        info.setRequestMethod(request.getMethod());
+        info.setRequestUrl(request.getRequestURI());
+        String requestIp = request.getRemoteAddr();
+        info.setRequestIp(requestIp);
+        info.setRequestSource(ipUtil.parseSource(requestIp));
+        RequestInfoHolder.set(info);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(@NotNull HttpServletRequest request,
+                                @NotNull HttpServletResponse response,
+                                @NotNull Object handler,
+                                Exception ex) {
+        RequestInfoHolder.clear();
+    }
+}
@@ -0,0 +1,44 @@
+package com.briup.cms.web.interceptor;
+
+import com.briup.cms.common.sql.SqlStatistics;
+import lombok.RequiredArgsConstructor;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * SQL统计拦截器
+ *
+ * 拦截所有请求：请求开始时开始统计本次请求执行的SQL语句，请求结束时汇总统计结果。
+ * 需要排在其他可能访问数据库的拦截器之前。
+ * @author YuYan
+ * @date 2024-01-26 15:02:47
+ */
+@Component
+@RequiredArgsConstructor
+public class SqlStatisticsInterceptor implements HandlerInterceptor {
+
+    /**
+     * SQL语句统计
+     */
+    private final SqlStatistics sqlStatistics;
+
+    @Override
+    public boolean preHandle(@NotNull HttpServletRequest request,
+                             @NotNull HttpServletResponse response,
+                             @NotNull Object handler) {
+        sqlStatistics.begin();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(@NotNull HttpServletRequest request,
+                                @NotNull HttpServletResponse response,
+                                @NotNull Object handler,
+                                Exception ex) {
+        sqlStatistics.end(request.getMethod() + " " + request.getRequestURI());
+    }
+}
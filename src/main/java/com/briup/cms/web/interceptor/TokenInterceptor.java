@@ -1,9 +1,13 @@
 package com.briup.cms.web.interceptor;
 
+import com.briup.cms.common.exception.CmsException;
+import com.briup.cms.common.permission.PermissionRegistry;
+import com.briup.cms.common.token.TokenRevocation;
 import com.briup.cms.common.util.GlobalConstants;
-import com.briup.cms.common.util.IpUtil;
 import com.briup.cms.common.util.JwtUtil;
+import com.briup.cms.common.util.RequestInfo;
 import com.briup.cms.common.util.RequestInfoHolder;
+import com.briup.cms.common.util.ResultCode;
 import lombok.RequiredArgsConstructor;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.web.method.HandlerMethod;
@@ -26,9 +30,13 @@ public class TokenInterceptor implements HandlerInterceptor {
      */
     private final JwtUtil jwtUtil;
     /**
-     * IP工具
+     * Token吊销名单
      */
-    private final IpUtil ipUtil;
+    private final TokenRevocation tokenRevocation;
+    /**
+     * 权限注册中心
+     */
+    private final PermissionRegistry permissionRegistry;
 
     @Override
     public boolean preHandle(@NotNull HttpServletRequest request,
@@ -43,30 +51,37 @@ public class TokenInterceptor implements HandlerInterceptor {
             return true;
         }
 
-        /* 从请求对象中获取到请求方法 */
-        String method = request.getMethod();
-
         /* 从请求头部中取出Token字符串 */
         String token = request.getHeader(GlobalConstants.TOKEN_HEADER_NAME);
 
         /* 如果可以通过验证，就解析出Token中包含的用户信息 */
         Map<String, Object> claims = jwtUtil.getClaims(token);
-        /* 将请求相关信息、用户相关信息全部存入ThreadLocal中存储 */
+        /* 已经登出或被强制下线的Token不能再使用 */
+        if (tokenRevocation.isRevoked(jwtUtil.getId(claims))) {
+            throw new CmsException(ResultCode.TOKEN_REVOKED);
+        }
+        /* 将用户相关信息存入请求上下文（请求相关信息已由请求上下文拦截器存入） */
+        RequestInfo info = RequestInfoHolder.current();
         Object idObj = claims.get("userId");
-        if (idObj instanceof Long) {
-            RequestInfoHolder.set("userId", idObj);
+        if (idObj instanceof Number) {
+            // 载荷解码后较小的数值是Integer类型，统一转换为Long
+            info.setUserId(((Number) idObj).longValue());
         }
         Object usernameObj = claims.get("username");
         if (usernameObj instanceof String) {
-            RequestInfoHolder.set("username", usernameObj);
+            info.setUsername((String) usernameObj);
+        }
+        /* 访问令牌中携带的角色、VIP信息，鉴权时直接使用，不再查询数据库 */
+        Object roleIdObj = claims.get("roleId");
+        Integer roleId = roleIdObj instanceof Number ? ((Number) roleIdObj).intValue() : null;
+        info.setRoleId(roleId);
+        Object vipObj = claims.get("vip");
+        if (vipObj instanceof Number) {
+            info.setVip(((Number) vipObj).intValue());
         }
-        /* 将HTTP请求相关的信息获取到，存入ThreadLocal中 */
-        RequestInfoHolder.set("requestMethod", method);
-        RequestInfoHolder.set("requestUrl", request.getRequestURI());
-        String requestIp = request.getRemoteAddr();
-        String requestSource = ipUtil.parseSource(requestIp);
-        RequestInfoHolder.set("requestIp", requestIp);
-        RequestInfoHolder.set("requestSource", requestSource);
+
+        /* 检查角色是否拥有接口要求的权限（查表+位运算，不查询数据库） */
+        permissionRegistry.check((HandlerMethod) handler, roleId);
         return true;
     }
 }
@@ -0,0 +1,152 @@
+package com.briup.cms.common.util;
+
+import com.briup.cms.common.exception.CmsException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 请求参数String-Date转换器测试
+ * @author YuYan
+ * @date 2024-01-30 10:12:45
+ */
+class StringToDateConverterTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Asia/Shanghai");
+
+    /* 与配置文件中默认格式+备选格式一致 */
+    private final StringToDateConverter converter = new StringToDateConverter(ZONE,
+            "yyyy-MM-dd HH:mm:ss",
+            "yyyy-MM-dd'T'HH:mm:ss",
+            "yyyy-MM-dd HH:mm",
+            "yyyy-MM-dd",
+            "yyyy/MM/dd HH:mm:ss",
+            "yyyy/MM/dd");
+
+    @Test
+    void convertDefaultPattern() {
+        assertEquals(date(2024, 1, 30, 10, 12, 45), converter.convert("2024-01-30 10:12:45"));
+        assertEquals(date(2024, 1, 30, 10, 12, 45), converter.convert(" 2024-01-30 10:12:45 "));
+    }
+
+    @Test
+    void convertAlternativePatterns() {
+        assertEquals(date(2024, 1, 30, 10, 12, 45), converter.convert("2024-01-30T10:12:45"));
+        assertEquals(date(2024, 1, 30, 10, 12, 0), converter.convert("2024-01-30 10:12"));
+        assertEquals(date(2024, 1, 30, 10, 12, 45), converter.convert("2024/01/30 10:12:45"));
+    }
+
+    @Test
+    void dateOnlyPatternsResolveToMidnight() {
+        assertEquals(date(2024, 1, 30, 0, 0, 0), converter.convert("2024-01-30"));
+        assertEquals(date(2024, 1, 30, 0, 0, 0), converter.convert("2024/01/30"));
+        assertEquals(date(2024, 2, 29, 0, 0, 0), converter.convert("2024-02-29"));
+    }
+
+    @Test
+    void convertEpochMillis() {
+        assertEquals(new Date(0), converter.convert("0"));
+        assertEquals(new Date(1706580765000L), converter.convert("1706580765000"));
+    }
+
+    @Test
+    void blankIsNull() {
+        assertNull(converter.convert(""));
+        assertNull(converter.convert("   "));
+    }
+
+    @Test
+    void invalidDatesAreRejected() {
+        assertInvalid("2024-02-30 10:12:45");
+        assertInvalid("2024-02-30");
+        assertInvalid("2023-02-29");
+        assertInvalid("2024/02/30");
+        assertInvalid("2024-13-01 00:00:00");
+        assertInvalid("2024-01-30 24:00:00");
+        assertInvalid("2024-01-3O 10:12:45");
+        assertInvalid("30/01/2024");
+        assertInvalid("9999999999999999999");
+        assertInvalid("99999999999999999999");
+        assertInvalid("abc");
+    }
+
+    /**
+     * 多个线程共享同一个转换器，对固定的输入反复转换，每个结果都要正确
+     * （SimpleDateFormat在这种情况下会得到错误的日期或抛出异常）
+     */
+    @Test
+    void concurrentConversionsAreConsistent() throws Exception {
+        String[] inputs = {
+                "2024-01-30 10:12:45",
+                "2023-12-31 23:59:59",
+                "2024-02-29T08:00:01",
+                "2024-03-01 12:30",
+                "2024-06-15",
+                "2024/07/04 18:05:09",
+                "2024/11/11",
+                "1706580765000"};
+        Date[] expected = {
+                date(2024, 1, 30, 10, 12, 45),
+                date(2023, 12, 31, 23, 59, 59),
+                date(2024, 2, 29, 8, 0, 1),
+                date(2024, 3, 1, 12, 30, 0),
+                date(2024, 6, 15, 0, 0, 0),
+                date(2024, 7, 4, 18, 5, 9),
+                date(2024, 11, 11, 0, 0, 0),
+                new Date(1706580765000L)};
+
+        int threads = 16;
+        int iterations = 20000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t;
+                futures.add(executor.submit((Callable<Integer>) () -> {
+                    start.await();
+                    int mismatches = 0;
+                    for (int i = 0; i < iterations; i++) {
+                        int index = (i + offset) % inputs.length;
+                        if (!expected[index].equals(converter.convert(inputs[index]))) {
+                            mismatches++;
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+            start.countDown();
+            int mismatches = 0;
+            for (Future<Integer> future : futures) {
+                mismatches += future.get(60, TimeUnit.SECONDS);
+            }
+            assertEquals(0, mismatches);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void assertInvalid(String text) {
+        CmsException e = assertThrows(CmsException.class, () -> converter.convert(text), text);
+        assertEquals(ResultCode.PARAM_TYPE_BIND_ERROR, e.getResultCode());
+    }
+
+    private static Date date(int year, int month, int day, int hour, int minute, int second) {
+        return Date.from(LocalDateTime.of(year, month, day, hour, minute, second).atZone(ZONE).toInstant());
+    }
+
+}